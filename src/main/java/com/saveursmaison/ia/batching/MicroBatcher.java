@@ -0,0 +1,156 @@
+package com.saveursmaison.ia.batching;
+
+import com.saveursmaison.ia.deadline.Deadline;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Junta ítems con la misma clave que llegan dentro de una ventana corta y los
+ * resuelve con una sola llamada.
+ *
+ * Líder/seguidores: el primer ítem de una clave abre el lote, espera la ventana
+ * (o a que se llene) y entrega el {@link Handler} al executor; después espera el
+ * resultado igual que los demás. La llamada no corre en el hilo de ninguna
+ * petición, así que cancelar o interrumpir la que abrió el lote no la corta para
+ * el resto. Si el handler lanza una excepción, cada ítem la recibe tal cual: la
+ * llamada ya se hizo y falló, repetirla por ítem solo multiplicaría la carga.
+ * Si el executor rechaza el lote (nadie llamó), todos reciben {@code null} y
+ * cada uno sigue por su cuenta.
+ */
+public final class MicroBatcher<K, I, R> {
+
+    /**
+     * Resuelve un lote. Devuelve un resultado por ítem, en el mismo orden;
+     * {@code null} para los que no tuvieron respuesta utilizable. Una excepción
+     * significa que falló la llamada entera y llega a todos los ítems.
+     */
+    @FunctionalInterface
+    public interface Handler<K, I, R> {
+        List<R> handle(K key, List<I> items);
+    }
+
+    private final class Batch {
+        private final List<I> items = new ArrayList<>();
+        private final CountDownLatch full = new CountDownLatch(1);
+        private final CompletableFuture<List<R>> results = new CompletableFuture<>();
+    }
+
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final Handler<K, I, R> handler;
+    private final Executor executor;
+    private final Map<K, Batch> open = new HashMap<>();
+    private final DistributionSummary batchSize;
+
+    public MicroBatcher(int maxBatchSize,
+                        Duration window,
+                        Handler<K, I, R> handler,
+                        Executor executor,
+                        MeterRegistry meterRegistry) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.windowNanos = window.toNanos();
+        this.handler = handler;
+        this.executor = executor;
+        this.batchSize = DistributionSummary.builder("pairing.batch.size")
+                .description("Ítems resueltos por cada llamada agrupada")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Agrega el ítem al lote abierto de su clave (o abre uno) y espera su resultado.
+     *
+     * @return el resultado del ítem, o {@code null} si el lote no lo resolvió
+     * @throws com.saveursmaison.ia.deadline.DeadlineExceededException si el plazo vence esperando
+     * @throws RuntimeException la que lanzó el {@link Handler} si falló la llamada del lote
+     */
+    public R submit(K key, I item, Deadline deadline) {
+        Batch batch;
+        int index;
+        boolean leader;
+        synchronized (open) {
+            batch = open.get(key);
+            leader = batch == null;
+            if (leader) {
+                batch = new Batch();
+                open.put(key, batch);
+            }
+            index = batch.items.size();
+            batch.items.add(item);
+            if (batch.items.size() >= maxBatchSize) {
+                open.remove(key);
+                batch.full.countDown();
+            }
+        }
+
+        if (leader) {
+            lead(key, batch, deadline);
+        }
+        return await(batch, index, deadline);
+    }
+
+    private void lead(K key, Batch batch, Deadline deadline) {
+        try {
+            long wait = Math.min(windowNanos, deadline.remaining().toNanos());
+            batch.full.await(wait, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<I> items;
+        synchronized (open) {
+            open.remove(key, batch);
+            // Fuera del mapa nadie más agrega ítems
+            items = List.copyOf(batch.items);
+        }
+        batchSize.record(items.size());
+        try {
+            executor.execute(() -> run(key, items, batch));
+        } catch (RejectedExecutionException e) {
+            e.printStackTrace();
+            batch.results.complete(null);
+        }
+    }
+
+    private void run(K key, List<I> items, Batch batch) {
+        List<R> results = null;
+        try {
+            results = handler.handle(key, items);
+        } catch (RuntimeException e) {
+            batch.results.completeExceptionally(e);
+        } finally {
+            // También con un Error: nadie se queda esperando el lote (no-op si ya falló arriba)
+            batch.results.complete(results);
+        }
+    }
+
+    private R await(Batch batch, int index, Deadline deadline) {
+        try {
+            List<R> results = batch.results.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+            return results != null && index < results.size() ? results.get(index) : null;
+        } catch (TimeoutException e) {
+            deadline.check();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // Solo run() completa con excepción, y siempre con una RuntimeException del handler
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
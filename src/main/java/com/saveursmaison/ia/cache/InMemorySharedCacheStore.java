@@ -0,0 +1,77 @@
+package com.saveursmaison.ia.cache;
+
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * L2 embebida en el proceso, para pruebas y para correr una sola réplica con la
+ * misma configuración que en producción. No se comparte entre procesos.
+ */
+public class InMemorySharedCacheStore implements SharedCacheStore {
+
+    /**
+     * Cada cuántas escrituras se barren las claves vencidas.
+     */
+    private static final int SWEEP_EVERY = 1_024;
+
+    private record Value(byte[] bytes, long expiresAtNanos) {
+
+        boolean expired(long now) {
+            return now - expiresAtNanos > 0;
+        }
+    }
+
+    private final Map<String, Value> values = new ConcurrentHashMap<>();
+    private final AtomicInteger writes = new AtomicInteger();
+
+    @Override
+    public List<byte[]> getAll(List<String> keys) {
+        long now = System.nanoTime();
+        List<byte[]> result = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Value value = values.get(key);
+            if (value != null && value.expired(now)) {
+                values.remove(key, value);
+                value = null;
+            }
+            result.add(value != null ? value.bytes() : null);
+        }
+        return result;
+    }
+
+    @Override
+    public void putAll(Map<String, byte[]> entries, Duration ttl) {
+        long expiresAt = System.nanoTime() + ttl.toNanos();
+        entries.forEach((key, bytes) -> values.put(key, new Value(bytes, expiresAt)));
+        if (writes.addAndGet(entries.size()) >= SWEEP_EVERY) {
+            writes.set(0);
+            long now = System.nanoTime();
+            values.values().removeIf(value -> value.expired(now));
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        values.remove(key);
+    }
+
+    @Override
+    public boolean tryLock(String key, String token, Duration ttl) {
+        long now = System.nanoTime();
+        Value mine = new Value(token.getBytes(StandardCharsets.UTF_8), now + ttl.toNanos());
+        return values.compute(key, (k, current) -> current == null || current.expired(now) ? mine : current) == mine;
+    }
+
+    @Override
+    public void unlock(String key, String token) {
+        byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+        values.computeIfPresent(key, (k, current) -> Arrays.equals(current.bytes(), bytes) ? null : current);
+    }
+}
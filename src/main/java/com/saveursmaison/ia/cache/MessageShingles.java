@@ -0,0 +1,95 @@
+package com.saveursmaison.ia.cache;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Normaliza un mensaje libre y lo convierte en un conjunto de shingles (hashes de 64 bits).
+ *
+ * Normalización: minúsculas, sin acentos ni puntuación, sin palabras vacías (en/es/fr)
+ * y plurales simples recortados. Shingles: cada palabra y cada par de palabras seguidas,
+ * así "a red wine for brie" y "red wine to go with brie please" quedan iguales.
+ */
+public final class MessageShingles {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            // en
+            "a", "an", "the", "for", "to", "with", "and", "or", "of", "some", "any", "please", "go", "goes",
+            "i", "me", "my", "we", "you", "want", "would", "like", "need", "can", "could", "recommend",
+            "suggest", "something", "that", "this", "is", "are", "be", "what", "which", "good", "nice",
+            // es
+            "un", "una", "unos", "unas", "el", "la", "los", "las", "para", "con", "y", "o", "de", "del",
+            "por", "favor", "quiero", "algo", "que", "recomienda", "recomiendas", "acompanar", "bueno",
+            // fr
+            "le", "les", "des", "du", "pour", "avec", "et", "ou", "s", "il", "vous", "plait", "je", "veux",
+            "quelque", "chose", "qui", "bon"
+    );
+
+    private MessageShingles() {
+    }
+
+    public static List<String> normalizedTokens(String message) {
+        if (message == null) {
+            return List.of();
+        }
+        String text = Normalizer.normalize(message.toLowerCase(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .replaceAll("[^a-z0-9]+", " ")
+                .trim();
+        if (text.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.split(" ")) {
+            if (!STOP_WORDS.contains(token)) {
+                tokens.add(stem(token));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Hashes únicos y ordenados de las palabras y pares de palabras del mensaje.
+     */
+    public static long[] of(String message) {
+        List<String> tokens = normalizedTokens(message);
+        long[] shingles = new long[Math.max(0, 2 * tokens.size() - 1)];
+        int n = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            long word = hash(tokens.get(i));
+            shingles[n++] = word;
+            if (i + 1 < tokens.size()) {
+                shingles[n++] = mix(word * 31 + hash(tokens.get(i + 1)));
+            }
+        }
+        return Arrays.stream(shingles, 0, n).distinct().sorted().toArray();
+    }
+
+    private static String stem(String token) {
+        // "wines" → "wine", "quesos" → "queso"; los números se dejan tal cual
+        if (token.length() > 3 && token.endsWith("s") && !token.endsWith("ss")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+
+    private static long hash(String token) {
+        long h = 1125899906842597L;
+        for (int i = 0; i < token.length(); i++) {
+            h = 31 * h + token.charAt(i);
+        }
+        return mix(h);
+    }
+
+    /**
+     * Finalizador de SplitMix64: reparte bien los bits de hashes con poca entropía.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
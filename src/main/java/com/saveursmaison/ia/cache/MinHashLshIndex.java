@@ -0,0 +1,159 @@
+package com.saveursmaison.ia.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Índice MinHash + LSH acotado en memoria.
+ *
+ * Cada entrada guarda una firma de {@code bands × rowsPerBand} enteros; cada banda
+ * se hashea (junto con el ámbito) a un bucket. Dos mensajes son candidatos si
+ * comparten algún bucket, y la similitud final se estima con la firma completa.
+ * Las entradas se descartan por LRU al pasar {@code maxEntries} o por TTL.
+ *
+ * No es thread-safe; quien lo usa sincroniza.
+ */
+final class MinHashLshIndex<V> {
+
+    record Match<V>(long id, V value, double similarity) {
+    }
+
+    private record Entry<V>(String scope, int[] signature, V value, long createdNanos) {
+    }
+
+    private final int bands;
+    private final int rowsPerBand;
+    private final long ttlNanos;
+    private final long[] seeds;
+    private final Map<Long, Set<Long>> buckets = new HashMap<>();
+    private final LinkedHashMap<Long, Entry<V>> entries;
+    private long nextId;
+
+    MinHashLshIndex(int bands, int rowsPerBand, int maxEntries, long ttlNanos) {
+        this.bands = bands;
+        this.rowsPerBand = rowsPerBand;
+        this.ttlNanos = ttlNanos;
+        this.seeds = new long[bands * rowsPerBand];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = MessageShingles.mix(0x9E3779B97F4A7C15L * (i + 1));
+        }
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry<V>> eldest) {
+                if (size() > maxEntries) {
+                    unindex(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    int[] signature(long[] shingles) {
+        int[] signature = new int[seeds.length];
+        for (int i = 0; i < seeds.length; i++) {
+            int min = Integer.MAX_VALUE;
+            for (long shingle : shingles) {
+                int h = (int) (MessageShingles.mix(shingle ^ seeds[i]) >>> 33);
+                if (h < min) {
+                    min = h;
+                }
+            }
+            signature[i] = min;
+        }
+        return signature;
+    }
+
+    /**
+     * La entrada del mismo ámbito más parecida, si llega al umbral.
+     */
+    Match<V> find(String scope, int[] signature, double threshold, long now) {
+        Set<Long> candidates = new HashSet<>();
+        for (int band = 0; band < bands; band++) {
+            Set<Long> bucket = buckets.get(bucketKey(scope, signature, band));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+        Match<V> best = null;
+        List<Long> expired = new ArrayList<>();
+        for (long id : candidates) {
+            Entry<V> entry = entries.get(id);
+            if (entry == null || !entry.scope().equals(scope)) {
+                continue;
+            }
+            if (now - entry.createdNanos() > ttlNanos) {
+                expired.add(id);
+                continue;
+            }
+            double similarity = similarity(signature, entry.signature());
+            if (similarity >= threshold && (best == null || similarity > best.similarity())) {
+                best = new Match<>(id, entry.value(), similarity);
+            }
+        }
+        expired.forEach(this::remove);
+        return best;
+    }
+
+    long put(String scope, int[] signature, V value, long now) {
+        long id = nextId++;
+        Entry<V> entry = new Entry<>(scope, signature, value, now);
+        for (int band = 0; band < bands; band++) {
+            buckets.computeIfAbsent(bucketKey(scope, signature, band), k -> new HashSet<>(2)).add(id);
+        }
+        entries.put(id, entry);
+        return id;
+    }
+
+    void remove(long id) {
+        Entry<V> entry = entries.remove(id);
+        if (entry != null) {
+            unindex(id, entry);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void unindex(long id, Entry<V> entry) {
+        for (int band = 0; band < bands; band++) {
+            long key = bucketKey(entry.scope(), entry.signature(), band);
+            Set<Long> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(id);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determinista entre procesos (mismas semillas y {@link String#hashCode()}),
+     * así que también sirve de clave en la L2 compartida.
+     */
+    long bucketKey(String scope, int[] signature, int band) {
+        long h = scope.hashCode() * 0x9E3779B97F4A7C15L + band;
+        int from = band * rowsPerBand;
+        for (int i = from; i < from + rowsPerBand; i++) {
+            h = MessageShingles.mix(h ^ signature[i]);
+        }
+        return h;
+    }
+
+    static double similarity(int[] a, int[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / a.length;
+    }
+}
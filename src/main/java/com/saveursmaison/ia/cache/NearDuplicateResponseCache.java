@@ -0,0 +1,444 @@
+package com.saveursmaison.ia.cache;
+
+import com.saveursmaison.ia.config.ResponseCacheProperties;
+import com.saveursmaison.ia.dto.AiPairingResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de respuestas para mensajes libres casi iguales ("a red wine for brie" ≈
+ * "red wine to go with brie please").
+ *
+ * - El ámbito (modo, idioma, versión del catálogo y cantidades pedidas) tiene que
+ *   coincidir exacto; dentro del ámbito se busca por similitud MinHash/LSH.
+ * - Una fracción de los aciertos se verifica contra el modelo: si la respuesta
+ *   nueva no comparte ningún producto con la guardada, cuenta como falso acierto
+ *   y la entrada se descarta.
+ * - Con una L2 ({@link SharedCacheStore}) las respuestas se comparten entre
+ *   réplicas: la L1 en memoria pasa a ser una caché cercana de vida corta
+ *   ({@code near-cache-ttl}), que es lo que tarda una invalidación en llegar a
+ *   todas. En la L2 cada banda LSH es una clave que apunta a la última entrada
+ *   de su bucket, así que buscar cuesta dos lecturas en lote.
+ * - Si varias réplicas fallan a la vez con el mismo mensaje, solo la primera
+ *   llama al modelo; las demás esperan su respuesta en la L2 ({@link #lookup}).
+ * - Métricas: aciertos/fallos, falsos aciertos y segundos de modelo ahorrados.
+ */
+@Component
+public class NearDuplicateResponseCache {
+
+    /**
+     * Resultado de una búsqueda con acierto. Si {@code verify} es true hay que llamar
+     * igual al modelo y pasar la respuesta a {@link #verify}. {@code sharedId} es el
+     * id de la entrada en la L2 (null sin L2).
+     */
+    public record Hit(long id, String sharedId, AiPairingResult result, double similarity, boolean verify) {
+    }
+
+    private record Cached(String sharedId, AiPairingResult result, long modelNanos) {
+    }
+
+    /**
+     * Cada cuánto mira la L2 una réplica que espera la respuesta de otra.
+     */
+    private static final long STAMPEDE_POLL_MILLIS = 50;
+
+    /**
+     * Tras un error de la L2 se trabaja solo con la L1 durante este tiempo.
+     */
+    private static final long L2_RETRY_AFTER_NANOS = Duration.ofSeconds(5).toNanos();
+
+    private final ResponseCacheProperties properties;
+    private final MinHashLshIndex<Cached> index;
+    private final SharedCacheStore shared;
+    private final String node = UUID.randomUUID().toString();
+    private final AtomicLong nextLease = new AtomicLong();
+    private volatile long l2RetryAt = System.nanoTime();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter verified;
+    private final Counter falseHits;
+    private final Counter savedSeconds;
+    private final Counter sharedHits;
+    private final Counter sharedErrors;
+    private final Counter stampedeWaits;
+    private final Counter stampedeServed;
+
+    NearDuplicateResponseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this(properties, SharedCacheStore.none(), meterRegistry);
+    }
+
+    @Autowired
+    public NearDuplicateResponseCache(ResponseCacheProperties properties,
+                                      SharedCacheStore shared,
+                                      MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.shared = shared.isEnabled() ? shared : null;
+        Duration l1Ttl = this.shared != null && properties.getNearCacheTtl().compareTo(properties.getTtl()) < 0
+                ? properties.getNearCacheTtl()
+                : properties.getTtl();
+        this.index = new MinHashLshIndex<>(
+                properties.getBands(),
+                properties.getRowsPerBand(),
+                properties.getMaxEntries(),
+                l1Ttl.toNanos()
+        );
+
+        this.hits = Counter.builder("pairing.cache.requests").tag("result", "hit")
+                .description("Mensajes libres respondidos desde la caché de casi duplicados")
+                .register(meterRegistry);
+        this.misses = Counter.builder("pairing.cache.requests").tag("result", "miss")
+                .description("Mensajes libres que no encontraron uno parecido en caché")
+                .register(meterRegistry);
+        this.verified = Counter.builder("pairing.cache.verified")
+                .description("Aciertos verificados contra el modelo")
+                .register(meterRegistry);
+        this.falseHits = Counter.builder("pairing.cache.false.hits")
+                .description("Aciertos verificados cuya respuesta nueva no comparte productos con la guardada")
+                .register(meterRegistry);
+        this.savedSeconds = Counter.builder("pairing.cache.latency.saved")
+                .baseUnit("seconds")
+                .description("Tiempo de modelo ahorrado (latencia original de las respuestas servidas desde caché)")
+                .register(meterRegistry);
+        this.sharedHits = Counter.builder("pairing.cache.l2.hits")
+                .description("Aciertos que no estaban en la L1 de esta réplica y salieron de la L2")
+                .register(meterRegistry);
+        this.sharedErrors = Counter.builder("pairing.cache.l2.errors")
+                .description("Operaciones fallidas contra la L2 (la caché sigue solo con la L1)")
+                .register(meterRegistry);
+        this.stampedeWaits = Counter.builder("pairing.cache.stampede.waits")
+                .description("Fallos que esperaron a que otra réplica calculara la misma respuesta")
+                .register(meterRegistry);
+        this.stampedeServed = Counter.builder("pairing.cache.stampede.served")
+                .description("Esperas que terminaron con la respuesta calculada por otra réplica")
+                .register(meterRegistry);
+        Gauge.builder("pairing.cache.false.hit.rate", this, NearDuplicateResponseCache::falseHitRate)
+                .register(meterRegistry);
+        Gauge.builder("pairing.cache.entries", this, NearDuplicateResponseCache::size)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public static String scope(String mode, String locale, long catalogVersion, int maxWineCount, int maxCheeseCount) {
+        return mode + '|' + locale + '|' + Long.toHexString(catalogVersion) + '|' + maxWineCount + '|' + maxCheeseCount;
+    }
+
+    /**
+     * Busca en la L1 y después en la L2, sin esperar a otras réplicas.
+     */
+    public Hit find(String scope, String message) {
+        return lookup(scope, message, Duration.ZERO).hit();
+    }
+
+    /**
+     * Como {@link #find}, pero si falla y hay L2 intenta quedarse con el turno de
+     * calcular la respuesta para ese mensaje. Si otra réplica ya lo tiene, espera
+     * su respuesta hasta {@code maxWait} (acotado por {@code stampede-max-wait}).
+     * Quien recibe un {@link Lookup} sin acierto tiene que llamar a
+     * {@link Lookup#release()} al terminar, haya guardado respuesta o no.
+     */
+    public Lookup lookup(String scope, String message, Duration maxWait) {
+        long[] shingles = MessageShingles.of(message);
+        if (shingles.length == 0) {
+            return new Lookup(null, null, null);
+        }
+        int[] signature = index.signature(shingles);
+        Hit hit = findLocal(scope, signature);
+        if (hit == null) {
+            hit = findShared(scope, signature);
+        }
+        if (hit != null) {
+            return new Lookup(hit, null, null);
+        }
+
+        Duration wait = maxWait.compareTo(properties.getStampedeMaxWait()) < 0 ? maxWait : properties.getStampedeMaxWait();
+        if (wait.isNegative() || wait.isZero() || !sharedAvailable()) {
+            misses.increment();
+            return new Lookup(null, null, null);
+        }
+        // Exactamente el mismo mensaje (el caso típico de estampida) cae siempre en el mismo bucket de la banda 0.
+        String lockKey = properties.getL2KeyPrefix() + "l:" + Long.toHexString(index.bucketKey(scope, signature, 0));
+        String token = node + ':' + nextLease.incrementAndGet();
+        if (tryLock(lockKey, token)) {
+            misses.increment();
+            return new Lookup(null, lockKey, token);
+        }
+
+        stampedeWaits.increment();
+        long waitUntil = System.nanoTime() + wait.toNanos();
+        while (System.nanoTime() - waitUntil < 0) {
+            try {
+                Thread.sleep(STAMPEDE_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            hit = findShared(scope, signature);
+            if (hit != null) {
+                stampedeServed.increment();
+                return new Lookup(hit, null, null);
+            }
+            // Si quien tenía el turno terminó sin respuesta útil, lo toma esta réplica.
+            if (tryLock(lockKey, token)) {
+                misses.increment();
+                return new Lookup(null, lockKey, token);
+            }
+        }
+        misses.increment();
+        return new Lookup(null, null, null);
+    }
+
+    /**
+     * Guarda una respuesta del modelo. Solo se guardan respuestas con productos
+     * (un texto sin IDs suele ser un error de formato del modelo).
+     */
+    public void put(String scope, String message, AiPairingResult result, Duration modelLatency) {
+        if (result == null || result.getAnswer() == null || isEmpty(result)) {
+            return;
+        }
+        long[] shingles = MessageShingles.of(message);
+        if (shingles.length == 0) {
+            return;
+        }
+        int[] signature = index.signature(shingles);
+        String sharedId = shared != null ? UUID.randomUUID().toString() : null;
+        Cached cached = new Cached(sharedId, copy(result), modelLatency.toNanos());
+        synchronized (index) {
+            index.put(scope, signature, cached, System.nanoTime());
+        }
+        if (sharedAvailable()) {
+            Map<String, byte[]> values = new LinkedHashMap<>();
+            values.put(entryKey(sharedId), SharedEntryCodec.encode(scope, signature, cached.result(), cached.modelNanos()));
+            byte[] pointer = sharedId.getBytes(StandardCharsets.UTF_8);
+            for (String bandKey : bandKeys(scope, signature)) {
+                values.put(bandKey, pointer);
+            }
+            try {
+                shared.putAll(values, properties.getTtl());
+            } catch (RuntimeException e) {
+                sharedFailed(e);
+            }
+        }
+    }
+
+    /**
+     * Compara la respuesta nueva del modelo con la guardada para un acierto muestreado.
+     */
+    public void verify(Hit hit, AiPairingResult fresh) {
+        if (fresh == null || isEmpty(fresh)) {
+            return;
+        }
+        verified.increment();
+        if (!sharesProduct(hit.result(), fresh)) {
+            falseHits.increment();
+            synchronized (index) {
+                index.remove(hit.id());
+            }
+            // Las demás réplicas lo dejan de servir cuando vence su copia en la L1.
+            if (hit.sharedId() != null && sharedAvailable()) {
+                try {
+                    shared.delete(entryKey(hit.sharedId()));
+                } catch (RuntimeException e) {
+                    sharedFailed(e);
+                }
+            }
+        }
+    }
+
+    public double falseHitRate() {
+        double n = verified.count();
+        return n == 0 ? 0.0 : falseHits.count() / n;
+    }
+
+    public int size() {
+        synchronized (index) {
+            return index.size();
+        }
+    }
+
+    /**
+     * Resultado de {@link #lookup}: un acierto, o el turno (si se obtuvo) de
+     * calcular la respuesta para ese mensaje.
+     */
+    public final class Lookup {
+
+        private final Hit hit;
+        private final String lockKey;
+        private final String token;
+
+        private Lookup(Hit hit, String lockKey, String token) {
+            this.hit = hit;
+            this.lockKey = lockKey;
+            this.token = token;
+        }
+
+        public Hit hit() {
+            return hit;
+        }
+
+        /**
+         * Suelta el turno de cálculo, si lo tenía, para que otra réplica que espera lo tome.
+         */
+        public void release() {
+            if (token == null) {
+                return;
+            }
+            try {
+                shared.unlock(lockKey, token);
+            } catch (RuntimeException e) {
+                sharedFailed(e);
+            }
+        }
+    }
+
+    private Hit findLocal(String scope, int[] signature) {
+        MinHashLshIndex.Match<Cached> match;
+        synchronized (index) {
+            match = index.find(scope, signature, properties.getSimilarityThreshold(), System.nanoTime());
+        }
+        return match == null ? null : served(match.id(), match.value(), match.similarity());
+    }
+
+    /**
+     * Candidatos de la L2: las entradas a las que apuntan las bandas del mensaje.
+     * La mejor que pase el umbral se copia a la L1.
+     */
+    private Hit findShared(String scope, int[] signature) {
+        if (!sharedAvailable()) {
+            return null;
+        }
+        try {
+            Set<String> ids = new LinkedHashSet<>();
+            for (byte[] pointer : shared.getAll(bandKeys(scope, signature))) {
+                if (pointer != null) {
+                    ids.add(new String(pointer, StandardCharsets.UTF_8));
+                }
+            }
+            if (ids.isEmpty()) {
+                return null;
+            }
+            List<String> idList = List.copyOf(ids);
+            List<byte[]> payloads = shared.getAll(idList.stream().map(this::entryKey).toList());
+            String bestId = null;
+            SharedEntryCodec.Entry best = null;
+            double bestSimilarity = 0;
+            for (int i = 0; i < payloads.size(); i++) {
+                if (payloads.get(i) == null) {
+                    continue;
+                }
+                SharedEntryCodec.Entry entry = SharedEntryCodec.decode(payloads.get(i));
+                if (!entry.scope().equals(scope) || entry.signature().length != signature.length) {
+                    continue;
+                }
+                double similarity = MinHashLshIndex.similarity(signature, entry.signature());
+                if (similarity >= properties.getSimilarityThreshold() && similarity > bestSimilarity) {
+                    bestId = idList.get(i);
+                    best = entry;
+                    bestSimilarity = similarity;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            Cached cached = new Cached(bestId, best.result(), best.modelNanos());
+            long id;
+            synchronized (index) {
+                id = index.put(scope, best.signature(), cached, System.nanoTime());
+            }
+            sharedHits.increment();
+            return served(id, cached, bestSimilarity);
+        } catch (RuntimeException e) {
+            sharedFailed(e);
+            return null;
+        }
+    }
+
+    private Hit served(long id, Cached cached, double similarity) {
+        boolean verify = ThreadLocalRandom.current().nextDouble() < properties.getVerifySampleRate();
+        if (!verify) {
+            hits.increment();
+            savedSeconds.increment(cached.modelNanos() / 1e9);
+        }
+        return new Hit(id, cached.sharedId(), copy(cached.result()), similarity, verify);
+    }
+
+    private boolean tryLock(String lockKey, String token) {
+        try {
+            return shared.tryLock(lockKey, token, properties.getStampedeLockTtl());
+        } catch (RuntimeException e) {
+            sharedFailed(e);
+            return false;
+        }
+    }
+
+    private List<String> bandKeys(String scope, int[] signature) {
+        List<String> keys = new ArrayList<>(properties.getBands());
+        for (int band = 0; band < properties.getBands(); band++) {
+            keys.add(properties.getL2KeyPrefix() + "b:" + Long.toHexString(index.bucketKey(scope, signature, band)));
+        }
+        return keys;
+    }
+
+    private String entryKey(String sharedId) {
+        return properties.getL2KeyPrefix() + "e:" + sharedId;
+    }
+
+    private boolean sharedAvailable() {
+        return shared != null && System.nanoTime() - l2RetryAt >= 0;
+    }
+
+    private void sharedFailed(RuntimeException e) {
+        sharedErrors.increment();
+        l2RetryAt = System.nanoTime() + L2_RETRY_AFTER_NANOS;
+        e.printStackTrace();
+    }
+
+    private static boolean sharesProduct(AiPairingResult a, AiPairingResult b) {
+        Set<String> ids = new HashSet<>();
+        addAll(ids, a.getRecommendedWineIds());
+        addAll(ids, a.getRecommendedCheeseIds());
+        return anyIn(ids, b.getRecommendedWineIds()) || anyIn(ids, b.getRecommendedCheeseIds());
+    }
+
+    private static boolean isEmpty(AiPairingResult result) {
+        return (result.getRecommendedWineIds() == null || result.getRecommendedWineIds().isEmpty())
+                && (result.getRecommendedCheeseIds() == null || result.getRecommendedCheeseIds().isEmpty());
+    }
+
+    private static void addAll(Set<String> target, List<String> ids) {
+        if (ids != null) {
+            target.addAll(ids);
+        }
+    }
+
+    private static boolean anyIn(Set<String> ids, List<String> candidates) {
+        return candidates != null && candidates.stream().anyMatch(ids::contains);
+    }
+
+    private static AiPairingResult copy(AiPairingResult source) {
+        AiPairingResult copy = new AiPairingResult();
+        copy.setAnswer(source.getAnswer());
+        copy.setRecommendedWineIds(source.getRecommendedWineIds() != null ? List.copyOf(source.getRecommendedWineIds()) : List.of());
+        copy.setRecommendedCheeseIds(source.getRecommendedCheeseIds() != null ? List.copyOf(source.getRecommendedCheeseIds()) : List.of());
+        return copy;
+    }
+}
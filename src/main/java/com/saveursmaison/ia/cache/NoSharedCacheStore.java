@@ -0,0 +1,46 @@
+package com.saveursmaison.ia.cache;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link SharedCacheStore#none()}: sin segundo nivel. Se comporta como un almacén
+ * siempre vacío (nada que leer, escrituras descartadas, candado nunca disponible),
+ * así quien lo use sin mirar {@link #isEnabled()} sigue funcionando solo con la L1.
+ */
+final class NoSharedCacheStore implements SharedCacheStore {
+
+    static final NoSharedCacheStore INSTANCE = new NoSharedCacheStore();
+
+    private NoSharedCacheStore() {
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public List<byte[]> getAll(List<String> keys) {
+        return Arrays.asList(new byte[keys.size()][]);
+    }
+
+    @Override
+    public void putAll(Map<String, byte[]> values, Duration ttl) {
+    }
+
+    @Override
+    public void delete(String key) {
+    }
+
+    @Override
+    public boolean tryLock(String key, String token, Duration ttl) {
+        return false;
+    }
+
+    @Override
+    public void unlock(String key, String token) {
+    }
+}
@@ -0,0 +1,113 @@
+package com.saveursmaison.ia.cache;
+
+import com.saveursmaison.ia.config.ResponseCacheProperties;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * L2 sobre cualquier servidor que hable el protocolo de Redis (Redis, Valkey,
+ * Dragonfly, Memorystore...), con una sola conexión Lettuce compartida.
+ *
+ * La conexión se abre con el primer uso: si el servidor no está al arrancar la
+ * aplicación levanta igual y la caché trabaja solo con la L1 mientras tanto.
+ */
+public class RedisSharedCacheStore implements SharedCacheStore, DisposableBean {
+
+    private static final String UNLOCK_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end";
+
+    private final RedisClient client;
+    private final Duration timeout;
+    private volatile StatefulRedisConnection<String, byte[]> connection;
+
+    public RedisSharedCacheStore(ResponseCacheProperties properties) {
+        RedisURI uri = RedisURI.create(properties.getRedisUrl());
+        uri.setTimeout(properties.getL2Timeout());
+        this.client = RedisClient.create(uri);
+        this.timeout = properties.getL2Timeout();
+    }
+
+    @Override
+    public List<byte[]> getAll(List<String> keys) {
+        List<KeyValue<String, byte[]>> found = commands().mget(keys.toArray(String[]::new));
+        List<byte[]> result = new ArrayList<>(found.size());
+        for (KeyValue<String, byte[]> kv : found) {
+            result.add(kv.getValueOrElse(null));
+        }
+        return result;
+    }
+
+    /**
+     * Los SET salen en pipeline por la misma conexión y se espera a todos juntos.
+     */
+    @Override
+    public void putAll(Map<String, byte[]> values, Duration ttl) {
+        RedisAsyncCommands<String, byte[]> async = connection().async();
+        SetArgs args = SetArgs.Builder.px(ttl.toMillis());
+        List<RedisFuture<String>> futures = new ArrayList<>(values.size());
+        values.forEach((key, bytes) -> futures.add(async.set(key, bytes, args)));
+        LettuceFutures.awaitAll(timeout, futures.toArray(RedisFuture[]::new));
+    }
+
+    @Override
+    public void delete(String key) {
+        commands().del(key);
+    }
+
+    @Override
+    public boolean tryLock(String key, String token, Duration ttl) {
+        return "OK".equals(commands().set(key, token.getBytes(StandardCharsets.UTF_8),
+                SetArgs.Builder.nx().px(ttl.toMillis())));
+    }
+
+    @Override
+    public void unlock(String key, String token) {
+        commands().eval(UNLOCK_SCRIPT, ScriptOutputType.INTEGER, new String[]{key},
+                token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void destroy() {
+        StatefulRedisConnection<String, byte[]> current = connection;
+        if (current != null) {
+            current.close();
+        }
+        client.shutdown();
+    }
+
+    private RedisCommands<String, byte[]> commands() {
+        return connection().sync();
+    }
+
+    private StatefulRedisConnection<String, byte[]> connection() {
+        StatefulRedisConnection<String, byte[]> current = connection;
+        if (current == null) {
+            synchronized (this) {
+                current = connection;
+                if (current == null) {
+                    current = client.connect(RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE));
+                    connection = current;
+                }
+            }
+        }
+        return current;
+    }
+}
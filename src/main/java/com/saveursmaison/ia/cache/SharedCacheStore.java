@@ -0,0 +1,53 @@
+package com.saveursmaison.ia.cache;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Segundo nivel (L2) de la caché de respuestas, compartido entre réplicas.
+ *
+ * Solo expone lo que hace falta sobre un almacén clave/valor tipo Redis: lecturas
+ * y escrituras en lote con TTL, borrado y un candado con dueño (SET NX PX y
+ * borrado condicionado al token). Las implementaciones pueden lanzar
+ * {@link RuntimeException}; la caché las trata como "L2 no disponible" y sigue
+ * con la L1.
+ *
+ * La implementación se elige al arrancar con {@code response-cache.l2} (ver
+ * {@code ResponseCacheConfig}); {@link #none()} es "sin L2".
+ */
+public interface SharedCacheStore {
+
+    /**
+     * L2 desactivada: la caché trabaja solo con la L1 y no llama a ningún otro método.
+     */
+    static SharedCacheStore none() {
+        return NoSharedCacheStore.INSTANCE;
+    }
+
+    /**
+     * false solo para {@link #none()}.
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Valores en el mismo orden que {@code keys}; {@code null} si no existe o venció.
+     */
+    List<byte[]> getAll(List<String> keys);
+
+    void putAll(Map<String, byte[]> values, Duration ttl);
+
+    void delete(String key);
+
+    /**
+     * Toma el candado si está libre. Vence solo a los {@code ttl} si el dueño no lo suelta.
+     */
+    boolean tryLock(String key, String token, Duration ttl);
+
+    /**
+     * Suelta el candado solo si sigue siendo de {@code token}.
+     */
+    void unlock(String key, String token);
+}
@@ -0,0 +1,110 @@
+package com.saveursmaison.ia.cache;
+
+import com.saveursmaison.ia.dto.AiPairingResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Codificación binaria de una respuesta guardada en la L2.
+ *
+ * Formato (big-endian):
+ * <pre>
+ * byte versión | str scope | int n | n × int (firma) | long modelNanos
+ * | str answer | list recommendedWineIds | list recommendedCheeseIds
+ * str:  int largo (-1 = null) | bytes UTF-8
+ * list: int n | n × str
+ * </pre>
+ */
+final class SharedEntryCodec {
+
+    private static final byte VERSION = 1;
+
+    record Entry(String scope, int[] signature, AiPairingResult result, long modelNanos) {
+    }
+
+    private SharedEntryCodec() {
+    }
+
+    static byte[] encode(String scope, int[] signature, AiPairingResult result, long modelNanos) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + signature.length * 4);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            writeString(out, scope);
+            out.writeInt(signature.length);
+            for (int value : signature) {
+                out.writeInt(value);
+            }
+            out.writeLong(modelNanos);
+            writeString(out, result.getAnswer());
+            writeList(out, result.getRecommendedWineIds());
+            writeList(out, result.getRecommendedCheeseIds());
+        } catch (IOException e) {
+            // ByteArrayOutputStream no lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Entry decode(byte[] payload) {
+        ByteBuffer buf = ByteBuffer.wrap(payload);
+        byte version = buf.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported cache entry encoding version " + version);
+        }
+        String scope = readString(buf);
+        int[] signature = new int[buf.getInt()];
+        for (int i = 0; i < signature.length; i++) {
+            signature[i] = buf.getInt();
+        }
+        long modelNanos = buf.getLong();
+        AiPairingResult result = new AiPairingResult();
+        result.setAnswer(readString(buf));
+        result.setRecommendedWineIds(readList(buf));
+        result.setRecommendedCheeseIds(readList(buf));
+        return new Entry(scope, signature, result, modelNanos);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeList(DataOutputStream out, List<String> values) throws IOException {
+        List<String> list = values != null ? values : List.of();
+        out.writeInt(list.size());
+        for (String value : list) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buf.array(), buf.position(), length, StandardCharsets.UTF_8);
+        buf.position(buf.position() + length);
+        return value;
+    }
+
+    private static List<String> readList(ByteBuffer buf) {
+        int n = buf.getInt();
+        List<String> values = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            values.add(readString(buf));
+        }
+        return List.copyOf(values);
+    }
+}
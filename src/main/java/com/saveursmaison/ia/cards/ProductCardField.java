@@ -0,0 +1,51 @@
+package com.saveursmaison.ia.cards;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Campos que se pueden pedir en las fichas de producto ({@code ?cards=name,price}).
+ * El ID va siempre.
+ */
+public enum ProductCardField {
+    NAME("name"),
+    PRICE("price"),
+    TYPE("type"),
+    MILK_TYPE("milkType"),
+    STYLE("style"),
+    COUNTRY("country"),
+    REGION("region"),
+    IN_STOCK("inStock");
+
+    private final String param;
+
+    ProductCardField(String param) {
+        this.param = param;
+    }
+
+    /**
+     * Lista separada por comas con los nombres del JSON ({@code milkType}, {@code inStock}).
+     *
+     * @throws UnknownCardFieldException si algún nombre no es un campo
+     */
+    public static Set<ProductCardField> parse(String csv) {
+        Set<ProductCardField> fields = EnumSet.noneOf(ProductCardField.class);
+        for (String name : csv.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            fields.add(of(trimmed));
+        }
+        return fields;
+    }
+
+    private static ProductCardField of(String name) {
+        for (ProductCardField field : values()) {
+            if (field.param.equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        throw new UnknownCardFieldException("Unknown product card field '" + name + "'");
+    }
+}
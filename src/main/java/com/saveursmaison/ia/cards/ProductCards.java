@@ -0,0 +1,107 @@
+package com.saveursmaison.ia.cards;
+
+import com.saveursmaison.ia.catalog.CatalogSnapshot;
+import com.saveursmaison.ia.catalog.CatalogStore;
+import com.saveursmaison.ia.catalog.ProductAttribute;
+import com.saveursmaison.ia.catalog.ProductTable;
+import com.saveursmaison.ia.config.ProductCardsProperties;
+import com.saveursmaison.ia.dto.PairingChatResponse;
+import com.saveursmaison.ia.dto.ProductCard;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Completa la respuesta del chat con fichas de los productos recomendados
+ * (nombre, precio, región, stock...) sacadas de la foto del catálogo que ya
+ * tiene el servicio, para que el BFF no tenga que volver a llamar a
+ * catalog-service para pintarlas.
+ *
+ * Es opt-in por petición ({@code ?cards=}) y solo con los campos pedidos. La
+ * respuesta original no se toca (puede estar guardada para reintentos): se
+ * devuelve una copia.
+ */
+@Component
+public class ProductCards {
+
+    private final CatalogStore catalogStore;
+    private final ProductCardsProperties properties;
+    private final Set<ProductCardField> defaultFields;
+
+    public ProductCards(CatalogStore catalogStore, ProductCardsProperties properties) {
+        this.catalogStore = catalogStore;
+        this.properties = properties;
+        this.defaultFields = ProductCardField.parse(properties.getDefaultFields());
+    }
+
+    /**
+     * Campos pedidos en {@code ?cards=}: {@code null} si no se piden fichas (o
+     * están desactivadas), los de {@code product-cards.default-fields} si viene vacío.
+     *
+     * @throws UnknownCardFieldException si se pide un campo que no existe
+     */
+    public Set<ProductCardField> requested(String cardsParam) {
+        if (cardsParam == null || !properties.isEnabled()) {
+            return null;
+        }
+        return cardsParam.isBlank() ? defaultFields : ProductCardField.parse(cardsParam);
+    }
+
+    /**
+     * Copia de la respuesta con las fichas; sin campos pedidos devuelve la misma respuesta.
+     */
+    public PairingChatResponse hydrate(PairingChatResponse response, Set<ProductCardField> fields) {
+        if (fields == null || response == null) {
+            return response;
+        }
+        // La foto ya está en memoria (el chat la acaba de usar): nunca se espera a catalog-service
+        return hydrate(response, fields, catalogStore.current(Duration.ZERO));
+    }
+
+    static PairingChatResponse hydrate(PairingChatResponse response,
+                                       Set<ProductCardField> fields,
+                                       CatalogSnapshot catalog) {
+        PairingChatResponse hydrated = new PairingChatResponse(
+                response.getAnswer(), response.getRecommendedWineIds(), response.getRecommendedCheeseIds());
+        hydrated.setSessionId(response.getSessionId());
+        hydrated.setFallback(response.isFallback());
+        hydrated.setWineCards(cards(response.getRecommendedWineIds(), catalog.wines(), fields));
+        hydrated.setCheeseCards(cards(response.getRecommendedCheeseIds(), catalog.cheeses(), fields));
+        return hydrated;
+    }
+
+    private static List<ProductCard> cards(List<String> ids, ProductTable table, Set<ProductCardField> fields) {
+        if (ids == null) {
+            return List.of();
+        }
+        List<ProductCard> cards = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            int row = table.indexOf(id);
+            cards.add(row < 0 ? new ProductCard(id, null, null, null, null, null, null, null, null)
+                    : card(table, row, fields));
+        }
+        return cards;
+    }
+
+    private static ProductCard card(ProductTable table, int row, Set<ProductCardField> fields) {
+        return new ProductCard(
+                table.id(row),
+                fields.contains(ProductCardField.NAME) ? table.name(row) : null,
+                fields.contains(ProductCardField.PRICE) && table.hasPrice(row) ? table.price(row) : null,
+                attribute(table, row, fields, ProductCardField.TYPE, ProductAttribute.TYPE),
+                attribute(table, row, fields, ProductCardField.MILK_TYPE, ProductAttribute.MILK_TYPE),
+                attribute(table, row, fields, ProductCardField.STYLE, ProductAttribute.STYLE),
+                attribute(table, row, fields, ProductCardField.COUNTRY, ProductAttribute.COUNTRY),
+                attribute(table, row, fields, ProductCardField.REGION, ProductAttribute.REGION),
+                fields.contains(ProductCardField.IN_STOCK) ? table.inStock(row) : null
+        );
+    }
+
+    private static String attribute(ProductTable table, int row, Set<ProductCardField> fields,
+                                    ProductCardField field, ProductAttribute attribute) {
+        return fields.contains(field) ? table.attribute(attribute, row) : null;
+    }
+}
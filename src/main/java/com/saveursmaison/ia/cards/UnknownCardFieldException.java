@@ -0,0 +1,11 @@
+package com.saveursmaison.ia.cards;
+
+/**
+ * Se pidió un campo de ficha que no existe. El controlador la traduce a 400.
+ */
+public class UnknownCardFieldException extends RuntimeException {
+
+    public UnknownCardFieldException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -0,0 +1,63 @@
+package com.saveursmaison.ia.catalog;
+
+import com.saveursmaison.ia.dto.CheeseForAiDto;
+import com.saveursmaison.ia.dto.WineForAiDto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Foto inmutable del catálogo que usa la IA (vinos + quesos).
+ *
+ * La versión es una huella del contenido: dos réplicas con el mismo catálogo
+ * obtienen la misma versión, y solo cambia cuando cambia algún producto.
+ */
+public final class CatalogSnapshot {
+
+    private static final CatalogSnapshot EMPTY =
+            new CatalogSnapshot(ProductTable.empty(), ProductTable.empty(), Instant.EPOCH);
+
+    private final ProductTable wines;
+    private final ProductTable cheeses;
+    private final long version;
+    private final Instant fetchedAt;
+
+    private CatalogSnapshot(ProductTable wines, ProductTable cheeses, Instant fetchedAt) {
+        this.wines = wines;
+        this.cheeses = cheeses;
+        this.version = 31 * wines.fingerprint() + cheeses.fingerprint();
+        this.fetchedAt = fetchedAt;
+    }
+
+    public static CatalogSnapshot empty() {
+        return EMPTY;
+    }
+
+    public static CatalogSnapshot of(List<WineForAiDto> wines, List<CheeseForAiDto> cheeses) {
+        return of(ProductTable.ofWines(wines), ProductTable.ofCheeses(cheeses), Instant.now());
+    }
+
+    public static CatalogSnapshot of(ProductTable wines, ProductTable cheeses, Instant fetchedAt) {
+        return new CatalogSnapshot(wines, cheeses, fetchedAt);
+    }
+
+    public ProductTable wines() {
+        return wines;
+    }
+
+    public ProductTable cheeses() {
+        return cheeses;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public Instant fetchedAt() {
+        return fetchedAt;
+    }
+
+    public boolean isEmpty() {
+        return wines.isEmpty() && cheeses.isEmpty();
+    }
+}
@@ -0,0 +1,178 @@
+package com.saveursmaison.ia.catalog;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Guarda y lee la última foto buena del catálogo en un archivo binario compacto.
+ *
+ * Formato (big-endian):
+ * <pre>
+ * int magic "CAT1" | long fetchedAt (epoch ms) | tabla vinos | tabla quesos
+ * tabla: int n | n × str id | n × str name | n × double price
+ *        | int k | k × long (bits de stock)
+ *        | byte columnas | por columna: byte atributo, int d, d × str, n × char código
+ * str:   int largo (-1 = null) | bytes UTF-8
+ * </pre>
+ * La escritura va a un temporal y se mueve de forma atómica; la lectura usa mmap.
+ */
+public final class CatalogSnapshotFile {
+
+    private static final int MAGIC = 0x43415431; // "CAT1"
+
+    private final Path path;
+
+    public CatalogSnapshotFile(Path path) {
+        this.path = path;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public void write(CatalogSnapshot snapshot) throws IOException {
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir != null) {
+            Files.createDirectories(dir);
+        }
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeLong(snapshot.fetchedAt().toEpochMilli());
+                writeTable(out, snapshot.wines());
+                writeTable(out, snapshot.cheeses());
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * @return la foto guardada, o {@code null} si no hay archivo
+     * @throws IOException si el archivo existe pero está corrupto o no se puede leer
+     */
+    public CatalogSnapshot read() throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.getInt() != MAGIC) {
+                throw new IOException("Not a catalog snapshot file: " + path);
+            }
+            Instant fetchedAt = Instant.ofEpochMilli(buf.getLong());
+            ProductTable wines = readTable(buf);
+            ProductTable cheeses = readTable(buf);
+            return CatalogSnapshot.of(wines, cheeses, fetchedAt);
+        } catch (RuntimeException e) {
+            // BufferUnderflowException, IllegalArgumentException... = archivo truncado o corrupto
+            throw new IOException("Corrupt catalog snapshot file: " + path, e);
+        }
+    }
+
+    private static void writeTable(DataOutputStream out, ProductTable table) throws IOException {
+        int n = table.size();
+        out.writeInt(n);
+        for (String id : table.rawIds()) {
+            writeString(out, id);
+        }
+        for (String name : table.rawNames()) {
+            writeString(out, name);
+        }
+        for (double price : table.rawPrices()) {
+            out.writeDouble(price);
+        }
+        long[] stock = table.rawInStock().toLongArray();
+        out.writeInt(stock.length);
+        for (long bits : stock) {
+            out.writeLong(bits);
+        }
+
+        Map<ProductAttribute, DictionaryColumn> columns = table.columns();
+        out.writeByte(columns.size());
+        for (Map.Entry<ProductAttribute, DictionaryColumn> e : columns.entrySet()) {
+            out.writeByte(e.getKey().ordinal());
+            String[] dictionary = e.getValue().dictionary();
+            out.writeInt(dictionary.length);
+            for (String value : dictionary) {
+                writeString(out, value);
+            }
+            for (char code : e.getValue().codes()) {
+                out.writeChar(code);
+            }
+        }
+    }
+
+    private static ProductTable readTable(ByteBuffer buf) {
+        int n = buf.getInt();
+        String[] ids = new String[n];
+        String[] names = new String[n];
+        double[] prices = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = readString(buf).intern();
+        }
+        for (int i = 0; i < n; i++) {
+            names[i] = readString(buf);
+        }
+        for (int i = 0; i < n; i++) {
+            prices[i] = buf.getDouble();
+        }
+        long[] stock = new long[buf.getInt()];
+        for (int i = 0; i < stock.length; i++) {
+            stock[i] = buf.getLong();
+        }
+
+        int columnCount = buf.get();
+        Map<ProductAttribute, DictionaryColumn> columns = new EnumMap<>(ProductAttribute.class);
+        for (int c = 0; c < columnCount; c++) {
+            ProductAttribute attribute = ProductAttribute.values()[buf.get()];
+            String[] dictionary = new String[buf.getInt()];
+            for (int i = 0; i < dictionary.length; i++) {
+                String value = readString(buf);
+                dictionary[i] = value != null ? value.intern() : null;
+            }
+            char[] codes = new char[n];
+            buf.asCharBuffer().get(codes);
+            buf.position(buf.position() + 2 * n);
+            columns.put(attribute, DictionaryColumn.of(dictionary, codes));
+        }
+        return ProductTable.restore(ids, names, prices, BitSet.valueOf(stock), columns);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
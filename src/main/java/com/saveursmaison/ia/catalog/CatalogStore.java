@@ -0,0 +1,193 @@
+package com.saveursmaison.ia.catalog;
+
+import com.saveursmaison.ia.client.CatalogClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Mantiene la foto actual del catálogo y la refresca cuando vence su TTL.
+ *
+ * - Los lectores solo leen una referencia volátil; el refresco corre en
+ *   segundo plano y, mientras tanto, se sigue sirviendo la foto anterior.
+ * - Cada foto buena se guarda en disco ({@code catalog.snapshot.file}); al
+ *   arrancar se carga de ahí, así un pod reiniciado sirve enseguida aunque
+ *   catalog-service no responda.
+ * - Si catalog-service falla se mantiene la última foto buena en vez de
+ *   mandar un catálogo vacío al modelo. Su antigüedad se publica como métrica.
+ */
+@Component
+public class CatalogStore {
+
+    private final CatalogClient catalogClient;
+    private final Duration ttl;
+    private final Duration fetchTimeout;
+    private final CatalogSnapshotFile snapshotFile;
+    private final Counter refreshFailures;
+
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "catalog-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile CatalogSnapshot current;
+
+    public CatalogStore(CatalogClient catalogClient,
+                        @Value("${catalog.snapshot.ttl:30s}") Duration ttl,
+                        @Value("${catalog.timeout:5s}") Duration fetchTimeout,
+                        @Value("${catalog.snapshot.file:}") String snapshotFile,
+                        MeterRegistry meterRegistry) {
+        this.catalogClient = catalogClient;
+        this.ttl = ttl;
+        this.fetchTimeout = fetchTimeout;
+        this.snapshotFile = snapshotFile.isBlank() ? null : new CatalogSnapshotFile(Path.of(snapshotFile));
+        this.current = loadFromDisk();
+
+        this.refreshFailures = Counter.builder("catalog.refresh.failures")
+                .description("Refrescos del catálogo que fallaron")
+                .register(meterRegistry);
+        Gauge.builder("catalog.snapshot.age.seconds", this, CatalogStore::ageSeconds)
+                .description("Antigüedad de la foto del catálogo que se está sirviendo")
+                .register(meterRegistry);
+        Gauge.builder("catalog.snapshot.stale", this, s -> s.isServingStale() ? 1 : 0)
+                .description("1 si se sirve una foto vencida porque catalog-service no responde")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Devuelve la foto vigente. Solo bloquea cuando no hay ninguna (ni en memoria ni en disco).
+     */
+    public CatalogSnapshot current() {
+        return current(fetchTimeout);
+    }
+
+    /**
+     * Igual que {@link #current()}, pero si hay que bloquear se espera como mucho
+     * {@code maxWait} (incluida la llamada a catalog-service); si no alcanza, catálogo vacío.
+     */
+    public CatalogSnapshot current(Duration maxWait) {
+        CatalogSnapshot snapshot = current;
+        if (snapshot == null) {
+            long deadline = System.nanoTime() + maxWait.toNanos();
+            try {
+                if (!refreshLock.tryLock(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                    return CatalogSnapshot.empty();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return CatalogSnapshot.empty();
+            }
+            try {
+                if (current == null) {
+                    refresh(deadline);
+                }
+            } finally {
+                refreshLock.unlock();
+            }
+            return current != null ? current : CatalogSnapshot.empty();
+        }
+        if (isStale(snapshot) && refreshLock.tryLock()) {
+            try {
+                if (isStale(current)) {
+                    refresher.execute(this::refreshInBackground);
+                }
+            } finally {
+                refreshLock.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    private void refreshInBackground() {
+        refreshLock.lock();
+        try {
+            if (isStale(current)) {
+                refresh(System.nanoTime() + fetchTimeout.toNanos());
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Trae el catálogo antes de {@code deadlineNanos}; si falla, deja la foto anterior tal cual.
+     */
+    private void refresh(long deadlineNanos) {
+        CatalogSnapshot fresh;
+        try {
+            fresh = CatalogSnapshot.of(
+                    catalogClient.getWinesForAi(remainingUntil(deadlineNanos)),
+                    catalogClient.getCheesesForAi(remainingUntil(deadlineNanos))
+            );
+        } catch (Exception ex) {
+            refreshFailures.increment();
+            ex.printStackTrace();
+            return;
+        }
+        current = fresh;
+        saveToDisk(fresh);
+    }
+
+    private static Duration remainingUntil(long deadlineNanos) {
+        return Duration.ofNanos(Math.max(1, deadlineNanos - System.nanoTime()));
+    }
+
+    private CatalogSnapshot loadFromDisk() {
+        if (snapshotFile == null) {
+            return null;
+        }
+        try {
+            CatalogSnapshot snapshot = snapshotFile.read();
+            if (snapshot != null) {
+                System.out.printf("Catalog snapshot loaded from %s (%d wines, %d cheeses, fetched %s)%n",
+                        snapshotFile.path(), snapshot.wines().size(), snapshot.cheeses().size(), snapshot.fetchedAt());
+            }
+            return snapshot;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void saveToDisk(CatalogSnapshot snapshot) {
+        if (snapshotFile == null) {
+            return;
+        }
+        try {
+            snapshotFile.write(snapshot);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private boolean isStale(CatalogSnapshot snapshot) {
+        return snapshot.fetchedAt().plus(ttl).isBefore(Instant.now());
+    }
+
+    private boolean isServingStale() {
+        CatalogSnapshot snapshot = current;
+        // Margen de un TTL extra: el refresco normal tarda un poco en llegar
+        return snapshot != null && snapshot.fetchedAt().plus(ttl.multipliedBy(2)).isBefore(Instant.now());
+    }
+
+    private double ageSeconds() {
+        CatalogSnapshot snapshot = current;
+        if (snapshot == null) {
+            return Double.NaN;
+        }
+        return Duration.between(snapshot.fetchedAt(), Instant.now()).toMillis() / 1000.0;
+    }
+}
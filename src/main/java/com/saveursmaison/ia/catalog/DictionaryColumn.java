@@ -0,0 +1,116 @@
+package com.saveursmaison.ia.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columna de atributos codificada por diccionario.
+ *
+ * Cada valor distinto (tipo, estilo, país, región, leche...) se guarda una
+ * sola vez en {@code dictionary}; cada fila solo guarda un código de 16 bits.
+ * El código 0 se reserva para {@code null}.
+ */
+public final class DictionaryColumn {
+
+    private final String[] dictionary;
+    private final char[] codes;
+
+    private DictionaryColumn(String[] dictionary, char[] codes) {
+        this.dictionary = dictionary;
+        this.codes = codes;
+    }
+
+    public String get(int row) {
+        return dictionary[codes[row]];
+    }
+
+    public int code(int row) {
+        return codes[row];
+    }
+
+    /**
+     * Código del valor en el diccionario, o -1 si no existe en esta columna.
+     */
+    public int codeOf(String value) {
+        if (value == null) {
+            return 0;
+        }
+        for (int i = 1; i < dictionary.length; i++) {
+            if (dictionary[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public int distinctValues() {
+        return dictionary.length - 1;
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * Reconstruye una columna a partir de su diccionario (con null en la posición 0) y sus códigos.
+     */
+    static DictionaryColumn of(String[] dictionary, char[] codes) {
+        return new DictionaryColumn(dictionary, codes);
+    }
+
+    String[] dictionary() {
+        return dictionary;
+    }
+
+    char[] codes() {
+        return codes;
+    }
+
+    static Builder builder(int expectedRows) {
+        return new Builder(expectedRows);
+    }
+
+    static final class Builder {
+
+        private final Map<String, Character> codeByValue = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private char[] codes;
+        private int size;
+
+        private Builder(int expectedRows) {
+            this.codes = new char[Math.max(expectedRows, 1)];
+            values.add(null);
+        }
+
+        Builder add(String value) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, codes.length * 2);
+            }
+            codes[size++] = value == null ? 0 : codeFor(value);
+            return this;
+        }
+
+        private char codeFor(String value) {
+            Character code = codeByValue.get(value);
+            if (code == null) {
+                if (values.size() > Character.MAX_VALUE) {
+                    throw new IllegalStateException("Demasiados valores distintos para una columna de diccionario");
+                }
+                code = (char) values.size();
+                values.add(value.intern());
+                codeByValue.put(value, code);
+            }
+            return code;
+        }
+
+        DictionaryColumn build() {
+            return new DictionaryColumn(
+                    values.toArray(new String[0]),
+                    Arrays.copyOf(codes, size)
+            );
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.saveursmaison.ia.catalog;
+
+/**
+ * Atributos categóricos de producto que se guardan como columnas de diccionario.
+ */
+public enum ProductAttribute {
+    TYPE,
+    MILK_TYPE,
+    STYLE,
+    COUNTRY,
+    REGION
+}
@@ -0,0 +1,261 @@
+package com.saveursmaison.ia.catalog;
+
+import com.saveursmaison.ia.dto.CheeseForAiDto;
+import com.saveursmaison.ia.dto.WineForAiDto;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Tabla columnar de solo lectura para un tipo de producto (vinos o quesos).
+ *
+ * En vez de una lista de DTOs mutables con {@code Double} y strings repetidos,
+ * cada campo es un arreglo: IDs internados, precios primitivos (NaN = sin precio)
+ * y atributos categóricos codificados por diccionario.
+ * Una vez construida no cambia, así que se puede compartir entre hilos sin copias.
+ */
+public final class ProductTable {
+
+    private static final ProductTable EMPTY = new ProductTable(
+            new String[0], new String[0], new double[0], new BitSet(),
+            new EnumMap<>(ProductAttribute.class), new int[0]
+    );
+
+    private final String[] ids;
+    private final String[] names;
+    private final double[] prices;
+    private final BitSet inStock;
+    private final Map<ProductAttribute, DictionaryColumn> attributes;
+
+    /**
+     * Filas ordenadas por ID, para búsquedas binarias sin un HashMap por producto.
+     */
+    private final int[] rowsById;
+
+    private ProductTable(String[] ids,
+                         String[] names,
+                         double[] prices,
+                         BitSet inStock,
+                         Map<ProductAttribute, DictionaryColumn> attributes,
+                         int[] rowsById) {
+        this.ids = ids;
+        this.names = names;
+        this.prices = prices;
+        this.inStock = inStock;
+        this.attributes = attributes;
+        this.rowsById = rowsById;
+    }
+
+    public static ProductTable empty() {
+        return EMPTY;
+    }
+
+    public static ProductTable ofWines(List<WineForAiDto> wines) {
+        return build(wines,
+                WineForAiDto::getId,
+                WineForAiDto::getName,
+                WineForAiDto::getPrice,
+                WineForAiDto::isInStock,
+                Map.of(
+                        ProductAttribute.TYPE, WineForAiDto::getType,
+                        ProductAttribute.STYLE, WineForAiDto::getStyle,
+                        ProductAttribute.COUNTRY, WineForAiDto::getCountry,
+                        ProductAttribute.REGION, WineForAiDto::getRegion
+                ));
+    }
+
+    public static ProductTable ofCheeses(List<CheeseForAiDto> cheeses) {
+        return build(cheeses,
+                CheeseForAiDto::getId,
+                CheeseForAiDto::getName,
+                CheeseForAiDto::getPrice,
+                CheeseForAiDto::isInStock,
+                Map.of(
+                        ProductAttribute.MILK_TYPE, CheeseForAiDto::getMilkType,
+                        ProductAttribute.STYLE, CheeseForAiDto::getStyle,
+                        ProductAttribute.COUNTRY, CheeseForAiDto::getCountry,
+                        ProductAttribute.REGION, CheeseForAiDto::getRegion
+                ));
+    }
+
+    private static <T> ProductTable build(List<T> products,
+                                          Function<T, String> id,
+                                          Function<T, String> name,
+                                          Function<T, Double> price,
+                                          Function<T, Boolean> stock,
+                                          Map<ProductAttribute, Function<T, String>> attributeGetters) {
+        if (products == null || products.isEmpty()) {
+            return EMPTY;
+        }
+
+        // Los productos sin ID no se pueden recomendar, así que no entran a la tabla
+        List<T> rows = products.stream()
+                .filter(p -> p != null && id.apply(p) != null)
+                .toList();
+
+        int n = rows.size();
+        String[] ids = new String[n];
+        String[] names = new String[n];
+        double[] prices = new double[n];
+        BitSet inStock = new BitSet(n);
+
+        Map<ProductAttribute, DictionaryColumn.Builder> builders = new EnumMap<>(ProductAttribute.class);
+        attributeGetters.keySet().forEach(a -> builders.put(a, DictionaryColumn.builder(n)));
+
+        for (int i = 0; i < n; i++) {
+            T p = rows.get(i);
+            ids[i] = id.apply(p).intern();
+            names[i] = name.apply(p);
+            Double pr = price.apply(p);
+            prices[i] = pr != null ? pr : Double.NaN;
+            if (Boolean.TRUE.equals(stock.apply(p))) {
+                inStock.set(i);
+            }
+            for (Map.Entry<ProductAttribute, DictionaryColumn.Builder> e : builders.entrySet()) {
+                e.getValue().add(attributeGetters.get(e.getKey()).apply(p));
+            }
+        }
+
+        Map<ProductAttribute, DictionaryColumn> attributes = new EnumMap<>(ProductAttribute.class);
+        builders.forEach((a, b) -> attributes.put(a, b.build()));
+
+        return restore(ids, names, prices, inStock, attributes);
+    }
+
+    /**
+     * Arma la tabla a partir de columnas ya construidas (p.ej. leídas de disco).
+     */
+    static ProductTable restore(String[] ids,
+                                String[] names,
+                                double[] prices,
+                                BitSet inStock,
+                                Map<ProductAttribute, DictionaryColumn> attributes) {
+        if (ids.length == 0) {
+            return EMPTY;
+        }
+        int[] rowsById = IntStream.range(0, ids.length)
+                .boxed()
+                .sorted((a, b) -> ids[a].compareTo(ids[b]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        Map<ProductAttribute, DictionaryColumn> columns = new EnumMap<>(ProductAttribute.class);
+        columns.putAll(attributes);
+        return new ProductTable(ids, names, prices, inStock,
+                Collections.unmodifiableMap(columns), rowsById);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    public String id(int row) {
+        return ids[row];
+    }
+
+    /**
+     * Nombre del producto; si no tiene, se usa el ID (igual que en el prompt).
+     */
+    public String name(int row) {
+        return names[row] != null ? names[row] : ids[row];
+    }
+
+    public boolean hasPrice(int row) {
+        return !Double.isNaN(prices[row]);
+    }
+
+    /**
+     * Precio primitivo; 0.0 cuando el catálogo no lo informa.
+     */
+    public double price(int row) {
+        double p = prices[row];
+        return Double.isNaN(p) ? 0.0 : p;
+    }
+
+    public boolean inStock(int row) {
+        return inStock.get(row);
+    }
+
+    public String attribute(ProductAttribute attribute, int row) {
+        DictionaryColumn column = attributes.get(attribute);
+        return column != null ? column.get(row) : null;
+    }
+
+    public DictionaryColumn column(ProductAttribute attribute) {
+        return attributes.get(attribute);
+    }
+
+    /**
+     * Fila del producto con ese ID, o -1 si no está en el catálogo.
+     */
+    public int indexOf(String id) {
+        if (id == null) {
+            return -1;
+        }
+        int lo = 0;
+        int hi = rowsById.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = ids[rowsById[mid]].compareTo(id);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return rowsById[mid];
+            }
+        }
+        return -1;
+    }
+
+    public boolean contains(String id) {
+        return indexOf(id) >= 0;
+    }
+
+    String[] rawIds() {
+        return ids;
+    }
+
+    String[] rawNames() {
+        return names;
+    }
+
+    double[] rawPrices() {
+        return prices;
+    }
+
+    BitSet rawInStock() {
+        return inStock;
+    }
+
+    Map<ProductAttribute, DictionaryColumn> columns() {
+        return attributes;
+    }
+
+    /**
+     * Huella de contenido estable (independiente del proceso) para versionar el catálogo.
+     */
+    long fingerprint() {
+        long h = 1125899906842597L;
+        for (int i = 0; i < ids.length; i++) {
+            h = 31 * h + ids[i].hashCode();
+            h = 31 * h + (names[i] != null ? names[i].hashCode() : 0);
+            h = 31 * h + Double.hashCode(prices[i]);
+            h = 31 * h + (inStock.get(i) ? 1 : 0);
+            for (ProductAttribute a : ProductAttribute.values()) {
+                String v = attribute(a, i);
+                h = 31 * h + (v != null ? v.hashCode() : 0);
+            }
+        }
+        return h;
+    }
+}
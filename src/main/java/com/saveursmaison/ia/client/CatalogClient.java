@@ -5,12 +5,17 @@ import com.saveursmaison.ia.dto.CheeseForAiDto;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * Cliente de catalog-service. Si el servicio falla o no responde dentro de
+ * {@code timeout} se lanza la excepción: CatalogStore decide qué hacer
+ * (seguir con la última foto buena).
+ */
 @Component
 public class CatalogClient {
 
@@ -20,7 +25,7 @@ public class CatalogClient {
         this.catalogWebClient = catalogWebClient;
     }
 
-    public List<WineForAiDto> getWinesForAi() {
+    public List<WineForAiDto> getWinesForAi(Duration timeout) {
         return catalogWebClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/catalog/ai/wines")
@@ -28,16 +33,13 @@ public class CatalogClient {
                         .build())
                 .retrieve()
                 .bodyToMono(WineForAiDto[].class)
-                .onErrorResume(ex -> {
-                    ex.printStackTrace();
-                    return Mono.just(new WineForAiDto[0]);
-                })
                 .map(Arrays::asList)
+                .timeout(timeout)
                 .blockOptional()
                 .orElse(Collections.emptyList());
     }
 
-    public List<CheeseForAiDto> getCheesesForAi() {
+    public List<CheeseForAiDto> getCheesesForAi(Duration timeout) {
         return catalogWebClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path("/catalog/ai/cheeses")
@@ -45,11 +47,8 @@ public class CatalogClient {
                         .build())
                 .retrieve()
                 .bodyToMono(CheeseForAiDto[].class)
-                .onErrorResume(ex -> {
-                    ex.printStackTrace();
-                    return Mono.just(new CheeseForAiDto[0]);
-                })
                 .map(Arrays::asList)
+                .timeout(timeout)
                 .blockOptional()
                 .orElse(Collections.emptyList());
     }
@@ -0,0 +1,117 @@
+package com.saveursmaison.ia.client;
+
+import com.saveursmaison.ia.prompt.Utf8Prompt;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escribe el JSON de /chat/completions directo en un {@link DataBuffer},
+ * copiando los bytes UTF-8 del prompt y escapando sobre la marcha. No pasa
+ * por un String intermedio ni por Jackson.
+ */
+final class ChatCompletionBodyWriter {
+
+    private static final byte[] MODEL = ascii("{\"model\":\"");
+    private static final byte[] MESSAGES = ascii("\",\"messages\":[");
+    private static final byte[] ROLE = ascii("{\"role\":\"");
+    private static final byte[] CONTENT = ascii("\",\"content\":\"");
+    private static final byte[] MESSAGE_END = ascii("\"}");
+    private static final byte[] MAX_TOKENS = ascii("],\"max_tokens\":");
+    private static final byte[] TEMPERATURE = ascii(",\"temperature\":");
+
+    private static final byte[] ESCAPED_QUOTE = ascii("\\\"");
+    private static final byte[] ESCAPED_BACKSLASH = ascii("\\\\");
+    private static final byte[] ESCAPED_NEWLINE = ascii("\\n");
+    private static final byte[] ESCAPED_RETURN = ascii("\\r");
+    private static final byte[] ESCAPED_TAB = ascii("\\t");
+    private static final byte[] UNICODE_ESCAPE = ascii("\\u00");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    /**
+     * Bytes fijos del cuerpo aparte del contenido, con margen para escapes.
+     */
+    private static final int OVERHEAD = 256;
+
+    private ChatCompletionBodyWriter() {
+    }
+
+    /**
+     * Tamaño inicial del buffer; si hay muchos escapes el buffer crece solo.
+     */
+    static int estimateSize(ChatCompletionRequest request) {
+        int size = OVERHEAD + request.model().length();
+        for (ChatCompletionRequest.Message message : request.messages()) {
+            size += 32 + message.content().byteLength();
+        }
+        return size;
+    }
+
+    static void write(ChatCompletionRequest request, DataBuffer out) {
+        out.write(MODEL);
+        writeEscaped(out, request.model());
+        out.write(MESSAGES);
+        boolean first = true;
+        for (ChatCompletionRequest.Message message : request.messages()) {
+            if (!first) {
+                out.write((byte) ',');
+            }
+            first = false;
+            out.write(ROLE);
+            writeEscaped(out, message.role());
+            out.write(CONTENT);
+            message.content().writeTo((array, offset, length) -> writeEscaped(out, array, offset, length));
+            out.write(MESSAGE_END);
+        }
+        if (request.max_tokens() != null) {
+            out.write(MAX_TOKENS);
+            out.write(ascii(request.max_tokens().toString()));
+        } else {
+            out.write((byte) ']');
+        }
+        if (request.temperature() != null) {
+            out.write(TEMPERATURE);
+            out.write(ascii(request.temperature().toString()));
+        }
+        out.write((byte) '}');
+    }
+
+    private static void writeEscaped(DataBuffer out, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeEscaped(out, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Copia por tramos los bytes que no necesitan escape. Los bytes >= 0x80
+     * (multibyte UTF-8) pasan tal cual, JSON los acepta sin escapar.
+     */
+    private static void writeEscaped(DataBuffer out, byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int runStart = offset;
+        for (int i = offset; i < end; i++) {
+            int b = bytes[i] & 0xFF;
+            if (b >= 0x20 && b != '"' && b != '\\') {
+                continue;
+            }
+            if (i > runStart) {
+                out.write(bytes, runStart, i - runStart);
+            }
+            switch (b) {
+                case '"' -> out.write(ESCAPED_QUOTE);
+                case '\\' -> out.write(ESCAPED_BACKSLASH);
+                case '\n' -> out.write(ESCAPED_NEWLINE);
+                case '\r' -> out.write(ESCAPED_RETURN);
+                case '\t' -> out.write(ESCAPED_TAB);
+                default -> out.write(UNICODE_ESCAPE).write(HEX[b >> 4]).write(HEX[b & 0xF]);
+            }
+            runStart = i + 1;
+        }
+        if (end > runStart) {
+            out.write(bytes, runStart, end - runStart);
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
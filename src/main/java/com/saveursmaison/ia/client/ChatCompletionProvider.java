@@ -0,0 +1,22 @@
+package com.saveursmaison.ia.client;
+
+import com.saveursmaison.ia.deadline.Deadline;
+
+import java.time.Duration;
+
+/**
+ * Proveedor de chat completions (OpenAI u otro compatible, o un stub local).
+ *
+ * Las implementaciones lanzan excepción si la llamada falla, para que el
+ * router pueda contar el error y probar con otro tier. Deben cortar la
+ * llamada al agotar {@code timeout} o si se cancela el plazo.
+ */
+public interface ChatCompletionProvider {
+
+    /**
+     * Nombre con el que los tiers de {@code openai.tiers} referencian al proveedor.
+     */
+    String name();
+
+    ChatCompletionResponse complete(ChatCompletionRequest request, Deadline deadline, Duration timeout);
+}
@@ -1,5 +1,7 @@
 package com.saveursmaison.ia.client;
 
+import com.saveursmaison.ia.prompt.Utf8Prompt;
+
 import java.util.List;
 
 public record ChatCompletionRequest(
@@ -8,6 +10,6 @@ public record ChatCompletionRequest(
         Integer max_tokens,
         Double temperature
 ) {
-    public record Message(String role, String content) {
+    public record Message(String role, Utf8Prompt content) {
     }
 }
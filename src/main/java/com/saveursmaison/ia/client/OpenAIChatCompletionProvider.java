@@ -0,0 +1,100 @@
+package com.saveursmaison.ia.client;
+
+import com.saveursmaison.ia.deadline.Deadline;
+import com.saveursmaison.ia.deadline.DeadlineExceededException;
+import com.saveursmaison.ia.scheduling.AdaptiveConcurrencyLimit;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Llama a /chat/completions de OpenAI usando el WebClient configurado.
+ *
+ * El cuerpo se escribe con {@link ChatCompletionBodyWriter} en un buffer del
+ * propio request (pooled en Reactor Netty), que Netty libera al enviarlo.
+ * Cada llamada alimenta a {@link AdaptiveConcurrencyLimit}: latencia, y los
+ * 429/503 como señal de saturación.
+ */
+@Component
+public class OpenAIChatCompletionProvider implements ChatCompletionProvider {
+
+    public static final String NAME = "openai";
+
+    private final WebClient openAIClient;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+
+    public OpenAIChatCompletionProvider(@Qualifier("openAIWebClient") WebClient openAIWebClient,
+                                        AdaptiveConcurrencyLimit concurrencyLimit) {
+        this.openAIClient = openAIWebClient;
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public ChatCompletionResponse complete(ChatCompletionRequest request, Deadline deadline, Duration timeout) {
+        long start = concurrencyLimit.onStart();
+        AdaptiveConcurrencyLimit.Outcome outcome = AdaptiveConcurrencyLimit.Outcome.IGNORED;
+        try {
+            // Al cancelar, Reactor Netty cierra la conexión y OpenAI deja de generar (y de cobrar)
+            ChatCompletionResponse response = deadline.bound(openAIClient.post()
+                            .uri("/chat/completions")
+                            .body(bodyOf(request))
+                            .retrieve()
+                            .bodyToMono(ChatCompletionResponse.class), timeout)
+                    .block();
+            outcome = AdaptiveConcurrencyLimit.Outcome.SUCCESS;
+            return response;
+        } catch (RuntimeException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            concurrencyLimit.onComplete(start, outcome);
+        }
+    }
+
+    /**
+     * 429/503 = OpenAI saturado; un timeout cuenta como latencia (lo que tardó es
+     * una cota inferior); el resto (cancelación, 4xx, cuerpo inválido) no dice nada de la carga.
+     */
+    private static AdaptiveConcurrencyLimit.Outcome outcomeOf(RuntimeException e) {
+        if (e instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == HttpStatus.TOO_MANY_REQUESTS.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value()
+                    ? AdaptiveConcurrencyLimit.Outcome.DROPPED
+                    : AdaptiveConcurrencyLimit.Outcome.IGNORED;
+        }
+        if (!(e instanceof DeadlineExceededException) && e.getCause() instanceof TimeoutException) {
+            return AdaptiveConcurrencyLimit.Outcome.SUCCESS;
+        }
+        return AdaptiveConcurrencyLimit.Outcome.IGNORED;
+    }
+
+    private static BodyInserter<ChatCompletionRequest, ClientHttpRequest> bodyOf(ChatCompletionRequest request) {
+        return (outputMessage, context) -> {
+            DataBuffer buffer = outputMessage.bufferFactory()
+                    .allocateBuffer(ChatCompletionBodyWriter.estimateSize(request));
+            try {
+                ChatCompletionBodyWriter.write(request, buffer);
+            } catch (RuntimeException e) {
+                DataBufferUtils.release(buffer);
+                throw e;
+            }
+            outputMessage.getHeaders().setContentLength(buffer.readableByteCount());
+            return outputMessage.writeWith(Mono.just(buffer));
+        };
+    }
+}
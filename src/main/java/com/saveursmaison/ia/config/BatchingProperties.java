@@ -0,0 +1,52 @@
+package com.saveursmaison.ia.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "batching")
+public class BatchingProperties {
+
+    /**
+     * Agrupa peticiones de primer turno que comparten la sección de catálogo en
+     * una sola llamada al modelo, que responde un arreglo JSON.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Peticiones por llamada como máximo.
+     */
+    private int maxBatchSize = 8;
+
+    /**
+     * Cuánto espera la primera petición de un lote a que se sumen otras.
+     * Es latencia agregada cuando el tráfico es bajo.
+     */
+    private Duration window = Duration.ofMillis(20);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+}
@@ -0,0 +1,24 @@
+package com.saveursmaison.ia.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+@Configuration
+public class CborConfig {
+
+    /**
+     * Representación binaria (application/cbor) para el tráfico BFF → IA.
+     * Se elige por negociación: {@code Content-Type} para el cuerpo y {@code Accept}
+     * para la respuesta. JSON sigue siendo el formato por defecto porque su
+     * conversor va antes en la lista. Usa el mismo builder que el ObjectMapper
+     * de JSON para que los dos formatos serialicen igual.
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper cborMapper = builder.cbor().build();
+        return new MappingJackson2CborHttpMessageConverter(cborMapper);
+    }
+}
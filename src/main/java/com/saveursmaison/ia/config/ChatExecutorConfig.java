@@ -0,0 +1,48 @@
+package com.saveursmaison.ia.config;
+
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ChatExecutorConfig {
+
+    /**
+     * Hilos que atienden /chat fuera del hilo de Tomcat, para poder cancelar la
+     * petición si el cliente se va. No hace falta acotarlo aquí: LoadShedder
+     * ya limita cuántas peticiones entran a la vez.
+     * Cada tarea hereda el contexto del hilo que la envía (la traza en curso).
+     */
+    @Bean(name = "chatExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService chatExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService pool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "chat-worker-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        return ContextExecutorService.wrap(pool, ContextSnapshotFactory.builder().build());
+    }
+
+    /**
+     * Hilos de las llamadas agrupadas del {@code MicroBatcher}. Van aparte de
+     * chatExecutor porque la llamada es de todo el lote: cancelar la petición que
+     * lo abrió (timeout o cliente que se va) no debe interrumpirla. Tampoco hace
+     * falta acotarlo: como mucho hay un lote en vuelo por petición admitida.
+     */
+    @Bean(name = "batchExecutor", destroyMethod = "shutdownNow")
+    public ExecutorService batchExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService pool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "batch-worker-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        return ContextExecutorService.wrap(pool, ContextSnapshotFactory.builder().build());
+    }
+}
@@ -0,0 +1,77 @@
+package com.saveursmaison.ia.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "deadline")
+public class DeadlineProperties {
+
+    /**
+     * Cabecera con el plazo que da el cliente, en milisegundos.
+     */
+    private String header = "X-Request-Timeout-Ms";
+
+    /**
+     * Plazo si el cliente no manda la cabecera.
+     */
+    private Duration defaultTimeout = Duration.ofSeconds(20);
+
+    /**
+     * Plazo máximo aceptado aunque el cliente pida más.
+     */
+    private Duration maxTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Fracción del plazo que puede usar la carga del catálogo (solo cuando no hay foto).
+     */
+    private double catalogShare = 0.25;
+
+    /**
+     * Tiempo que se reserva para el modelo: la espera de turno en el planificador
+     * no puede comérselo.
+     */
+    private Duration modelMinBudget = Duration.ofSeconds(2);
+
+    public String getHeader() {
+        return header;
+    }
+
+    public void setHeader(String header) {
+        this.header = header;
+    }
+
+    public Duration getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    public void setDefaultTimeout(Duration defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    public Duration getMaxTimeout() {
+        return maxTimeout;
+    }
+
+    public void setMaxTimeout(Duration maxTimeout) {
+        this.maxTimeout = maxTimeout;
+    }
+
+    public double getCatalogShare() {
+        return catalogShare;
+    }
+
+    public void setCatalogShare(double catalogShare) {
+        this.catalogShare = catalogShare;
+    }
+
+    public Duration getModelMinBudget() {
+        return modelMinBudget;
+    }
+
+    public void setModelMinBudget(Duration modelMinBudget) {
+        this.modelMinBudget = modelMinBudget;
+    }
+}
@@ -1,36 +1,23 @@
 package com.saveursmaison.ia.config;
 
-import com.google.auth.oauth2.GoogleCredentials;
-import com.google.cloud.firestore.Firestore;
-import com.google.firebase.FirebaseApp;
-import com.google.firebase.FirebaseOptions;
-import com.google.firebase.cloud.FirestoreClient;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.io.FileInputStream;
-import java.io.IOException;
-
 @Configuration
+@ConditionalOnProperty(name = "pairing-log.store", havingValue = "firestore", matchIfMissing = true)
 public class FirebaseConfig {
 
     @Value("${firebase.service.account.path}")
     private String serviceAccountPath;
 
+    /**
+     * Firestore se inicializa en segundo plano (ver FirestoreProvider),
+     * así el arranque no espera a leer credenciales ni a conectar con Google.
+     */
     @Bean
-    public Firestore firestore() throws IOException {
-        FileInputStream serviceAccount = new FileInputStream(serviceAccountPath);
-
-        FirebaseOptions options = FirebaseOptions.builder()
-                .setCredentials(GoogleCredentials.fromStream(serviceAccount))
-                .build();
-
-        if (FirebaseApp.getApps().isEmpty()) {
-            FirebaseApp.initializeApp(options);
-            System.out.println("🔥 Firebase initialized successfully (IA service)");
-        }
-
-        return FirestoreClient.getFirestore();
+    public FirestoreProvider firestoreProvider() {
+        return new FirestoreProvider(serviceAccountPath);
     }
 }
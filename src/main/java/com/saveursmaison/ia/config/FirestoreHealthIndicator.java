@@ -0,0 +1,44 @@
+package com.saveursmaison.ia.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * "firestore" en /actuator/health: OUT_OF_SERVICE mientras Firestore no está
+ * listo (inicializando o reintentando tras un fallo), para que una réplica que
+ * no puede guardar logs no reciba tráfico. Forma parte del grupo de readiness
+ * (ver application.properties). Con {@code pairing-log.store=memory} no hay
+ * Firestore y queda siempre UP.
+ */
+@Component
+public class FirestoreHealthIndicator implements HealthIndicator {
+
+    private final ObjectProvider<FirestoreProvider> firestoreProvider;
+
+    public FirestoreHealthIndicator(ObjectProvider<FirestoreProvider> firestoreProvider) {
+        this.firestoreProvider = firestoreProvider;
+    }
+
+    @Override
+    public Health health() {
+        FirestoreProvider provider = firestoreProvider.getIfAvailable();
+        if (provider == null) {
+            return Health.up().withDetail("firestore", "disabled").build();
+        }
+        if (provider.isReady()) {
+            return Health.up().build();
+        }
+        Health.Builder builder = Health.outOfService();
+        Throwable failure = provider.lastFailure();
+        if (failure == null) {
+            return builder.withDetail("firestore", "initializing").build();
+        }
+        return builder
+                .withDetail("firestore", "retrying")
+                .withDetail("failures", provider.consecutiveFailures())
+                .withDetail("lastFailure", String.valueOf(failure))
+                .build();
+    }
+}
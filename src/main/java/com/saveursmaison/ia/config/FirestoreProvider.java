@@ -0,0 +1,148 @@
+package com.saveursmaison.ia.config;
+
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.firestore.Firestore;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.cloud.FirestoreClient;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Inicializa Firebase/Firestore fuera del arranque.
+ *
+ * Leer la service account y crear el FirebaseApp ya no bloquea el servidor web:
+ * la inicialización se lanza en segundo plano cuando la app está lista, o en
+ * el primer uso si alguien llega antes.
+ *
+ * Si falla (credenciales ilegibles, Google caído...), no queda fallada para
+ * siempre: el próximo uso pasado el backoff (1 s, 2 s, 4 s... hasta 5 min)
+ * vuelve a intentar. Mientras tanto {@link FirestoreHealthIndicator} saca la
+ * instancia del grupo de readiness.
+ */
+public class FirestoreProvider implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final long MIN_BACKOFF_MILLIS = 1_000;
+    private static final long MAX_BACKOFF_MILLIS = 300_000;
+
+    private final String serviceAccountPath;
+    private final AtomicReference<CompletableFuture<Firestore>> firestore = new AtomicReference<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile long retryAtNanos;
+    private volatile Throwable lastFailure;
+
+    public FirestoreProvider(String serviceAccountPath) {
+        this.serviceAccountPath = serviceAccountPath;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        initAsync();
+    }
+
+    /**
+     * Arranca la inicialización (una sola vez mientras no falle) y devuelve el futuro.
+     * Si el último intento falló y ya pasó el backoff, lanza uno nuevo; antes de
+     * eso devuelve el futuro fallado.
+     */
+    public CompletableFuture<Firestore> initAsync() {
+        CompletableFuture<Firestore> future = firestore.get();
+        if (future != null && !(future.isCompletedExceptionally() && System.nanoTime() - retryAtNanos >= 0)) {
+            return future;
+        }
+        CompletableFuture<Firestore> created = new CompletableFuture<>();
+        if (!firestore.compareAndSet(future, created)) {
+            return firestore.get();
+        }
+        Thread init = new Thread(() -> {
+            try {
+                Firestore ready = initialize();
+                failures.set(0);
+                lastFailure = null;
+                created.complete(ready);
+            } catch (Throwable t) {
+                t.printStackTrace();
+                long backoff = Math.min(MAX_BACKOFF_MILLIS,
+                        MIN_BACKOFF_MILLIS << Math.min(failures.getAndIncrement(), 20));
+                retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff);
+                lastFailure = t;
+                created.completeExceptionally(t);
+            }
+        }, "firestore-init");
+        init.setDaemon(true);
+        init.start();
+        return created;
+    }
+
+    /**
+     * Firestore listo para usar; espera a la inicialización como mucho {@code timeoutMillis}.
+     *
+     * @throws IllegalStateException si la inicialización falló o no terminó a tiempo
+     */
+    public Firestore get(long timeoutMillis) {
+        try {
+            return initAsync().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for Firestore", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Firestore initialization failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Firestore not ready after " + timeoutMillis + " ms", e);
+        }
+    }
+
+    /**
+     * true si Firestore ya está listo. Si la última inicialización falló y ya
+     * pasó el backoff, de paso lanza el reintento (así el replay del WAL, que
+     * pregunta en cada pasada, no se queda esperando para siempre).
+     */
+    public boolean isReady() {
+        CompletableFuture<Firestore> future = firestore.get();
+        if (future != null && future.isCompletedExceptionally()) {
+            future = initAsync();
+        }
+        return future != null && future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    /**
+     * Causa del último intento fallido, o null si no falló (o ya se recuperó).
+     */
+    public Throwable lastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * Intentos fallidos seguidos desde el último éxito.
+     */
+    public int consecutiveFailures() {
+        return failures.get();
+    }
+
+    private Firestore initialize() {
+        try (FileInputStream serviceAccount = new FileInputStream(serviceAccountPath)) {
+            FirebaseOptions options = FirebaseOptions.builder()
+                    .setCredentials(GoogleCredentials.fromStream(serviceAccount))
+                    .build();
+
+            if (FirebaseApp.getApps().isEmpty()) {
+                FirebaseApp.initializeApp(options);
+                System.out.println("🔥 Firebase initialized successfully (IA service)");
+            }
+
+            return FirestoreClient.getFirestore();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
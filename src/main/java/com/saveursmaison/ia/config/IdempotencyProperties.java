@@ -0,0 +1,76 @@
+package com.saveursmaison.ia.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Atiende la cabecera de idempotencia en /chat.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Cabecera con la clave que manda el cliente (la misma en todos sus reintentos).
+     */
+    private String header = "Idempotency-Key";
+
+    /**
+     * Claves más largas se rechazan con 400.
+     */
+    private int maxKeyLength = 128;
+
+    /**
+     * Cuánto se guarda una respuesta para los reintentos.
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /**
+     * Claves guardadas como máximo (en curso y terminadas); se descartan las más viejas.
+     */
+    private int maxEntries = 10_000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    public void setHeader(String header) {
+        this.header = header;
+    }
+
+    public int getMaxKeyLength() {
+        return maxKeyLength;
+    }
+
+    public void setMaxKeyLength(int maxKeyLength) {
+        this.maxKeyLength = maxKeyLength;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+}
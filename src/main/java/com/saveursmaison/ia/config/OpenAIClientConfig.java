@@ -11,7 +11,7 @@ public class OpenAIClientConfig {
     @Bean(name = "openAIWebClient")
     public WebClient openAIWebClient(OpenAIProperties properties, WebClient.Builder builder) {
         return builder
-                .baseUrl("https://api.openai.com/v1")
+                .baseUrl(properties.getBaseUrl())
                 .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + properties.getApiKey())
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, "application/json")
                 .build();
@@ -1,8 +1,13 @@
 package com.saveursmaison.ia.config;
 
+import com.saveursmaison.ia.client.OpenAIChatCompletionProvider;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
 @Component
 @ConfigurationProperties(prefix = "openai")
 public class OpenAIProperties {
@@ -14,6 +19,27 @@ public class OpenAIProperties {
 
     private String model;
 
+    /**
+     * URL base de la API (se cambia para apuntar a un stub local en pruebas de carga).
+     */
+    private String baseUrl = "https://api.openai.com/v1";
+
+    /**
+     * Tiers de modelo entre los que elige el router, en orden de preferencia
+     * para el chat libre. Si está vacío se usa un único tier con {@code model}.
+     */
+    private List<Tier> tiers = new ArrayList<>();
+
+    /**
+     * Tasa de error (media móvil) a partir de la cual un tier se considera degradado.
+     */
+    private double degradedErrorRate = 0.5;
+
+    /**
+     * Cada cuánto se deja pasar una petición de prueba a un tier degradado.
+     */
+    private Duration probeInterval = Duration.ofSeconds(30);
+
     public String getApiKey() {
         return apiKey;
     }
@@ -29,4 +55,106 @@ public class OpenAIProperties {
     public void setModel(String model) {
         this.model = model;
     }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public List<Tier> getTiers() {
+        return tiers;
+    }
+
+    public void setTiers(List<Tier> tiers) {
+        this.tiers = tiers;
+    }
+
+    public double getDegradedErrorRate() {
+        return degradedErrorRate;
+    }
+
+    public void setDegradedErrorRate(double degradedErrorRate) {
+        this.degradedErrorRate = degradedErrorRate;
+    }
+
+    public Duration getProbeInterval() {
+        return probeInterval;
+    }
+
+    public void setProbeInterval(Duration probeInterval) {
+        this.probeInterval = probeInterval;
+    }
+
+    public static class Tier {
+
+        private String name;
+
+        private String model;
+
+        /**
+         * Proveedor que atiende este tier (ver ChatCompletionProvider#name).
+         */
+        private String provider = OpenAIChatCompletionProvider.NAME;
+
+        /**
+         * Prompts más largos que esto no se envían a este tier.
+         */
+        private int maxPromptChars = Integer.MAX_VALUE;
+
+        /**
+         * Latencia media por encima de la cual el tier se considera degradado.
+         */
+        private Duration latencyBudget = Duration.ofSeconds(15);
+
+        public Tier() {
+        }
+
+        public Tier(String name, String model) {
+            this.name = name;
+            this.model = model;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getModel() {
+            return model;
+        }
+
+        public void setModel(String model) {
+            this.model = model;
+        }
+
+        public String getProvider() {
+            return provider;
+        }
+
+        public void setProvider(String provider) {
+            this.provider = provider;
+        }
+
+        public int getMaxPromptChars() {
+            return maxPromptChars;
+        }
+
+        public void setMaxPromptChars(int maxPromptChars) {
+            this.maxPromptChars = maxPromptChars;
+        }
+
+        public Duration getLatencyBudget() {
+            return latencyBudget;
+        }
+
+        public void setLatencyBudget(Duration latencyBudget) {
+            this.latencyBudget = latencyBudget;
+        }
+    }
 }
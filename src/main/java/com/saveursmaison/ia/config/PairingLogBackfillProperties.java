@@ -0,0 +1,61 @@
+package com.saveursmaison.ia.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "pairing-log.backfill")
+public class PairingLogBackfillProperties {
+
+    /**
+     * Al arrancar, copia la colección plana al esquema por usuario y termina el proceso.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Documentos leídos por página (máximo 499: cada usuario de la página se escribe en una transacción).
+     */
+    private int pageSize = 300;
+
+    /**
+     * Borra cada página de la colección plana una vez copiada.
+     */
+    private boolean deleteSource = false;
+
+    /**
+     * ID de documento desde el que seguir (el último que imprimió una corrida cortada).
+     */
+    private String startAfter = "";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public boolean isDeleteSource() {
+        return deleteSource;
+    }
+
+    public void setDeleteSource(boolean deleteSource) {
+        this.deleteSource = deleteSource;
+    }
+
+    public String getStartAfter() {
+        return startAfter;
+    }
+
+    public void setStartAfter(String startAfter) {
+        this.startAfter = startAfter;
+    }
+}
@@ -0,0 +1,105 @@
+package com.saveursmaison.ia.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "pairing-log.export")
+public class PairingLogExportProperties {
+
+    /**
+     * Al arrancar, exporta los logs a un archivo JSON Lines para la prueba de
+     * replay y termina el proceso.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Archivo de salida (se sobrescribe).
+     */
+    private String file = "data/pairing-replay.jsonl";
+
+    /**
+     * Solo logs con createdAt igual o posterior (ISO-8601, p.ej. 2026-09-01T00:00:00Z); vacío = todos.
+     */
+    private String since = "";
+
+    /**
+     * Máximo de logs exportados (0 = sin límite).
+     */
+    private int limit = 0;
+
+    /**
+     * Documentos leídos por página.
+     */
+    private int pageSize = 500;
+
+    /**
+     * Reemplaza userId y sessionId por un hash: se conserva quién repite y qué
+     * turnos van juntos, sin sacar identificadores reales del proyecto.
+     */
+    private boolean anonymize = true;
+
+    /**
+     * Clave de los seudónimos (HMAC). Vacía = una aleatoria por exportación, que
+     * no se guarda: los seudónimos no se pueden cruzar con otros exports ni
+     * revertir hasheando IDs. Pasar la misma clave solo si hace falta cruzar
+     * exports; nunca se escribe en el archivo.
+     */
+    private String salt = "";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public String getSince() {
+        return since;
+    }
+
+    public void setSince(String since) {
+        this.since = since;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public boolean isAnonymize() {
+        return anonymize;
+    }
+
+    public void setAnonymize(boolean anonymize) {
+        this.anonymize = anonymize;
+    }
+
+    public String getSalt() {
+        return salt;
+    }
+
+    public void setSalt(String salt) {
+        this.salt = salt;
+    }
+}
@@ -0,0 +1,64 @@
+package com.saveursmaison.ia.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "pairing-log.per-user")
+public class PairingLogLayoutProperties {
+
+    /**
+     * Guarda cada log en la subcolección del usuario y mantiene un documento
+     * resumen con los últimos {@code summarySize}: el historial es una sola lectura.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Logs que guarda el documento resumen de cada usuario.
+     */
+    private int summarySize = 20;
+
+    /**
+     * Sigue escribiendo también en la colección plana (para poder volver atrás).
+     */
+    private boolean writeFlat = false;
+
+    /**
+     * Si un usuario todavía no está migrado (sin resumen, o con un resumen que el
+     * backfill aún no marcó), su historial se completa con la colección plana.
+     * Se puede apagar cuando el backfill terminó.
+     */
+    private boolean flatFallback = true;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getSummarySize() {
+        return summarySize;
+    }
+
+    public void setSummarySize(int summarySize) {
+        this.summarySize = summarySize;
+    }
+
+    public boolean isWriteFlat() {
+        return writeFlat;
+    }
+
+    public void setWriteFlat(boolean writeFlat) {
+        this.writeFlat = writeFlat;
+    }
+
+    public boolean isFlatFallback() {
+        return flatFallback;
+    }
+
+    public void setFlatFallback(boolean flatFallback) {
+        this.flatFallback = flatFallback;
+    }
+}
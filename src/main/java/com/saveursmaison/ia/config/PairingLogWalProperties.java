@@ -0,0 +1,104 @@
+package com.saveursmaison.ia.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "pairing-log.wal")
+public class PairingLogWalProperties {
+
+    /**
+     * Si está activo, los logs se escriben primero en disco y se mandan a Firestore en segundo plano.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Carpeta de los segmentos del WAL.
+     */
+    private String dir = "data/pairing-log-wal";
+
+    /**
+     * Tamaño de cada segmento (archivo mapeado en memoria).
+     */
+    private int segmentBytes = 16 * 1024 * 1024;
+
+    /**
+     * Tamaño máximo total en disco; al pasarlo se borran los segmentos más viejos
+     * aunque no se hayan mandado todavía.
+     */
+    private long maxTotalBytes = 256L * 1024 * 1024;
+
+    /**
+     * Logs por escritura en lote a Firestore (máximo 500).
+     */
+    private int replayBatchSize = 200;
+
+    /**
+     * Cada cuánto se intenta mandar lo pendiente a Firestore.
+     */
+    private Duration replayInterval = Duration.ofSeconds(1);
+
+    /**
+     * Registros que Firestore rechaza para siempre (o que no se pueden decodificar):
+     * se apartan aquí (int largo | registro) para no frenar al resto.
+     */
+    private String deadLetterFile = "data/pairing-log-dead-letter.bin";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDir() {
+        return dir;
+    }
+
+    public void setDir(String dir) {
+        this.dir = dir;
+    }
+
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    public void setSegmentBytes(int segmentBytes) {
+        this.segmentBytes = segmentBytes;
+    }
+
+    public long getMaxTotalBytes() {
+        return maxTotalBytes;
+    }
+
+    public void setMaxTotalBytes(long maxTotalBytes) {
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    public int getReplayBatchSize() {
+        return replayBatchSize;
+    }
+
+    public void setReplayBatchSize(int replayBatchSize) {
+        this.replayBatchSize = replayBatchSize;
+    }
+
+    public Duration getReplayInterval() {
+        return replayInterval;
+    }
+
+    public void setReplayInterval(Duration replayInterval) {
+        this.replayInterval = replayInterval;
+    }
+
+    public String getDeadLetterFile() {
+        return deadLetterFile;
+    }
+
+    public void setDeadLetterFile(String deadLetterFile) {
+        this.deadLetterFile = deadLetterFile;
+    }
+}
@@ -0,0 +1,35 @@
+package com.saveursmaison.ia.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "product-cards")
+public class ProductCardsProperties {
+
+    /**
+     * Atiende {@code ?cards=} en /chat; si no, el parámetro se ignora y solo van los IDs.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Campos cuando el cliente pide fichas sin elegir ({@code ?cards=}).
+     */
+    private String defaultFields = "name,price,region,inStock";
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDefaultFields() {
+        return defaultFields;
+    }
+
+    public void setDefaultFields(String defaultFields) {
+        this.defaultFields = defaultFields;
+    }
+}
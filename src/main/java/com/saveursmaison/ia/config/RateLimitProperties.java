@@ -0,0 +1,89 @@
+package com.saveursmaison.ia.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "ratelimit")
+public class RateLimitProperties {
+
+    /**
+     * Capacidad del token bucket por usuario (ráfaga máxima).
+     */
+    private int userBurst = 5;
+
+    /**
+     * Tokens que recupera cada usuario por minuto.
+     */
+    private int userRequestsPerMinute = 20;
+
+    /**
+     * Máximo de usuarios con bucket en memoria; se descartan los menos recientes.
+     */
+    private int maxTrackedUsers = 10_000;
+
+    /**
+     * Llamadas a /chat procesándose a la vez en esta instancia.
+     */
+    private int maxInFlight = 32;
+
+    /**
+     * Peticiones que pueden esperar un hueco cuando todo está ocupado.
+     */
+    private int maxQueued = 16;
+
+    /**
+     * Tiempo máximo de espera en la cola antes de responder 429.
+     */
+    private Duration queueTimeout = Duration.ofMillis(250);
+
+    public int getUserBurst() {
+        return userBurst;
+    }
+
+    public void setUserBurst(int userBurst) {
+        this.userBurst = userBurst;
+    }
+
+    public int getUserRequestsPerMinute() {
+        return userRequestsPerMinute;
+    }
+
+    public void setUserRequestsPerMinute(int userRequestsPerMinute) {
+        this.userRequestsPerMinute = userRequestsPerMinute;
+    }
+
+    public int getMaxTrackedUsers() {
+        return maxTrackedUsers;
+    }
+
+    public void setMaxTrackedUsers(int maxTrackedUsers) {
+        this.maxTrackedUsers = maxTrackedUsers;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public void setMaxQueued(int maxQueued) {
+        this.maxQueued = maxQueued;
+    }
+
+    public Duration getQueueTimeout() {
+        return queueTimeout;
+    }
+
+    public void setQueueTimeout(Duration queueTimeout) {
+        this.queueTimeout = queueTimeout;
+    }
+}
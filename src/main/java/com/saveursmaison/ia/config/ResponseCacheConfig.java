@@ -0,0 +1,29 @@
+package com.saveursmaison.ia.config;
+
+import com.saveursmaison.ia.cache.InMemorySharedCacheStore;
+import com.saveursmaison.ia.cache.RedisSharedCacheStore;
+import com.saveursmaison.ia.cache.SharedCacheStore;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ResponseCacheConfig {
+
+    /**
+     * L2 de la caché de respuestas según {@code response-cache.l2}. Se decide al
+     * crear el bean y no con condiciones de Spring: con la imagen AOT las
+     * condiciones se evalúan en el build y el valor de las réplicas no contaría.
+     * Un valor desconocido, o una URL de Redis inválida, frena el arranque.
+     */
+    @Bean
+    public SharedCacheStore sharedCacheStore(ResponseCacheProperties properties) {
+        String l2 = properties.getL2() == null ? "" : properties.getL2().trim();
+        return switch (l2) {
+            case "", "none" -> SharedCacheStore.none();
+            case "memory" -> new InMemorySharedCacheStore();
+            case "redis" -> new RedisSharedCacheStore(properties);
+            default -> throw new IllegalStateException(
+                    "Unknown response-cache.l2 '" + l2 + "' (expected none, memory or redis)");
+        };
+    }
+}
@@ -0,0 +1,188 @@
+package com.saveursmaison.ia.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * Activa la caché de respuestas por mensajes casi iguales (solo texto libre / PAIRING).
+     */
+    private boolean enabled = true;
+
+    /**
+     * Similitud de Jaccard estimada mínima para reutilizar una respuesta.
+     */
+    private double similarityThreshold = 0.8;
+
+    /**
+     * Bandas y filas por banda del índice LSH (firma de bands × rows hashes).
+     */
+    private int bands = 16;
+    private int rowsPerBand = 4;
+
+    /**
+     * Respuestas guardadas como máximo; se descartan las menos usadas recientemente.
+     */
+    private int maxEntries = 5_000;
+
+    /**
+     * Vida máxima de una respuesta en caché, aunque el catálogo no cambie.
+     */
+    private Duration ttl = Duration.ofHours(1);
+
+    /**
+     * Fracción de aciertos que igual se mandan al modelo para medir falsos aciertos.
+     */
+    private double verifySampleRate = 0.02;
+
+    /**
+     * Segundo nivel compartido entre réplicas: none (solo L1), memory (embebido,
+     * para pruebas) o redis (cualquier servidor con el protocolo de Redis).
+     */
+    private String l2 = "none";
+
+    private String redisUrl = "redis://localhost:6379";
+
+    /**
+     * Prefijo de todas las claves en la L2, por si el servidor es compartido.
+     */
+    private String l2KeyPrefix = "pairing-cache:";
+
+    /**
+     * Tiempo máximo de cada operación contra la L2; si se pasa, se sigue sin ella.
+     */
+    private Duration l2Timeout = Duration.ofMillis(100);
+
+    /**
+     * Con L2, vida de las copias en la L1 de cada réplica: acota cuánto tarda en
+     * propagarse la invalidación de una entrada (un falso acierto) a las demás.
+     */
+    private Duration nearCacheTtl = Duration.ofSeconds(30);
+
+    /**
+     * Vida del turno de cálculo que toma la primera réplica que falla para un mensaje.
+     */
+    private Duration stampedeLockTtl = Duration.ofSeconds(30);
+
+    /**
+     * Espera máxima de las demás réplicas por esa respuesta antes de llamar ellas al modelo.
+     */
+    private Duration stampedeMaxWait = Duration.ofSeconds(5);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getSimilarityThreshold() {
+        return similarityThreshold;
+    }
+
+    public void setSimilarityThreshold(double similarityThreshold) {
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    public int getBands() {
+        return bands;
+    }
+
+    public void setBands(int bands) {
+        this.bands = bands;
+    }
+
+    public int getRowsPerBand() {
+        return rowsPerBand;
+    }
+
+    public void setRowsPerBand(int rowsPerBand) {
+        this.rowsPerBand = rowsPerBand;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public double getVerifySampleRate() {
+        return verifySampleRate;
+    }
+
+    public void setVerifySampleRate(double verifySampleRate) {
+        this.verifySampleRate = verifySampleRate;
+    }
+
+    public String getL2() {
+        return l2;
+    }
+
+    public void setL2(String l2) {
+        this.l2 = l2;
+    }
+
+    public String getRedisUrl() {
+        return redisUrl;
+    }
+
+    public void setRedisUrl(String redisUrl) {
+        this.redisUrl = redisUrl;
+    }
+
+    public String getL2KeyPrefix() {
+        return l2KeyPrefix;
+    }
+
+    public void setL2KeyPrefix(String l2KeyPrefix) {
+        this.l2KeyPrefix = l2KeyPrefix;
+    }
+
+    public Duration getL2Timeout() {
+        return l2Timeout;
+    }
+
+    public void setL2Timeout(Duration l2Timeout) {
+        this.l2Timeout = l2Timeout;
+    }
+
+    public Duration getNearCacheTtl() {
+        return nearCacheTtl;
+    }
+
+    public void setNearCacheTtl(Duration nearCacheTtl) {
+        this.nearCacheTtl = nearCacheTtl;
+    }
+
+    public Duration getStampedeLockTtl() {
+        return stampedeLockTtl;
+    }
+
+    public void setStampedeLockTtl(Duration stampedeLockTtl) {
+        this.stampedeLockTtl = stampedeLockTtl;
+    }
+
+    public Duration getStampedeMaxWait() {
+        return stampedeMaxWait;
+    }
+
+    public void setStampedeMaxWait(Duration stampedeMaxWait) {
+        this.stampedeMaxWait = stampedeMaxWait;
+    }
+}
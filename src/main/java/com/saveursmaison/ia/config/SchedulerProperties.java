@@ -0,0 +1,154 @@
+package com.saveursmaison.ia.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "scheduler")
+public class SchedulerProperties {
+
+    /**
+     * Llamadas simultáneas a OpenAI desde esta instancia: fijo, o el valor de
+     * partida si {@code adaptive} está activo.
+     */
+    private int maxConcurrent = 16;
+
+    /**
+     * Ajusta el tope de llamadas simultáneas según la latencia y los 429 de OpenAI
+     * (ver AdaptiveConcurrencyLimit).
+     */
+    private boolean adaptive = true;
+
+    /**
+     * Límites del tope adaptativo.
+     */
+    private int adaptiveMinConcurrent = 2;
+    private int adaptiveMaxConcurrent = 64;
+
+    /**
+     * Cuántas veces la latencia de base se acepta antes de bajar el tope.
+     */
+    private double latencyTolerance = 1.5;
+
+    /**
+     * Factor que se aplica al tope ante un 429/503 de OpenAI.
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * Qué parte del cambio calculado se aplica en cada ventana (0-1).
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * Fracción máxima de {@code maxConcurrent} para peticiones de selección
+     * (página de producto, CHEESE_ONLY / WINE_ONLY).
+     */
+    private double selectionShare = 1.0;
+
+    /**
+     * Fracción máxima de {@code maxConcurrent} para chats de texto libre (PAIRING).
+     * Lo que queda libre está siempre disponible para las de selección.
+     */
+    private double freeTextShare = 0.5;
+
+    /**
+     * Peticiones en espera por clase antes de rechazar con 429.
+     */
+    private int maxQueuedPerClass = 64;
+
+    /**
+     * Espera máxima por un hueco antes de rechazar con 429.
+     */
+    private Duration maxWait = Duration.ofSeconds(2);
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+    }
+
+    public int getAdaptiveMinConcurrent() {
+        return adaptiveMinConcurrent;
+    }
+
+    public void setAdaptiveMinConcurrent(int adaptiveMinConcurrent) {
+        this.adaptiveMinConcurrent = adaptiveMinConcurrent;
+    }
+
+    public int getAdaptiveMaxConcurrent() {
+        return adaptiveMaxConcurrent;
+    }
+
+    public void setAdaptiveMaxConcurrent(int adaptiveMaxConcurrent) {
+        this.adaptiveMaxConcurrent = adaptiveMaxConcurrent;
+    }
+
+    public double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    public void setLatencyTolerance(double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    public double getSelectionShare() {
+        return selectionShare;
+    }
+
+    public void setSelectionShare(double selectionShare) {
+        this.selectionShare = selectionShare;
+    }
+
+    public double getFreeTextShare() {
+        return freeTextShare;
+    }
+
+    public void setFreeTextShare(double freeTextShare) {
+        this.freeTextShare = freeTextShare;
+    }
+
+    public int getMaxQueuedPerClass() {
+        return maxQueuedPerClass;
+    }
+
+    public void setMaxQueuedPerClass(int maxQueuedPerClass) {
+        this.maxQueuedPerClass = maxQueuedPerClass;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+}
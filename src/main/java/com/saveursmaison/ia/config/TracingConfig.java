@@ -0,0 +1,53 @@
+package com.saveursmaison.ia.config;
+
+import com.saveursmaison.ia.tracing.JsonLinesSpanExporter;
+import com.saveursmaison.ia.tracing.TailSamplingSpanProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class TracingConfig {
+
+    /**
+     * Todas las trazas se graban (muestreo de cabeza al 100%, ver
+     * {@code management.tracing.sampling.probability}) y este procesador decide
+     * al final cuáles exportar: al archivo local, al colector OTLP o a los dos.
+     * Sin destino configurado no se junta nada.
+     */
+    @Bean
+    public SpanProcessor tailSamplingSpanProcessor(TracingProperties properties, MeterRegistry meterRegistry) {
+        List<SpanExporter> exporters = new ArrayList<>();
+        if (!properties.getFile().isBlank()) {
+            try {
+                exporters.add(new JsonLinesSpanExporter(Path.of(properties.getFile())));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (!properties.getOtlpEndpoint().isBlank()) {
+            exporters.add(OtlpHttpSpanExporter.builder()
+                    .setEndpoint(properties.getOtlpEndpoint())
+                    .build());
+        }
+        if (exporters.isEmpty()) {
+            return SpanProcessor.composite();
+        }
+        return new TailSamplingSpanProcessor(
+                SpanExporter.composite(exporters),
+                properties.getSlowThreshold(),
+                properties.getSampleRate(),
+                properties.getMaxPendingTraces(),
+                properties.getMaxSpansPerTrace(),
+                meterRegistry
+        );
+    }
+}
@@ -0,0 +1,89 @@
+package com.saveursmaison.ia.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "tracing")
+public class TracingProperties {
+
+    /**
+     * Archivo JSON lines donde se exportan las trazas (vacío = desactivado).
+     */
+    private String file = "";
+
+    /**
+     * Endpoint OTLP/HTTP de un colector, p.ej. http://localhost:4318/v1/traces (vacío = desactivado).
+     */
+    private String otlpEndpoint = "";
+
+    /**
+     * Las trazas que duran al menos esto se guardan siempre.
+     */
+    private Duration slowThreshold = Duration.ofSeconds(2);
+
+    /**
+     * Fracción de las trazas normales (rápidas y sin error) que se guarda igual.
+     */
+    private double sampleRate = 0.05;
+
+    /**
+     * Trazas abiertas como máximo en memoria esperando a que termine su span raíz.
+     */
+    private int maxPendingTraces = 2000;
+
+    /**
+     * Spans guardados como máximo por traza; el resto se descarta.
+     */
+    private int maxSpansPerTrace = 256;
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public String getOtlpEndpoint() {
+        return otlpEndpoint;
+    }
+
+    public void setOtlpEndpoint(String otlpEndpoint) {
+        this.otlpEndpoint = otlpEndpoint;
+    }
+
+    public Duration getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    public void setSlowThreshold(Duration slowThreshold) {
+        this.slowThreshold = slowThreshold;
+    }
+
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public int getMaxPendingTraces() {
+        return maxPendingTraces;
+    }
+
+    public void setMaxPendingTraces(int maxPendingTraces) {
+        this.maxPendingTraces = maxPendingTraces;
+    }
+
+    public int getMaxSpansPerTrace() {
+        return maxSpansPerTrace;
+    }
+
+    public void setMaxSpansPerTrace(int maxSpansPerTrace) {
+        this.maxSpansPerTrace = maxSpansPerTrace;
+    }
+}
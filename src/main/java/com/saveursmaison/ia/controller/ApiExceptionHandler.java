@@ -0,0 +1,46 @@
+package com.saveursmaison.ia.controller;
+
+import com.saveursmaison.ia.cards.UnknownCardFieldException;
+import com.saveursmaison.ia.deadline.DeadlineExceededException;
+import com.saveursmaison.ia.idempotency.IdempotencyKeyException;
+import com.saveursmaison.ia.ratelimit.TooManyRequestsException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Traduce las excepciones de control de carga, de plazos, de idempotencia y de
+ * parámetros de la petición a respuestas HTTP.
+ */
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Map<String, String>> tooManyRequests(TooManyRequestsException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(Map.of("error", ex.getMessage()));
+    }
+
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<Map<String, String>> deadlineExceeded(DeadlineExceededException ex) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .body(Map.of("error", ex.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyKeyException.class)
+    public ResponseEntity<Map<String, String>> idempotencyKey(IdempotencyKeyException ex) {
+        return ResponseEntity.status(ex.isReused() ? HttpStatus.UNPROCESSABLE_ENTITY : HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", ex.getMessage()));
+    }
+
+    @ExceptionHandler(UnknownCardFieldException.class)
+    public ResponseEntity<Map<String, String>> unknownCardField(UnknownCardFieldException ex) {
+        return ResponseEntity.badRequest()
+                .body(Map.of("error", ex.getMessage()));
+    }
+}
@@ -1,26 +1,230 @@
 package com.saveursmaison.ia.controller;
 
+import com.saveursmaison.ia.cards.ProductCardField;
+import com.saveursmaison.ia.cards.ProductCards;
+import com.saveursmaison.ia.config.DeadlineProperties;
+import com.saveursmaison.ia.deadline.Deadline;
+import com.saveursmaison.ia.deadline.DeadlineExceededException;
 import com.saveursmaison.ia.dto.PairingChatRequest;
 import com.saveursmaison.ia.dto.PairingChatResponse;
+import com.saveursmaison.ia.idempotency.IdempotencyStore;
+import com.saveursmaison.ia.ratelimit.LoadShedder;
+import com.saveursmaison.ia.ratelimit.UserRateLimiter;
 import com.saveursmaison.ia.service.PairingAIService;
+import com.saveursmaison.ia.tracing.RequestTrace;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 @RestController
 @RequestMapping("/ai/pairings")
 @CrossOrigin(origins = "*") // Restringir luego
 public class PairingAIController {
 
+    /**
+     * Marca las respuestas servidas a un reintento (de la ejecución original).
+     */
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final PairingAIService pairingAIService;
+    private final UserRateLimiter userRateLimiter;
+    private final LoadShedder loadShedder;
+    private final DeadlineProperties deadlineProperties;
+    private final ExecutorService chatExecutor;
+    private final ObservationRegistry observationRegistry;
+    private final IdempotencyStore idempotencyStore;
+    private final ProductCards productCards;
 
-    public PairingAIController(PairingAIService pairingAIService) {
+    public PairingAIController(PairingAIService pairingAIService,
+                               UserRateLimiter userRateLimiter,
+                               LoadShedder loadShedder,
+                               DeadlineProperties deadlineProperties,
+                               @Qualifier("chatExecutor") ExecutorService chatExecutor,
+                               ObservationRegistry observationRegistry,
+                               IdempotencyStore idempotencyStore,
+                               ProductCards productCards) {
         this.pairingAIService = pairingAIService;
+        this.userRateLimiter = userRateLimiter;
+        this.loadShedder = loadShedder;
+        this.deadlineProperties = deadlineProperties;
+        this.chatExecutor = chatExecutor;
+        this.observationRegistry = observationRegistry;
+        this.idempotencyStore = idempotencyStore;
+        this.productCards = productCards;
     }
 
+    /**
+     * Se atiende de forma asíncrona: si vence el plazo o el cliente se desconecta
+     * se cancela el plazo, lo que corta la llamada a OpenAI en curso.
+     * La respuesta lleva el desglose por etapa en {@code Server-Timing}.
+     *
+     * Con cabecera {@code Idempotency-Key}, un reintento de la misma petición se
+     * engancha a la ejecución en curso o recibe la respuesta guardada, sin pasar
+     * por los límites ni llamar otra vez al modelo. En ese caso la desconexión
+     * del cliente no corta la llamada (el reintento la va a querer); el plazo sí.
+     *
+     * Con {@code ?cards=name,price,...} la respuesta trae además fichas de los
+     * productos recomendados ({@code ?cards=} solo: campos por defecto).
+     */
     @PostMapping("/chat")
-    public ResponseEntity<PairingChatResponse> chat(@RequestBody PairingChatRequest request) {
-        PairingChatResponse response = pairingAIService.chat(request);
-        return ResponseEntity.ok(response);
+    public DeferredResult<ResponseEntity<PairingChatResponse>> chat(@RequestBody PairingChatRequest request,
+                                                                    @RequestParam(name = "cards", required = false) String cards,
+                                                                    HttpServletRequest httpRequest) {
+        Set<ProductCardField> cardFields = productCards.requested(cards);
+        String rateLimitKey = rateLimitKey(request, httpRequest);
+        IdempotencyStore.Claim<PairingChatResponse> claim = idempotencyStore.isEnabled()
+                ? idempotencyStore.claim(rateLimitKey, httpRequest.getHeader(idempotencyStore.header()), fingerprint(request))
+                : null;
+        if (claim != null && !claim.isOwner()) {
+            return attach(claim, cardFields, timeoutFor(httpRequest));
+        }
+
+        // Límite por usuario primero (barato), luego el tope global de la instancia
+        Deadline deadline;
+        LoadShedder.Permit permit;
+        try {
+            userRateLimiter.acquire(rateLimitKey);
+            deadline = Deadline.after(timeoutFor(httpRequest));
+            permit = loadShedder.acquire();
+        } catch (RuntimeException e) {
+            if (claim != null) {
+                claim.fail(e);
+            }
+            throw e;
+        }
+
+        DeferredResult<ResponseEntity<PairingChatResponse>> result =
+                new DeferredResult<>(deadline.remaining().toMillis());
+        Future<?> task;
+        try {
+            task = chatExecutor.submit(() -> {
+                try (LoadShedder.Permit ignored = permit) {
+                    RequestTrace trace = new RequestTrace(observationRegistry);
+                    PairingChatResponse response = pairingAIService.chat(request, deadline, trace);
+                    if (claim != null) {
+                        if (response.isFallback()) {
+                            // Sin respuesta del modelo: el próximo reintento tiene que volver a intentar
+                            claim.completeWithoutStoring(response);
+                        } else {
+                            claim.complete(response);
+                        }
+                    }
+                    result.setResult(ResponseEntity.ok()
+                            .header(RequestTrace.SERVER_TIMING_HEADER, trace.serverTiming())
+                            .body(productCards.hydrate(response, cardFields)));
+                } catch (Exception e) {
+                    if (claim != null) {
+                        claim.fail(e);
+                    }
+                    result.setErrorResult(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            permit.close();
+            if (claim != null) {
+                claim.fail(e);
+            }
+            throw e;
+        }
+
+        result.onTimeout(() -> {
+            deadline.cancel("deadline exceeded");
+            task.cancel(true);
+            // Si la tarea no llegó a arrancar, nadie más cierra el permiso
+            permit.close();
+            DeadlineExceededException timeout = new DeadlineExceededException("Request deadline exceeded");
+            if (claim != null) {
+                // La tarea puede no haber arrancado: los enganchados no deben quedar esperando
+                claim.fail(timeout);
+            }
+            result.setErrorResult(timeout);
+        });
+        result.onError(error -> {
+            // Cliente desconectado (o error de E/S de Tomcat). Con clave de idempotencia
+            // se deja terminar: el reintento del cliente se engancha a esta ejecución.
+            if (claim == null) {
+                deadline.cancel("client went away");
+                task.cancel(true);
+                permit.close();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Reintento con una clave ya tomada: espera la ejecución original (o toma su respuesta guardada).
+     */
+    private DeferredResult<ResponseEntity<PairingChatResponse>> attach(IdempotencyStore.Claim<PairingChatResponse> claim,
+                                                                       Set<ProductCardField> cardFields,
+                                                                       Duration timeout) {
+        DeferredResult<ResponseEntity<PairingChatResponse>> result = new DeferredResult<>(timeout.toMillis());
+        claim.result().whenComplete((response, error) -> {
+            if (error != null) {
+                result.setErrorResult(error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause()
+                        : error);
+            } else {
+                result.setResult(ResponseEntity.ok()
+                        .header(IDEMPOTENT_REPLAYED_HEADER, "true")
+                        .body(productCards.hydrate(response, cardFields)));
+            }
+        });
+        result.onTimeout(() -> result.setErrorResult(new DeadlineExceededException("Request deadline exceeded")));
+        return result;
+    }
+
+    /**
+     * Lo que tiene que coincidir entre reintentos con la misma clave.
+     */
+    private static Object fingerprint(PairingChatRequest request) {
+        return Arrays.asList(
+                request.getMessage(),
+                request.getLocale(),
+                request.getSelectedWineIds(),
+                request.getSelectedCheeseIds(),
+                request.getSessionId()
+        );
+    }
+
+    /**
+     * Plazo pedido por el cliente en la cabecera configurada, acotado al máximo;
+     * si no viene o no es válido, el plazo por defecto.
+     */
+    private Duration timeoutFor(HttpServletRequest httpRequest) {
+        String header = httpRequest.getHeader(deadlineProperties.getHeader());
+        if (header != null) {
+            try {
+                long millis = Long.parseLong(header.trim());
+                if (millis > 0) {
+                    Duration requested = Duration.ofMillis(millis);
+                    return requested.compareTo(deadlineProperties.getMaxTimeout()) < 0
+                            ? requested
+                            : deadlineProperties.getMaxTimeout();
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return deadlineProperties.getDefaultTimeout();
+    }
+
+    /**
+     * Sin userId (usuario anónimo) se limita por IP de origen.
+     */
+    private String rateLimitKey(PairingChatRequest request, HttpServletRequest httpRequest) {
+        if (request.getUserId() != null && !request.getUserId().isBlank()) {
+            return "user:" + request.getUserId();
+        }
+        return "ip:" + httpRequest.getRemoteAddr();
     }
 
     @GetMapping("/health")
@@ -5,6 +5,9 @@ import com.google.cloud.Timestamp;
 import com.saveursmaison.ia.dto.PairingHistoryItemResponse;
 import com.saveursmaison.ia.logging.PairingLog;
 import com.saveursmaison.ia.logging.PairingLogRepository;
+import com.saveursmaison.ia.tracing.RequestTrace;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -16,22 +19,30 @@ import java.util.stream.Collectors;
 public class PairingHistoryController {
 
     private final PairingLogRepository pairingLogRepository;
+    private final ObservationRegistry observationRegistry;
 
-    public PairingHistoryController(PairingLogRepository pairingLogRepository) {
+    public PairingHistoryController(PairingLogRepository pairingLogRepository,
+                                    ObservationRegistry observationRegistry) {
         this.pairingLogRepository = pairingLogRepository;
+        this.observationRegistry = observationRegistry;
     }
 
     @GetMapping("/history")
-    public List<PairingHistoryItemResponse> getHistoryByUser(
+    public ResponseEntity<List<PairingHistoryItemResponse>> getHistoryByUser(
             @RequestParam("userId") String userId
     ) {
+        RequestTrace trace = new RequestTrace(observationRegistry);
+
         // últimas 20 recomendaciones
-        List<PairingLog> logs = pairingLogRepository
-                .findByUserIdOrderByCreatedAtDesc(userId, 20);
+        List<PairingLog> logs = trace.stage("store", () -> pairingLogRepository
+                .findByUserIdOrderByCreatedAtDesc(userId, 20));
 
-        return logs.stream()
+        List<PairingHistoryItemResponse> items = logs.stream()
                 .map(this::toDto)
                 .collect(Collectors.toList());
+        return ResponseEntity.ok()
+                .header(RequestTrace.SERVER_TIMING_HEADER, trace.serverTiming())
+                .body(items);
     }
 
     private PairingHistoryItemResponse toDto(PairingLog log) {
@@ -0,0 +1,26 @@
+package com.saveursmaison.ia.controller;
+
+import com.saveursmaison.ia.dto.PairingStatsResponse;
+import com.saveursmaison.ia.stats.PairingStats;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/ai/pairings")
+@CrossOrigin(origins = "*")
+public class PairingStatsController {
+
+    private final PairingStats pairingStats;
+
+    public PairingStatsController(PairingStats pairingStats) {
+        this.pairingStats = pairingStats;
+    }
+
+    /**
+     * Top de productos recomendados, modos, idiomas y latencias por ventana de tiempo.
+     * Se calcula en memoria (esta instancia), sin consultar Firestore.
+     */
+    @GetMapping("/stats")
+    public PairingStatsResponse getStats() {
+        return pairingStats.snapshot();
+    }
+}
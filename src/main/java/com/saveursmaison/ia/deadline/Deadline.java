@@ -0,0 +1,86 @@
+package com.saveursmaison.ia.deadline;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+/**
+ * Plazo de una petición, compartido por todas sus etapas.
+ *
+ * Cada etapa pide su parte con {@link #budget} y envuelve sus llamadas remotas
+ * con {@link #bound}: así la llamada corta por timeout al agotar su parte, y
+ * se cancela (cerrando la conexión) si se llama a {@link #cancel}, p.ej.
+ * porque el cliente se desconectó.
+ */
+public final class Deadline {
+
+    private final long expiresAtNanos;
+    private final Sinks.Empty<Void> cancelled = Sinks.empty();
+    private volatile String cancelReason;
+
+    private Deadline(long expiresAtNanos) {
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return cancelReason != null || expiresAtNanos - System.nanoTime() <= 0;
+    }
+
+    public boolean isCancelled() {
+        return cancelReason != null;
+    }
+
+    /**
+     * Corta todo lo que esté en curso bajo este plazo. Solo cuenta la primera llamada.
+     */
+    public void cancel(String reason) {
+        if (cancelReason == null) {
+            cancelReason = reason;
+            cancelled.tryEmitEmpty();
+        }
+    }
+
+    /**
+     * @throws DeadlineExceededException si el plazo venció o se canceló
+     */
+    public void check() {
+        if (cancelReason != null) {
+            throw new DeadlineExceededException("Request cancelled: " + cancelReason);
+        }
+        if (expiresAtNanos - System.nanoTime() <= 0) {
+            throw new DeadlineExceededException("Request deadline exceeded");
+        }
+    }
+
+    /**
+     * Parte del tiempo restante para una etapa: {@code share} de lo que queda, sin pasar de {@code cap}.
+     *
+     * @throws DeadlineExceededException si ya no queda tiempo
+     */
+    public Duration budget(double share, Duration cap) {
+        check();
+        Duration part = Duration.ofNanos((long) (remaining().toNanos() * share));
+        return part.compareTo(cap) < 0 ? part : cap;
+    }
+
+    /**
+     * Limita una llamada reactiva a {@code budget} (y a lo que quede del plazo) y la
+     * cancela si el plazo se cancela antes de que responda.
+     */
+    public <T> Mono<T> bound(Mono<T> call, Duration budget) {
+        Duration left = remaining();
+        Duration timeout = budget.compareTo(left) < 0 ? budget : left;
+        Mono<T> onCancel = cancelled.asMono()
+                .then(Mono.error(() -> new DeadlineExceededException("Request cancelled: " + cancelReason)));
+        return Mono.firstWithSignal(call.timeout(timeout), onCancel);
+    }
+}
@@ -0,0 +1,12 @@
+package com.saveursmaison.ia.deadline;
+
+/**
+ * Se lanza cuando vence el plazo de la petición o el cliente se fue.
+ * El controlador la traduce a un 504.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -9,6 +9,7 @@ public class PairingChatRequest {
     private List<String> selectedWineIds;
     private List<String> selectedCheeseIds;
     private String userId;
+    private String sessionId; // opcional: continúa una conversación previa
 
     public String getMessage() {
         return message;
@@ -49,4 +50,12 @@ public class PairingChatRequest {
     public void setUserId(String userId) {
         this.userId = userId;
     }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
 }
@@ -1,5 +1,8 @@
 package com.saveursmaison.ia.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 public class PairingChatResponse {
@@ -7,6 +10,23 @@ public class PairingChatResponse {
     private String answer;
     private List<String> recommendedWineIds;
     private List<String> recommendedCheeseIds;
+    private String sessionId;
+
+    /**
+     * Fichas de los productos recomendados, en el mismo orden que los IDs; solo
+     * si se pidieron con {@code ?cards=}.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ProductCard> wineCards;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ProductCard> cheeseCards;
+
+    /**
+     * true si el modelo no dio respuesta utilizable y {@code answer} es el texto
+     * de disculpa. No viaja al cliente.
+     */
+    @JsonIgnore
+    private boolean fallback;
 
     public PairingChatResponse() {
     }
@@ -42,4 +62,36 @@ public class PairingChatResponse {
     public void setRecommendedCheeseIds(List<String> recommendedCheeseIds) {
         this.recommendedCheeseIds = recommendedCheeseIds;
     }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public List<ProductCard> getWineCards() {
+        return wineCards;
+    }
+
+    public void setWineCards(List<ProductCard> wineCards) {
+        this.wineCards = wineCards;
+    }
+
+    public List<ProductCard> getCheeseCards() {
+        return cheeseCards;
+    }
+
+    public void setCheeseCards(List<ProductCard> cheeseCards) {
+        this.cheeseCards = cheeseCards;
+    }
+
+    public boolean isFallback() {
+        return fallback;
+    }
+
+    public void setFallback(boolean fallback) {
+        this.fallback = fallback;
+    }
 }
@@ -0,0 +1,37 @@
+package com.saveursmaison.ia.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estadísticas agregadas de recomendaciones por ventana de tiempo
+ * ("lastHour", "last24Hours", "last7Days").
+ */
+public record PairingStatsResponse(String generatedAt, Map<String, WindowStats> windows) {
+
+    /**
+     * @param topWines   top-K de vinos recomendados por idioma ("all" = todos los idiomas)
+     * @param p50Millis  cota superior del bucket del histograma donde cae el percentil (null = sin datos o &gt; último límite)
+     */
+    public record WindowStats(long requests,
+                              Map<String, Long> modes,
+                              Map<String, Long> locales,
+                              List<LatencyBucket> latencyHistogram,
+                              Long p50Millis,
+                              Long p95Millis,
+                              Map<String, List<ItemCount>> topWines,
+                              Map<String, List<ItemCount>> topCheeses) {
+    }
+
+    /**
+     * Cantidad de respuestas con latencia menor o igual a {@code le} ms ("+Inf" para el último).
+     */
+    public record LatencyBucket(String le, long count) {
+    }
+
+    /**
+     * Conteo aproximado (cota superior) de un producto recomendado.
+     */
+    public record ItemCount(String id, long count) {
+    }
+}
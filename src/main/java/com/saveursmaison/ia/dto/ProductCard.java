@@ -0,0 +1,20 @@
+package com.saveursmaison.ia.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Ficha compacta de un producto recomendado, armada con la foto del catálogo.
+ * Solo lleva los campos pedidos; el resto va en null y no se serializa.
+ * Un producto que ya no está en el catálogo vuelve solo con su ID.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ProductCard(String id,
+                          String name,
+                          Double price,
+                          String type,
+                          String milkType,
+                          String style,
+                          String country,
+                          String region,
+                          Boolean inStock) {
+}
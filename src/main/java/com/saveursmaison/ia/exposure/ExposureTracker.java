@@ -0,0 +1,208 @@
+package com.saveursmaison.ia.exposure;
+
+import com.saveursmaison.ia.catalog.ProductTable;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Cuenta cuántas veces se recomendó cada producto, con decaimiento exponencial
+ * (vida media {@code exposure.half-life}), para repartir las recomendaciones
+ * sin depender del azar.
+ *
+ * Usa "forward decay": cada recomendación suma exp(λ·(t − L)) con L un instante
+ * fijo, así una actualización es un {@link DoubleAdder#add} sin locks y el valor
+ * actual es la suma × exp(−λ·(ahora − L)). Cada pocos días se mueve L para que
+ * los exponentes no desborden (el único momento con lock).
+ */
+@Component
+public class ExposureTracker {
+
+    /**
+     * Se mueve el punto de referencia cuando λ·(t − L) pasa de esto (exp(50) ≈ 5e21, lejos del desborde).
+     */
+    private static final double MAX_EXPONENT = 50;
+
+    private record Epoch(long landmarkMillis, Map<String, DoubleAdder> scores) {
+    }
+
+    private final double lambdaPerMilli;
+    private final LongSupplier clock;
+    private final AtomicReference<Epoch> epoch;
+
+    @Autowired
+    public ExposureTracker(@Value("${exposure.half-life:1h}") Duration halfLife, MeterRegistry meterRegistry) {
+        this(halfLife, System::currentTimeMillis);
+        Gauge.builder("pairing.diversity.effective.products", this, ExposureTracker::effectiveProducts)
+                .description("Productos recomendados 'equivalentes' (exp de la entropía de las exposiciones recientes)")
+                .register(meterRegistry);
+        Gauge.builder("pairing.diversity.top5.share", this, t -> t.topShare(5))
+                .description("Fracción de las exposiciones recientes que se llevan los 5 productos más recomendados")
+                .register(meterRegistry);
+    }
+
+    ExposureTracker(Duration halfLife, LongSupplier clock) {
+        this.lambdaPerMilli = Math.log(2) / halfLife.toMillis();
+        this.clock = clock;
+        this.epoch = new AtomicReference<>(new Epoch(clock.getAsLong(), new ConcurrentHashMap<>()));
+    }
+
+    /**
+     * Registra productos recomendados en una respuesta.
+     */
+    public void record(Collection<String> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        long now = clock.getAsLong();
+        Epoch current = currentEpoch(now);
+        double weight = Math.exp(lambdaPerMilli * (now - current.landmarkMillis()));
+        for (String id : productIds) {
+            DoubleAdder score = current.scores().get(id);
+            if (score == null) {
+                DoubleAdder created = new DoubleAdder();
+                score = current.scores().putIfAbsent(id, created);
+                if (score == null) {
+                    score = created;
+                }
+            }
+            score.add(weight);
+        }
+    }
+
+    /**
+     * Exposición actual (recomendaciones con decaimiento) de un producto.
+     */
+    public double exposure(String productId) {
+        Epoch current = epoch.get();
+        DoubleAdder score = current.scores().get(productId);
+        if (score == null) {
+            return 0.0;
+        }
+        return score.sum() * Math.exp(-lambdaPerMilli * (clock.getAsLong() - current.landmarkMillis()));
+    }
+
+    /**
+     * Las {@code limit} filas menos expuestas (empates por orden de catálogo), devueltas
+     * en orden de catálogo: el listado del prompt solo cambia cuando cambia el conjunto.
+     */
+    public List<Integer> leastExposedRows(ProductTable table, int limit) {
+        double[] exposure = new double[table.size()];
+        for (int row = 0; row < exposure.length; row++) {
+            exposure[row] = exposure(table.id(row));
+        }
+        return IntStream.range(0, table.size())
+                .boxed()
+                .sorted(Comparator.<Integer>comparingDouble(row -> exposure[row]).thenComparingInt(row -> row))
+                .limit(limit)
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * Hasta {@code max} IDs de {@code rows} recomendados bastante más que el promedio
+     * (más del doble y al menos una vez), del más al menos expuesto.
+     */
+    public List<String> overexposedIds(ProductTable table, List<Integer> rows, int max) {
+        if (rows.isEmpty() || max <= 0) {
+            return List.of();
+        }
+        double[] exposure = new double[rows.size()];
+        double total = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            exposure[i] = exposure(table.id(rows.get(i)));
+            total += exposure[i];
+        }
+        double threshold = Math.max(1.0, 2 * total / rows.size());
+        List<Integer> over = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (exposure[i] > threshold) {
+                over.add(i);
+            }
+        }
+        return over.stream()
+                .sorted(Comparator.<Integer>comparingDouble(i -> exposure[i]).reversed())
+                .limit(max)
+                .map(i -> table.id(rows.get(i)))
+                .toList();
+    }
+
+    /**
+     * exp(entropía) de la distribución de exposiciones: 1 si todo va a un producto,
+     * N si se reparte igual entre N.
+     */
+    double effectiveProducts() {
+        List<Double> scores = snapshotScores();
+        double total = scores.stream().mapToDouble(Double::doubleValue).sum();
+        if (total <= 0) {
+            return 0.0;
+        }
+        double entropy = 0;
+        for (double s : scores) {
+            if (s > 0) {
+                double p = s / total;
+                entropy -= p * Math.log(p);
+            }
+        }
+        return Math.exp(entropy);
+    }
+
+    double topShare(int n) {
+        List<Double> scores = snapshotScores();
+        double total = scores.stream().mapToDouble(Double::doubleValue).sum();
+        if (total <= 0) {
+            return 0.0;
+        }
+        double top = scores.stream().sorted(Comparator.reverseOrder()).limit(n).mapToDouble(Double::doubleValue).sum();
+        return top / total;
+    }
+
+    /**
+     * Las sumas sin decaer bastan para proporciones: el factor de decaimiento es común a todas.
+     */
+    private List<Double> snapshotScores() {
+        return epoch.get().scores().values().stream().map(DoubleAdder::sum).toList();
+    }
+
+    private Epoch currentEpoch(long now) {
+        Epoch current = epoch.get();
+        if (lambdaPerMilli * (now - current.landmarkMillis()) < MAX_EXPONENT) {
+            return current;
+        }
+        synchronized (this) {
+            current = epoch.get();
+            if (lambdaPerMilli * (now - current.landmarkMillis()) < MAX_EXPONENT) {
+                return current;
+            }
+            // Reescalar al nuevo punto de referencia. Una suma concurrente al mapa viejo
+            // durante este instante se puede perder; no cambia el orden de forma apreciable.
+            double factor = Math.exp(-lambdaPerMilli * (now - current.landmarkMillis()));
+            Map<String, DoubleAdder> rebased = new ConcurrentHashMap<>();
+            current.scores().forEach((id, score) -> {
+                double value = score.sum() * factor;
+                if (value > 1e-6) {
+                    DoubleAdder adder = new DoubleAdder();
+                    adder.add(value);
+                    rebased.put(id, adder);
+                }
+            });
+            Epoch next = new Epoch(now, rebased);
+            epoch.set(next);
+            return next;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.saveursmaison.ia.idempotency;
+
+/**
+ * Clave de idempotencia inválida, o reusada con otro cuerpo de petición.
+ * El controlador la traduce a 400 / 422.
+ */
+public class IdempotencyKeyException extends RuntimeException {
+
+    private final boolean reused;
+
+    public IdempotencyKeyException(String message, boolean reused) {
+        super(message, null, false, false);
+        this.reused = reused;
+    }
+
+    /**
+     * true si la clave ya se usó con una petición distinta.
+     */
+    public boolean isReused() {
+        return reused;
+    }
+}
@@ -0,0 +1,179 @@
+package com.saveursmaison.ia.idempotency;
+
+import com.saveursmaison.ia.config.IdempotencyProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Peticiones en curso y respuestas recientes por clave de idempotencia, para
+ * que los reintentos de un cliente no repitan la llamada al modelo ni el log.
+ *
+ * - La primera petición con una clave se queda con ella ({@link Claim#isOwner()})
+ *   y publica su respuesta con {@link Claim#complete} o su error con {@link Claim#fail}.
+ * - Un reintento mientras tanto se engancha al mismo resultado; uno posterior
+ *   recibe la respuesta guardada.
+ * - Los errores no se guardan: al fallar se libera la clave y el próximo
+ *   reintento vuelve a ejecutar. Lo mismo con una respuesta de fallback
+ *   ({@link Claim#completeWithoutStoring}).
+ * - La clave va acotada por usuario (o IP) y lleva una huella del cuerpo: la misma
+ *   clave con otra petición es un error del cliente.
+ * - Acotado por {@code idempotency.max-entries} (se descartan las más viejas) y
+ *   por {@code idempotency.ttl}.
+ */
+@Component
+public class IdempotencyStore {
+
+    private record Entry<T>(Object fingerprint, CompletableFuture<T> result, long createdNanos) {
+    }
+
+    /**
+     * Resultado de {@link #claim}: dueño de la ejecución, o enganchado a otra.
+     */
+    public final class Claim<T> {
+
+        private final String key;
+        private final Entry<T> entry;
+        private final boolean owner;
+
+        private Claim(String key, Entry<T> entry, boolean owner) {
+            this.key = key;
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        public boolean isOwner() {
+            return owner;
+        }
+
+        /**
+         * La respuesta de la ejecución original (ya terminada si es un reintento tardío).
+         */
+        public CompletableFuture<T> result() {
+            return entry.result();
+        }
+
+        public void complete(T value) {
+            entry.result().complete(value);
+        }
+
+        /**
+         * Publica la respuesta a los ya enganchados pero no la guarda: libera la
+         * clave y el próximo reintento vuelve a ejecutar (para respuestas de fallback).
+         */
+        public void completeWithoutStoring(T value) {
+            if (entry.result().complete(value)) {
+                synchronized (entries) {
+                    entries.remove(key, entry);
+                }
+            }
+        }
+
+        /**
+         * Publica el error a los enganchados y libera la clave. Solo cuenta la primera vez.
+         */
+        public void fail(Throwable error) {
+            if (entry.result().completeExceptionally(error)) {
+                synchronized (entries) {
+                    entries.remove(key, entry);
+                }
+            }
+        }
+    }
+
+    private final IdempotencyProperties properties;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry<?>> entries;
+
+    private final Counter attached;
+    private final Counter replayed;
+
+    public IdempotencyStore(IdempotencyProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.ttlNanos = properties.getTtl().toNanos();
+        int maxEntries = properties.getMaxEntries();
+        this.entries = new LinkedHashMap<>(256) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<?>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        this.attached = Counter.builder("pairing.idempotency.hits").tag("state", "in-flight")
+                .description("Reintentos enganchados a una petición todavía en curso")
+                .register(meterRegistry);
+        this.replayed = Counter.builder("pairing.idempotency.hits").tag("state", "completed")
+                .description("Reintentos respondidos con la respuesta guardada")
+                .register(meterRegistry);
+        Gauge.builder("pairing.idempotency.entries", this, IdempotencyStore::size)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public String header() {
+        return properties.getHeader();
+    }
+
+    /**
+     * Toma la clave o se engancha a quien la tiene.
+     *
+     * @param scope       a quién pertenece la clave (usuario o IP)
+     * @param key         valor de la cabecera; {@code null} o vacío = sin idempotencia
+     * @param fingerprint identifica el cuerpo de la petición (con {@code equals})
+     * @return {@code null} si no vino clave
+     * @throws IdempotencyKeyException si la clave es inválida o ya se usó con otra petición
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Claim<T> claim(String scope, String key, Object fingerprint) {
+        if (key == null || key.isBlank()) {
+            return null;
+        }
+        if (key.length() > properties.getMaxKeyLength()) {
+            throw new IdempotencyKeyException("Idempotency key longer than " + properties.getMaxKeyLength(), false);
+        }
+        String scopedKey = scope + '|' + key;
+        long now = System.nanoTime();
+        synchronized (entries) {
+            evictExpired(now);
+            Entry<T> existing = (Entry<T>) entries.get(scopedKey);
+            if (existing != null) {
+                if (!existing.fingerprint().equals(fingerprint)) {
+                    throw new IdempotencyKeyException("Idempotency key reused with a different request", true);
+                }
+                (existing.result().isDone() ? replayed : attached).increment();
+                return new Claim<>(scopedKey, existing, false);
+            }
+            Entry<T> created = new Entry<>(fingerprint, new CompletableFuture<>(), now);
+            entries.put(scopedKey, created);
+            return new Claim<>(scopedKey, created, true);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Orden de inserción = orden de creación: las vencidas están al principio.
+     */
+    private void evictExpired(long now) {
+        Iterator<Entry<?>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().createdNanos() <= ttlNanos) {
+                return;
+            }
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,361 @@
+// ia-service/src/main/java/com/saveursmaison/ia/logging/FirestorePairingLogRepository.java
+package com.saveursmaison.ia.logging;
+
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.WriteBatch;
+import com.saveursmaison.ia.config.FirestoreProvider;
+import com.saveursmaison.ia.config.PairingLogLayoutProperties;
+import com.saveursmaison.ia.config.PairingLogWalProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.grpc.Status;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Guarda los logs en la colección plana de Firestore.
+ *
+ * Con {@code pairing-log.wal.enabled} cada log se agrega primero a un WAL local
+ * (ver {@link SegmentedWal}) y un hilo en segundo plano lo manda a Firestore en
+ * lotes. Cada log lleva un ID de documento fijo, así reenviar un lote tras un
+ * fallo no duplica nada. Si Firestore está caído, los logs esperan en disco; un
+ * registro que Firestore rechaza para siempre va al archivo de descartes y no
+ * frena a los demás.
+ *
+ * Con {@code pairing-log.per-user.enabled} los logs van al esquema por usuario
+ * (ver {@link PerUserHistoryLayout}) y el historial se lee del resumen; mientras
+ * el backfill no marque a un usuario como migrado, su historial se completa con
+ * la colección plana.
+ */
+@Repository
+@ConditionalOnProperty(name = "pairing-log.store", havingValue = "firestore", matchIfMissing = true)
+public class FirestorePairingLogRepository implements PairingLogRepository {
+
+    static final String COLLECTION_NAME = "ai_pairing_sessions";
+
+    /**
+     * Cuánto se espera a que Firestore termine de inicializarse antes de dar el log por perdido.
+     */
+    private static final long FIRESTORE_WAIT_MILLIS = 5_000;
+
+    private final FirestoreProvider firestoreProvider;
+    private final PairingLogWalProperties walProperties;
+    private final PairingLogLayoutProperties layoutProperties;
+    private final PerUserHistoryLayout perUser;
+    private final SegmentedWal wal;
+    private final ScheduledExecutorService replayer;
+    private final Counter replayed;
+    private final Counter replayFailures;
+    private final Counter deadLetters;
+
+    public FirestorePairingLogRepository(FirestoreProvider firestoreProvider,
+                                         PairingLogWalProperties walProperties,
+                                         PairingLogLayoutProperties layoutProperties,
+                                         MeterRegistry meterRegistry) {
+        this.firestoreProvider = firestoreProvider;
+        this.walProperties = walProperties;
+        this.layoutProperties = layoutProperties;
+        this.perUser = layoutProperties.isEnabled()
+                ? new PerUserHistoryLayout(layoutProperties.getSummarySize())
+                : null;
+        this.wal = walProperties.isEnabled() ? openWal(walProperties) : null;
+
+        this.replayed = Counter.builder("pairing.log.wal.replayed")
+                .description("Logs enviados a Firestore desde el WAL")
+                .register(meterRegistry);
+        this.replayFailures = Counter.builder("pairing.log.wal.replay.failures")
+                .description("Lotes del WAL que no se pudieron mandar a Firestore (se reintentan)")
+                .register(meterRegistry);
+        this.deadLetters = Counter.builder("pairing.log.wal.dead.letters")
+                .description("Logs que Firestore rechazó para siempre, apartados en el archivo de descartes")
+                .register(meterRegistry);
+
+        if (wal == null) {
+            this.replayer = null;
+            return;
+        }
+        Gauge.builder("pairing.log.wal.backlog.bytes", wal, SegmentedWal::backlogBytes)
+                .description("Bytes del WAL pendientes de mandar a Firestore")
+                .register(meterRegistry);
+        Gauge.builder("pairing.log.wal.dropped.segments", wal, SegmentedWal::droppedSegments)
+                .description("Segmentos borrados sin mandar por superar el tamaño máximo")
+                .register(meterRegistry);
+
+        this.replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pairing-log-replay");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = walProperties.getReplayInterval().toMillis();
+        replayer.scheduleWithFixedDelay(this::replay, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Guarda un log: con WAL es solo un append local; sin WAL, una escritura directa.
+     */
+    @Override
+    public void save(PairingLog log) {
+        // Seteamos createdAt aquí para asegurarnos que siempre vaya
+        log.setCreatedAt(Timestamp.now());
+        log = log.capped();
+        String id = UUID.randomUUID().toString();
+
+        if (wal != null) {
+            try {
+                wal.append(PairingLogCodec.encode(id, log));
+                return;
+            } catch (IOException e) {
+                // Disco lleno o registro enorme: se intenta directo a Firestore
+                e.printStackTrace();
+            }
+        }
+
+        try {
+            Firestore firestore = firestoreProvider.get(FIRESTORE_WAIT_MILLIS);
+            if (perUser != null) {
+                perUser.write(firestore, List.of(new PairingLogCodec.Entry(id, log)), FIRESTORE_WAIT_MILLIS);
+            }
+            if (writesFlat()) {
+                firestore.collection(COLLECTION_NAME)
+                        .document(id)
+                        .set(log)
+                        .get();
+            }
+        } catch (InterruptedException | ExecutionException | TimeoutException | IllegalStateException e) {
+            // Si falla el log, NO debemos romper la respuesta al usuario.
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Manda a Firestore lo pendiente del WAL, en lotes, hasta vaciarlo o fallar.
+     * Solo se avanza el checkpoint cuando el lote quedó confirmado (o sus
+     * registros imposibles quedaron en el archivo de descartes).
+     *
+     * Un fallo pasajero (red, cuota, Firestore caído) deja el lote para el próximo
+     * intento. Si Firestore rechaza el lote por su contenido, se reenvía de a un
+     * registro para apartar solo el culpable.
+     */
+    void replay() {
+        if (!firestoreProvider.isReady()) {
+            return;
+        }
+        try {
+            Firestore firestore = firestoreProvider.get(0);
+            while (true) {
+                SegmentedWal.Batch batch = wal.read(wal.checkpoint(), walProperties.getReplayBatchSize());
+                if (batch.records().isEmpty()) {
+                    wal.commit(batch.next());
+                    return;
+                }
+                List<byte[]> unreadable = new ArrayList<>();
+                List<PairingLogCodec.Entry> entries = decode(batch.records(), unreadable);
+                try {
+                    write(firestore, entries);
+                } catch (ExecutionException | IllegalArgumentException e) {
+                    if (!isPermanent(e)) {
+                        throw e;
+                    }
+                    replayOneByOne(firestore, batch.records().size());
+                    continue;
+                }
+                for (byte[] record : unreadable) {
+                    deadLetter(record, "unreadable record");
+                }
+                wal.commit(batch.next());
+                replayed.increment(entries.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | ExecutionException | TimeoutException | RuntimeException e) {
+            replayFailures.increment();
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reenvía de a uno los próximos {@code count} registros; los que Firestore
+     * rechaza para siempre van al archivo de descartes.
+     */
+    private void replayOneByOne(Firestore firestore, int count)
+            throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        for (int i = 0; i < count; i++) {
+            SegmentedWal.Batch one = wal.read(wal.checkpoint(), 1);
+            if (one.records().isEmpty()) {
+                return;
+            }
+            List<byte[]> unreadable = new ArrayList<>();
+            List<PairingLogCodec.Entry> entries = decode(one.records(), unreadable);
+            try {
+                write(firestore, entries);
+                replayed.increment(entries.size());
+            } catch (ExecutionException | IllegalArgumentException e) {
+                if (!isPermanent(e)) {
+                    throw e;
+                }
+                deadLetter(one.records().get(0), e.toString());
+            }
+            for (byte[] record : unreadable) {
+                deadLetter(record, "unreadable record");
+            }
+            wal.commit(one.next());
+        }
+    }
+
+    /**
+     * Decodifica los registros; los ilegibles quedan en {@code unreadable} para
+     * apartarlos cuando el resto se confirme. Los textos se recortan por si el
+     * registro es anterior al tope.
+     */
+    private static List<PairingLogCodec.Entry> decode(List<byte[]> records, List<byte[]> unreadable) {
+        List<PairingLogCodec.Entry> entries = new ArrayList<>(records.size());
+        for (byte[] record : records) {
+            try {
+                PairingLogCodec.Entry entry = PairingLogCodec.decode(record);
+                entries.add(new PairingLogCodec.Entry(entry.id(), entry.log().capped()));
+            } catch (RuntimeException e) {
+                unreadable.add(record);
+            }
+        }
+        return entries;
+    }
+
+    private void write(Firestore firestore, List<PairingLogCodec.Entry> entries)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (perUser != null) {
+            perUser.write(firestore, entries, FIRESTORE_WAIT_MILLIS);
+        }
+        if (writesFlat()) {
+            CollectionReference collection = firestore.collection(COLLECTION_NAME);
+            WriteBatch write = firestore.batch();
+            for (PairingLogCodec.Entry entry : entries) {
+                write.set(collection.document(entry.id()), entry.log());
+            }
+            write.commit().get(FIRESTORE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Firestore rechazó el contenido (documento demasiado grande, valor inválido):
+     * reintentarlo no sirve de nada.
+     */
+    static boolean isPermanent(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof IllegalArgumentException) {
+                return true;
+            }
+            if (t instanceof ApiException api) {
+                return api.getStatusCode().getCode() == StatusCode.Code.INVALID_ARGUMENT;
+            }
+            if (t instanceof FirestoreException firestore && firestore.getStatus() != null) {
+                return firestore.getStatus().getCode() == Status.Code.INVALID_ARGUMENT;
+            }
+        }
+        return false;
+    }
+
+    private void deadLetter(byte[] record, String reason) throws IOException {
+        Path file = Path.of(walProperties.getDeadLetterFile());
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buf = ByteBuffer.allocate(4 + record.length).putInt(record.length).put(record).flip();
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            // Antes de avanzar el checkpoint el registro tiene que estar en disco
+            channel.force(true);
+        }
+        deadLetters.increment();
+        System.err.println("pairing-log WAL: record of " + record.length + " bytes moved to "
+                + file + " (" + reason + ")");
+    }
+
+    @PreDestroy
+    public void close() {
+        if (replayer != null) {
+            replayer.shutdown();
+            wal.close();
+        }
+    }
+
+    private static SegmentedWal openWal(PairingLogWalProperties properties) {
+        try {
+            return SegmentedWal.open(Path.of(properties.getDir()),
+                    properties.getSegmentBytes(), properties.getMaxTotalBytes());
+        } catch (IOException e) {
+            // Sin WAL se sigue escribiendo directo a Firestore
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private boolean writesFlat() {
+        return perUser == null || layoutProperties.isWriteFlat();
+    }
+
+    /**
+     * Devuelve los últimos N logs de un usuario, ordenados por fecha desc.
+     */
+    @Override
+    public List<PairingLog> findByUserIdOrderByCreatedAtDesc(String userId, int limit) {
+        try {
+            Firestore firestore = firestoreProvider.get(FIRESTORE_WAIT_MILLIS);
+            PerUserHistoryLayout.History history = perUser != null ? perUser.read(firestore, userId, limit) : null;
+            if (perUser != null && !layoutProperties.isFlatFallback()) {
+                return history != null ? history.logs() : Collections.emptyList();
+            }
+            if (history != null && history.migrated()) {
+                return history.logs();
+            }
+            // Sin resumen, o con uno creado antes del backfill que solo tiene lo nuevo
+            List<PairingLogCodec.Entry> flat = firestore
+                    .collection(COLLECTION_NAME)
+                    .whereEqualTo("userId", userId)
+                    .orderBy("createdAt", Query.Direction.DESCENDING)
+                    .limit(limit)
+                    .get()
+                    .get()
+                    .getDocuments()
+                    .stream()
+                    .map(doc -> new PairingLogCodec.Entry(doc.getId(), doc.toObject(PairingLog.class)))
+                    .toList();
+            return history != null
+                    ? PerUserHistoryLayout.newest(history.entries(), flat, limit)
+                    : flat.stream().map(PairingLogCodec.Entry::log).collect(Collectors.toList());
+        } catch (InterruptedException | ExecutionException | IllegalStateException e) {
+            e.printStackTrace();
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.saveursmaison.ia.logging;
+
+import com.google.cloud.Timestamp;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Logs en memoria, por usuario, para desarrollo local y pruebas de carga sin Firestore.
+ * Solo guarda los últimos {@code pairing-log.memory.max-per-user} logs de cada usuario.
+ */
+@Repository
+@ConditionalOnProperty(name = "pairing-log.store", havingValue = "memory")
+public class InMemoryPairingLogRepository implements PairingLogRepository {
+
+    private final Map<String, Deque<PairingLog>> logsByUser = new ConcurrentHashMap<>();
+    private final int maxPerUser;
+
+    public InMemoryPairingLogRepository(@Value("${pairing-log.memory.max-per-user:100}") int maxPerUser) {
+        this.maxPerUser = maxPerUser;
+    }
+
+    @Override
+    public void save(PairingLog log) {
+        log.setCreatedAt(Timestamp.now());
+        Deque<PairingLog> logs = logsByUser.computeIfAbsent(String.valueOf(log.getUserId()), k -> new ArrayDeque<>());
+        synchronized (logs) {
+            logs.addFirst(log);
+            while (logs.size() > maxPerUser) {
+                logs.removeLast();
+            }
+        }
+    }
+
+    @Override
+    public List<PairingLog> findByUserIdOrderByCreatedAtDesc(String userId, int limit) {
+        Deque<PairingLog> logs = logsByUser.get(String.valueOf(userId));
+        if (logs == null) {
+            return List.of();
+        }
+        List<PairingLog> result = new ArrayList<>(Math.min(limit, logs.size()));
+        synchronized (logs) {
+            Iterator<PairingLog> it = logs.iterator();
+            while (it.hasNext() && result.size() < limit) {
+                result.add(it.next());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,36 @@
+package com.saveursmaison.ia.logging;
+
+import com.google.cloud.Timestamp;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Documento resumen de un usuario en el esquema por usuario: sus últimos logs,
+ * del más nuevo al más viejo, para leer el historial con una sola lectura.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PairingHistorySummary {
+
+    private String userId;
+    private List<PairingLog> items;
+
+    /**
+     * ID en la subcolección de cada elemento de {@code items}, en el mismo orden
+     * (sirve para no duplicar al reenviar un lote).
+     */
+    private List<String> itemIds;
+
+    private Timestamp updatedAt;
+
+    /**
+     * El backfill ya pasó por la colección plana: el historial del usuario está
+     * completo aquí. Mientras sea {@code false} (p. ej. el resumen lo creó un log
+     * nuevo antes del backfill) la lectura se completa con la colección plana.
+     */
+    private boolean migrated;
+}
@@ -17,7 +17,15 @@ import java.util.List;
 @AllArgsConstructor
 public class PairingLog {
 
+    /**
+     * Largo máximo de {@code message} y {@code answer} al guardar. Firestore no
+     * acepta documentos de más de 1 MiB y el resumen por usuario junta 20 logs:
+     * con este tope siempre entran.
+     */
+    public static final int MAX_TEXT_CHARS = 4_000;
+
     private String userId;
+    private String sessionId;
     private String locale;
     private String source; // "prompt", "selection", etc.
 
@@ -30,4 +38,31 @@ public class PairingLog {
     private List<String> recommendedCheeseIds;
 
     private Timestamp createdAt;
+
+    /**
+     * Este log si sus textos entran en {@link #MAX_TEXT_CHARS}; si no, una copia recortada.
+     */
+    public PairingLog capped() {
+        if (fits(message) && fits(answer)) {
+            return this;
+        }
+        return new PairingLog(userId, sessionId, locale, source, cap(message), selectedWineIds, selectedCheeseIds,
+                cap(answer), recommendedWineIds, recommendedCheeseIds, createdAt);
+    }
+
+    private static boolean fits(String text) {
+        return text == null || text.length() <= MAX_TEXT_CHARS;
+    }
+
+    private static String cap(String text) {
+        if (fits(text)) {
+            return text;
+        }
+        int end = MAX_TEXT_CHARS;
+        // No partir un par suplente (emoji)
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
 }
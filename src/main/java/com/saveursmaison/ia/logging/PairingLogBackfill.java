@@ -0,0 +1,108 @@
+package com.saveursmaison.ia.logging;
+
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+import com.saveursmaison.ia.config.FirestoreProvider;
+import com.saveursmaison.ia.config.PairingLogBackfillProperties;
+import com.saveursmaison.ia.config.PairingLogLayoutProperties;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Migración de la colección plana {@code ai_pairing_sessions} al esquema por
+ * usuario: recorre la colección por ID de documento, escribe cada página con
+ * {@link PerUserHistoryLayout} (mismos IDs, así que repetir una página no
+ * duplica) y, si se pide, borra la página original. Al recorrerla entera marca
+ * todos los resúmenes como migrados y cierra la app.
+ *
+ * <pre>
+ * java -jar ia-service.jar --spring.main.web-application-type=none \
+ *   --pairing-log.backfill.enabled=true [--pairing-log.backfill.delete-source=true] \
+ *   [--pairing-log.backfill.start-after=&lt;último ID impreso&gt;]
+ * </pre>
+ * Conviene activar antes {@code pairing-log.per-user.enabled} en el servicio,
+ * así lo que llega durante la migración ya va al esquema nuevo. Eso crea
+ * resúmenes que solo tienen los logs nuevos: hasta que el backfill termina y los
+ * marca, el servicio los combina con la colección plana (con
+ * {@code pairing-log.per-user.flat-fallback}, que debe seguir encendido hasta entonces).
+ */
+@Component
+@ConditionalOnProperty(name = "pairing-log.backfill.enabled", havingValue = "true")
+public class PairingLogBackfill implements ApplicationRunner {
+
+    private static final long FIRESTORE_WAIT_MILLIS = 30_000;
+
+    private final FirestoreProvider firestoreProvider;
+    private final PairingLogBackfillProperties properties;
+    private final PerUserHistoryLayout layout;
+    private final ConfigurableApplicationContext context;
+
+    public PairingLogBackfill(FirestoreProvider firestoreProvider,
+                              PairingLogBackfillProperties properties,
+                              PairingLogLayoutProperties layoutProperties,
+                              ConfigurableApplicationContext context) {
+        this.firestoreProvider = firestoreProvider;
+        this.properties = properties;
+        this.layout = new PerUserHistoryLayout(layoutProperties.getSummarySize());
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = 0;
+        try {
+            long moved = backfill(firestoreProvider.get(FIRESTORE_WAIT_MILLIS));
+            System.out.println("pairing-log backfill: done, " + moved + " logs");
+        } catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    long backfill(Firestore firestore) throws Exception {
+        String cursor = properties.getStartAfter();
+        long moved = 0;
+        while (true) {
+            Query page = firestore.collection(FirestorePairingLogRepository.COLLECTION_NAME)
+                    .orderBy(FieldPath.documentId())
+                    .limit(properties.getPageSize());
+            if (cursor != null && !cursor.isEmpty()) {
+                page = page.startAfter(cursor);
+            }
+            List<QueryDocumentSnapshot> docs = page.get().get(FIRESTORE_WAIT_MILLIS, TimeUnit.MILLISECONDS)
+                    .getDocuments();
+            if (docs.isEmpty()) {
+                long marked = layout.markMigrated(firestore, properties.getPageSize(), FIRESTORE_WAIT_MILLIS);
+                System.out.println("pairing-log backfill: " + marked + " users marked as migrated");
+                return moved;
+            }
+
+            List<PairingLogCodec.Entry> entries = docs.stream()
+                    .map(doc -> new PairingLogCodec.Entry(doc.getId(), doc.toObject(PairingLog.class)))
+                    .toList();
+            layout.write(firestore, entries, FIRESTORE_WAIT_MILLIS);
+
+            if (properties.isDeleteSource()) {
+                WriteBatch delete = firestore.batch();
+                docs.forEach(doc -> delete.delete(doc.getReference()));
+                delete.commit().get(FIRESTORE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+
+            moved += docs.size();
+            cursor = docs.get(docs.size() - 1).getId();
+            System.out.println("pairing-log backfill: " + moved + " logs, last id " + cursor);
+        }
+    }
+}
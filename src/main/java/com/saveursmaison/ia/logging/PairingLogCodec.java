@@ -0,0 +1,126 @@
+package com.saveursmaison.ia.logging;
+
+import com.google.cloud.Timestamp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Codificación binaria compacta de un {@link PairingLog} para el WAL.
+ *
+ * Formato (big-endian):
+ * <pre>
+ * byte versión | str id | str userId | str sessionId | str locale | str source | str message
+ * | list selectedWineIds | list selectedCheeseIds | str answer
+ * | list recommendedWineIds | list recommendedCheeseIds | long segundos | int nanos (createdAt)
+ * str:  int largo (-1 = null) | bytes UTF-8
+ * list: int n (-1 = null) | n × str
+ * </pre>
+ */
+final class PairingLogCodec {
+
+    private static final byte VERSION = 1;
+
+    record Entry(String id, PairingLog log) {
+    }
+
+    private PairingLogCodec() {
+    }
+
+    static byte[] encode(String id, PairingLog log) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            writeString(out, id);
+            writeString(out, log.getUserId());
+            writeString(out, log.getSessionId());
+            writeString(out, log.getLocale());
+            writeString(out, log.getSource());
+            writeString(out, log.getMessage());
+            writeList(out, log.getSelectedWineIds());
+            writeList(out, log.getSelectedCheeseIds());
+            writeString(out, log.getAnswer());
+            writeList(out, log.getRecommendedWineIds());
+            writeList(out, log.getRecommendedCheeseIds());
+            Timestamp createdAt = log.getCreatedAt() != null ? log.getCreatedAt() : Timestamp.now();
+            out.writeLong(createdAt.getSeconds());
+            out.writeInt(createdAt.getNanos());
+        } catch (IOException e) {
+            // ByteArrayOutputStream no lanza IOException
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Entry decode(byte[] payload) {
+        ByteBuffer buf = ByteBuffer.wrap(payload);
+        byte version = buf.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported pairing log encoding version " + version);
+        }
+        String id = readString(buf);
+        PairingLog log = PairingLog.builder()
+                .userId(readString(buf))
+                .sessionId(readString(buf))
+                .locale(readString(buf))
+                .source(readString(buf))
+                .message(readString(buf))
+                .selectedWineIds(readList(buf))
+                .selectedCheeseIds(readList(buf))
+                .answer(readString(buf))
+                .recommendedWineIds(readList(buf))
+                .recommendedCheeseIds(readList(buf))
+                .build();
+        log.setCreatedAt(Timestamp.ofTimeSecondsAndNanos(buf.getLong(), buf.getInt()));
+        return new Entry(id, log);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeList(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int len = buf.getInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readList(ByteBuffer buf) {
+        int n = buf.getInt();
+        if (n < 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            values.add(readString(buf));
+        }
+        return values;
+    }
+}
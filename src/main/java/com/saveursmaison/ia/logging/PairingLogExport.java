@@ -0,0 +1,137 @@
+package com.saveursmaison.ia.logging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.saveursmaison.ia.config.FirestoreProvider;
+import com.saveursmaison.ia.config.PairingLogExportProperties;
+import com.saveursmaison.ia.config.PairingLogLayoutProperties;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exporta los logs de Firestore a JSON Lines ({@link PairingReplayRecord} por
+ * línea, del más viejo al más nuevo) para reproducir tráfico real en la prueba
+ * de replay (ver {@code ReplayLoadTest}). Al terminar cierra la app.
+ *
+ * <pre>
+ * java -jar ia-service.jar --spring.main.web-application-type=none \
+ *   --pairing-log.export.enabled=true --pairing-log.export.since=2026-09-01T00:00:00Z \
+ *   [--pairing-log.export.file=data/pairing-replay.jsonl] [--pairing-log.export.limit=50000] \
+ *   [--pairing-log.export.salt=$REPLAY_SALT]
+ * </pre>
+ * Los seudónimos de userId y sessionId usan una clave por exportación (ver
+ * {@code pairing-log.export.salt}) que no se escribe en el archivo.
+ * Lee de la colección plana, o de las subcolecciones {@code pairings} si el
+ * esquema por usuario ya no escribe la plana (necesita el índice de grupo de
+ * colecciones sobre createdAt).
+ */
+@Component
+@ConditionalOnProperty(name = "pairing-log.export.enabled", havingValue = "true")
+public class PairingLogExport implements ApplicationRunner {
+
+    private static final long FIRESTORE_WAIT_MILLIS = 30_000;
+
+    private final FirestoreProvider firestoreProvider;
+    private final PairingLogExportProperties properties;
+    private final PairingLogLayoutProperties layoutProperties;
+    private final ObjectMapper objectMapper;
+    private final ConfigurableApplicationContext context;
+
+    public PairingLogExport(FirestoreProvider firestoreProvider,
+                            PairingLogExportProperties properties,
+                            PairingLogLayoutProperties layoutProperties,
+                            ObjectMapper objectMapper,
+                            ConfigurableApplicationContext context) {
+        this.firestoreProvider = firestoreProvider;
+        this.properties = properties;
+        this.layoutProperties = layoutProperties;
+        this.objectMapper = objectMapper;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = 0;
+        try {
+            long exported = export(firestoreProvider.get(FIRESTORE_WAIT_MILLIS));
+            System.out.println("pairing-log export: done, " + exported + " logs in " + properties.getFile());
+        } catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(context, () -> code));
+    }
+
+    long export(Firestore firestore) throws Exception {
+        Query query = layoutProperties.isEnabled() && !layoutProperties.isWriteFlat()
+                ? firestore.collectionGroup(PerUserHistoryLayout.PAIRINGS_COLLECTION)
+                : firestore.collection(FirestorePairingLogRepository.COLLECTION_NAME);
+        if (properties.getSince() != null && !properties.getSince().isEmpty()) {
+            Instant since = Instant.parse(properties.getSince());
+            query = query.whereGreaterThanOrEqualTo("createdAt",
+                    Timestamp.ofTimeSecondsAndNanos(since.getEpochSecond(), since.getNano()));
+        }
+        query = query.orderBy("createdAt", Query.Direction.ASCENDING);
+
+        Path file = Path.of(properties.getFile());
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        byte[] pseudonymKey = properties.isAnonymize() ? pseudonymKey(properties.getSalt()) : null;
+        long limit = properties.getLimit() > 0 ? properties.getLimit() : Long.MAX_VALUE;
+        long exported = 0;
+        QueryDocumentSnapshot last = null;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            while (exported < limit) {
+                Query page = query.limit((int) Math.min(properties.getPageSize(), limit - exported));
+                if (last != null) {
+                    page = page.startAfter(last);
+                }
+                List<QueryDocumentSnapshot> docs = page.get().get(FIRESTORE_WAIT_MILLIS, TimeUnit.MILLISECONDS)
+                        .getDocuments();
+                if (docs.isEmpty()) {
+                    break;
+                }
+                for (QueryDocumentSnapshot doc : docs) {
+                    PairingReplayRecord record = PairingReplayRecord.of(doc.toObject(PairingLog.class),
+                            pseudonymKey);
+                    out.write(objectMapper.writeValueAsString(record));
+                    out.newLine();
+                }
+                exported += docs.size();
+                last = docs.get(docs.size() - 1);
+                System.out.println("pairing-log export: " + exported + " logs");
+            }
+        }
+        return exported;
+    }
+
+    /**
+     * La sal configurada o, si no hay, 32 bytes aleatorios que mueren con el proceso.
+     */
+    private static byte[] pseudonymKey(String salt) {
+        if (salt != null && !salt.isEmpty()) {
+            return salt.getBytes(StandardCharsets.UTF_8);
+        }
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+}
@@ -0,0 +1,61 @@
+package com.saveursmaison.ia.logging;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Una línea del archivo de replay: lo que mandó el cliente (no lo que respondió
+ * el modelo) y cuándo, para volver a reproducir el tráfico real.
+ *
+ * @param createdAtMillis epoch en ms del log original
+ * @param sessionId       agrupa los turnos de una conversación (el primero se manda sin sessionId)
+ */
+public record PairingReplayRecord(long createdAtMillis,
+                                  String userId,
+                                  String sessionId,
+                                  String locale,
+                                  String source,
+                                  String message,
+                                  List<String> selectedWineIds,
+                                  List<String> selectedCheeseIds) {
+
+    private static final String HMAC = "HmacSHA256";
+
+    /**
+     * @param pseudonymKey clave de los seudónimos de userId y sessionId; {@code null} deja los IDs reales
+     */
+    public static PairingReplayRecord of(PairingLog log, byte[] pseudonymKey) {
+        return new PairingReplayRecord(
+                log.getCreatedAt() == null ? 0 : log.getCreatedAt().toDate().getTime(),
+                pseudonymKey != null ? pseudonym(log.getUserId(), pseudonymKey) : log.getUserId(),
+                pseudonymKey != null ? pseudonym(log.getSessionId(), pseudonymKey) : log.getSessionId(),
+                log.getLocale(),
+                log.getSource(),
+                log.getMessage(),
+                log.getSelectedWineIds(),
+                log.getSelectedCheeseIds()
+        );
+    }
+
+    /**
+     * HMAC-SHA256 corto: con la misma clave el mismo ID da siempre el mismo
+     * seudónimo. Sin la clave no se puede comprobar un ID candidato (un SHA-256
+     * sin sal sí: basta con hashear los IDs conocidos).
+     */
+    static String pseudonym(String id, byte[] key) {
+        if (id == null || id.isEmpty()) {
+            return id;
+        }
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(new SecretKeySpec(key, HMAC));
+            return HexFormat.of().formatHex(mac.doFinal(id.getBytes(StandardCharsets.UTF_8)), 0, 8);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
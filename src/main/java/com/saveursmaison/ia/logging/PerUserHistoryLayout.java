@@ -0,0 +1,231 @@
+package com.saveursmaison.ia.logging;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.Timestamp;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Esquema de historial por usuario en Firestore:
+ * <pre>
+ * ai_pairing_users/{userId}                   resumen con los últimos N logs
+ * ai_pairing_users/{userId}/pairings/{logId}  cada log
+ * </pre>
+ * El historial habitual es una lectura del resumen (en vez de una consulta con
+ * índice compuesto userId + createdAt que cobra una lectura por log). Escribir
+ * cuesta una transacción por usuario y lote: lee el resumen, agrega los logs
+ * nuevos y escribe resumen y logs. Reenviar el mismo lote no duplica: los logs
+ * tienen ID fijo y el resumen se combina por ID.
+ *
+ * Un resumen creado por un log nuevo antes del backfill solo tiene lo nuevo; por
+ * eso lleva {@code migrated = false} hasta que {@link #markMigrated} lo marca al
+ * final del backfill, y hasta entonces la lectura se combina con la colección
+ * plana (ver {@link #newest}).
+ */
+final class PerUserHistoryLayout {
+
+    static final String USERS_COLLECTION = "ai_pairing_users";
+    static final String PAIRINGS_COLLECTION = "pairings";
+
+    private static final Comparator<Map.Entry<String, PairingLog>> NEWEST_FIRST = Comparator.comparing(
+            (Map.Entry<String, PairingLog> e) -> e.getValue().getCreatedAt(),
+            Comparator.nullsLast(Comparator.reverseOrder()));
+
+    /**
+     * Historial leído del esquema por usuario, con el ID de cada log para poder
+     * combinarlo con la colección plana.
+     */
+    record History(List<PairingLogCodec.Entry> entries, boolean migrated) {
+
+        List<PairingLog> logs() {
+            return entries.stream().map(PairingLogCodec.Entry::log).toList();
+        }
+    }
+
+    private final int summarySize;
+
+    PerUserHistoryLayout(int summarySize) {
+        this.summarySize = Math.max(1, summarySize);
+    }
+
+    /**
+     * Escribe los logs y actualiza el resumen de cada usuario; las transacciones
+     * de usuarios distintos van en paralelo.
+     */
+    void write(Firestore firestore, List<PairingLogCodec.Entry> entries, long timeoutMillis)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        Map<String, List<PairingLogCodec.Entry>> byUser = new LinkedHashMap<>();
+        for (PairingLogCodec.Entry entry : entries) {
+            byUser.computeIfAbsent(String.valueOf(entry.log().getUserId()), k -> new ArrayList<>()).add(entry);
+        }
+
+        List<ApiFuture<Void>> transactions = new ArrayList<>(byUser.size());
+        byUser.forEach((userId, added) -> {
+            DocumentReference summaryRef = summaryRef(firestore, userId);
+            transactions.add(firestore.runTransaction(tx -> {
+                DocumentSnapshot snapshot = tx.get(summaryRef).get();
+                PairingHistorySummary existing = snapshot.exists()
+                        ? snapshot.toObject(PairingHistorySummary.class)
+                        : null;
+                for (PairingLogCodec.Entry entry : added) {
+                    tx.set(summaryRef.collection(PAIRINGS_COLLECTION).document(entry.id()), entry.log());
+                }
+                tx.set(summaryRef, merge(userId, existing, added, summarySize));
+                return null;
+            }));
+        });
+        ApiFutures.allAsList(transactions).get(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Los últimos {@code limit} logs del usuario, o {@code null} si todavía no tiene resumen.
+     * Si el resumen no está migrado, lo devuelto puede no ser todo su historial.
+     */
+    History read(Firestore firestore, String userId, int limit)
+            throws InterruptedException, ExecutionException {
+        DocumentReference summaryRef = summaryRef(firestore, userId);
+        DocumentSnapshot snapshot = summaryRef.get().get();
+        if (!snapshot.exists()) {
+            return null;
+        }
+        PairingHistorySummary summary = snapshot.toObject(PairingHistorySummary.class);
+        if (summary == null) {
+            return new History(List.of(), false);
+        }
+        List<PairingLogCodec.Entry> items = entries(summary);
+        if (limit <= items.size() || items.size() < summarySize) {
+            return new History(items.subList(0, Math.min(limit, items.size())), summary.isMigrated());
+        }
+        // Piden más de lo que guarda el resumen: consulta sobre la subcolección (índice de un campo)
+        List<PairingLogCodec.Entry> logs = summaryRef.collection(PAIRINGS_COLLECTION)
+                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .limit(limit)
+                .get()
+                .get()
+                .getDocuments()
+                .stream()
+                .map(doc -> new PairingLogCodec.Entry(doc.getId(), doc.toObject(PairingLog.class)))
+                .toList();
+        return new History(logs, summary.isMigrated());
+    }
+
+    /**
+     * Marca como migrados todos los resúmenes: el backfill lo llama cuando ya
+     * recorrió toda la colección plana. Los logs que lleguen después conservan la
+     * marca (ver {@link #merge}).
+     *
+     * @return cuántos resúmenes se marcaron
+     */
+    long markMigrated(Firestore firestore, int pageSize, long timeoutMillis)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        String cursor = null;
+        long marked = 0;
+        while (true) {
+            Query page = firestore.collection(USERS_COLLECTION)
+                    .orderBy(FieldPath.documentId())
+                    .limit(pageSize);
+            if (cursor != null) {
+                page = page.startAfter(cursor);
+            }
+            List<QueryDocumentSnapshot> docs = page.get().get(timeoutMillis, TimeUnit.MILLISECONDS).getDocuments();
+            if (docs.isEmpty()) {
+                return marked;
+            }
+            WriteBatch batch = firestore.batch();
+            docs.forEach(doc -> batch.update(doc.getReference(), "migrated", true));
+            batch.commit().get(timeoutMillis, TimeUnit.MILLISECONDS);
+            marked += docs.size();
+            cursor = docs.get(docs.size() - 1).getId();
+        }
+    }
+
+    /**
+     * Los {@code limit} logs más nuevos entre el esquema por usuario y la colección
+     * plana, sin repetir los que ya se copiaron (mismo ID en los dos lados).
+     */
+    static List<PairingLog> newest(List<PairingLogCodec.Entry> perUser,
+                                   List<PairingLogCodec.Entry> flat,
+                                   int limit) {
+        Map<String, PairingLog> byId = new LinkedHashMap<>();
+        for (PairingLogCodec.Entry entry : perUser) {
+            byId.put(entry.id(), entry.log());
+        }
+        for (PairingLogCodec.Entry entry : flat) {
+            byId.putIfAbsent(entry.id(), entry.log());
+        }
+        return byId.entrySet().stream()
+                .sorted(NEWEST_FIRST)
+                .limit(limit)
+                .map(Map.Entry::getValue)
+                .toList();
+    }
+
+    /**
+     * Combina el resumen guardado con logs nuevos: sin repetir IDs, del más
+     * nuevo al más viejo y recortado a {@code size}.
+     */
+    static PairingHistorySummary merge(String userId,
+                                       PairingHistorySummary existing,
+                                       List<PairingLogCodec.Entry> added,
+                                       int size) {
+        Map<String, PairingLog> byId = new LinkedHashMap<>();
+        if (existing != null) {
+            for (PairingLogCodec.Entry entry : entries(existing)) {
+                byId.put(entry.id(), entry.log());
+            }
+        }
+        for (PairingLogCodec.Entry entry : added) {
+            // El resumen junta varios logs en un documento de 1 MiB como mucho
+            byId.put(entry.id(), entry.log().capped());
+        }
+        List<Map.Entry<String, PairingLog>> newest = byId.entrySet().stream()
+                .sorted(NEWEST_FIRST)
+                .limit(size)
+                .toList();
+        return new PairingHistorySummary(
+                userId,
+                newest.stream().map(Map.Entry::getValue).toList(),
+                newest.stream().map(Map.Entry::getKey).toList(),
+                Timestamp.now(),
+                existing != null && existing.isMigrated()
+        );
+    }
+
+    private static List<PairingLogCodec.Entry> entries(PairingHistorySummary summary) {
+        if (summary.getItems() == null || summary.getItemIds() == null) {
+            return List.of();
+        }
+        int n = Math.min(summary.getItems().size(), summary.getItemIds().size());
+        List<PairingLogCodec.Entry> entries = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            entries.add(new PairingLogCodec.Entry(summary.getItemIds().get(i), summary.getItems().get(i)));
+        }
+        return entries;
+    }
+
+    private static DocumentReference summaryRef(Firestore firestore, String userId) {
+        return firestore.collection(USERS_COLLECTION).document(documentId(userId));
+    }
+
+    /**
+     * Un ID de Firestore no puede tener '/'; se escapan '%' y '/' como en una URL.
+     */
+    static String documentId(String userId) {
+        return userId.replace("%", "%25").replace("/", "%2F");
+    }
+}
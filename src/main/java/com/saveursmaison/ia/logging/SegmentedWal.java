@@ -0,0 +1,278 @@
+package com.saveursmaison.ia.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Log de escritura anticipada (WAL) en segmentos de tamaño fijo mapeados en memoria.
+ *
+ * - Registro: int largo | int CRC32 | payload. Un largo 0 marca el fin de los datos
+ *   (los segmentos nuevos están en ceros). El largo se escribe último, así un
+ *   registro a medio escribir al caerse el proceso se ve como fin de datos.
+ * - Cuando un registro no entra en el segmento activo se abre el siguiente.
+ * - El lector avanza con {@link #commit}; la posición se guarda en {@code checkpoint}
+ *   y los segmentos ya leídos se borran.
+ * - Si el total pasa de {@code maxTotalBytes} se borran los segmentos más viejos
+ *   aunque no se hayan leído (se cuentan en {@link #droppedSegments()}).
+ *
+ * Todas las operaciones son sincronizadas: un append es una copia en memoria.
+ */
+final class SegmentedWal implements Closeable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final String SUFFIX = ".wal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    /**
+     * Posición dentro del WAL: número de segmento y offset dentro de él.
+     */
+    record Position(long segment, int offset) {
+    }
+
+    /**
+     * Registros leídos y la posición justo después del último.
+     */
+    record Batch(List<byte[]> records, Position next) {
+    }
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long maxTotalBytes;
+
+    /** Segmentos existentes, por número. */
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+
+    private long activeSegment;
+    private MappedByteBuffer active;
+    private int writeOffset;
+
+    private long readSegment = -1;
+    private MappedByteBuffer readBuffer;
+
+    private Position checkpoint;
+    private long droppedSegments;
+
+    private SegmentedWal(Path dir, int segmentBytes, long maxTotalBytes) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    static SegmentedWal open(Path dir, int segmentBytes, long maxTotalBytes) throws IOException {
+        Files.createDirectories(dir);
+        SegmentedWal wal = new SegmentedWal(dir, segmentBytes, maxTotalBytes);
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .forEach(p -> {
+                        String name = p.getFileName().toString();
+                        wal.segments.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), p);
+                    });
+        }
+        wal.checkpoint = wal.readCheckpoint();
+        if (wal.segments.isEmpty()) {
+            wal.openSegment(wal.checkpoint.segment());
+        } else {
+            wal.activeSegment = wal.segments.lastKey();
+            wal.active = wal.map(wal.segments.lastEntry().getValue(), FileChannel.MapMode.READ_WRITE);
+            wal.writeOffset = wal.scanEnd(wal.active);
+        }
+        if (wal.checkpoint.segment() < wal.segments.firstKey()) {
+            wal.checkpoint = new Position(wal.segments.firstKey(), 0);
+        }
+        return wal;
+    }
+
+    synchronized void append(byte[] payload) throws IOException {
+        int size = HEADER_BYTES + payload.length;
+        if (size > segmentBytes) {
+            throw new IOException("WAL record of " + payload.length + " bytes does not fit in a segment");
+        }
+        if (writeOffset + size > segmentBytes) {
+            rotate();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        active.put(writeOffset + HEADER_BYTES, payload);
+        active.putInt(writeOffset + 4, (int) crc.getValue());
+        active.putInt(writeOffset, payload.length);
+        writeOffset += size;
+    }
+
+    /**
+     * Lee hasta {@code max} registros desde {@code from}.
+     */
+    synchronized Batch read(Position from, int max) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        long segment = from.segment();
+        int offset = from.offset();
+        while (records.size() < max) {
+            ByteBuffer buf = bufferFor(segment);
+            int limit = segment == activeSegment ? writeOffset : segmentBytes;
+            byte[] payload = recordAt(buf, offset, limit);
+            if (payload == null) {
+                // Fin del segmento (o cola corrupta en uno viejo): pasar al siguiente
+                Long next = segments.higherKey(segment);
+                if (next == null || segment == activeSegment) {
+                    break;
+                }
+                segment = next;
+                offset = 0;
+                continue;
+            }
+            records.add(payload);
+            offset += HEADER_BYTES + payload.length;
+        }
+        return new Batch(records, new Position(segment, offset));
+    }
+
+    synchronized Position checkpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Marca como procesado todo lo anterior a {@code upTo} y borra los segmentos que ya no hacen falta.
+     */
+    synchronized void commit(Position upTo) throws IOException {
+        if (upTo.segment() < checkpoint.segment()
+                || (upTo.segment() == checkpoint.segment() && upTo.offset() <= checkpoint.offset())) {
+            return;
+        }
+        checkpoint = upTo;
+        writeCheckpoint();
+        while (!segments.isEmpty() && segments.firstKey() < upTo.segment()) {
+            deleteSegment(segments.firstKey());
+        }
+    }
+
+    /**
+     * Bytes escritos que todavía no se confirmaron con {@link #commit}.
+     */
+    synchronized long backlogBytes() {
+        return (activeSegment - checkpoint.segment()) * (long) segmentBytes + writeOffset - checkpoint.offset();
+    }
+
+    synchronized long droppedSegments() {
+        return droppedSegments;
+    }
+
+    @Override
+    public synchronized void close() {
+        active.force();
+    }
+
+    private void rotate() throws IOException {
+        active.force();
+        openSegment(activeSegment + 1);
+        while ((long) segments.size() * segmentBytes > maxTotalBytes && segments.size() > 1) {
+            long oldest = segments.firstKey();
+            if (checkpoint.segment() <= oldest) {
+                // Se pierde lo que no se llegó a mandar; mejor eso que llenar el disco
+                droppedSegments++;
+                checkpoint = new Position(oldest + 1, 0);
+                writeCheckpoint();
+            }
+            deleteSegment(oldest);
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        Path path = dir.resolve(String.format("%020d%s", number, SUFFIX));
+        segments.put(number, path);
+        activeSegment = number;
+        active = map(path, FileChannel.MapMode.READ_WRITE);
+        writeOffset = 0;
+    }
+
+    private void deleteSegment(long number) throws IOException {
+        Path path = segments.remove(number);
+        if (readSegment == number) {
+            readSegment = -1;
+            readBuffer = null;
+        }
+        if (path != null) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private ByteBuffer bufferFor(long segment) throws IOException {
+        if (segment == activeSegment) {
+            return active;
+        }
+        if (readSegment != segment) {
+            Path path = segments.get(segment);
+            if (path == null) {
+                throw new IOException("WAL segment " + segment + " no longer exists");
+            }
+            readBuffer = map(path, FileChannel.MapMode.READ_ONLY);
+            readSegment = segment;
+        }
+        return readBuffer;
+    }
+
+    private MappedByteBuffer map(Path path, FileChannel.MapMode mode) throws IOException {
+        StandardOpenOption[] options = mode == FileChannel.MapMode.READ_WRITE
+                ? new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE}
+                : new StandardOpenOption[]{StandardOpenOption.READ};
+        try (FileChannel channel = FileChannel.open(path, options)) {
+            return channel.map(mode, 0, segmentBytes);
+        }
+    }
+
+    /**
+     * Recorre el segmento hasta el primer registro vacío o inválido (fin tras una caída).
+     */
+    private int scanEnd(ByteBuffer buf) {
+        int offset = 0;
+        byte[] payload;
+        while ((payload = recordAt(buf, offset, segmentBytes)) != null) {
+            offset += HEADER_BYTES + payload.length;
+        }
+        return offset;
+    }
+
+    /**
+     * El payload del registro en {@code offset}, o {@code null} si no hay uno válido.
+     */
+    private static byte[] recordAt(ByteBuffer buf, int offset, int limit) {
+        if (offset + HEADER_BYTES > limit) {
+            return null;
+        }
+        int len = buf.getInt(offset);
+        if (len <= 0 || offset + HEADER_BYTES + len > limit) {
+            return null;
+        }
+        byte[] payload = new byte[len];
+        buf.get(offset + HEADER_BYTES, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue() == buf.getInt(offset + 4) ? payload : null;
+    }
+
+    private Position readCheckpoint() throws IOException {
+        Path path = dir.resolve(CHECKPOINT_FILE);
+        if (!Files.isRegularFile(path)) {
+            return new Position(segments.isEmpty() ? 0 : segments.firstKey(), 0);
+        }
+        ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(path));
+        return new Position(buf.getLong(), buf.getInt());
+    }
+
+    private void writeCheckpoint() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(12).putLong(checkpoint.segment()).putInt(checkpoint.offset());
+        Path tmp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.write(tmp, buf.array());
+        Files.move(tmp, dir.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,97 @@
+package com.saveursmaison.ia.prompt;
+
+import com.saveursmaison.ia.catalog.CatalogSnapshot;
+import com.saveursmaison.ia.catalog.ProductAttribute;
+import com.saveursmaison.ia.catalog.ProductTable;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntFunction;
+
+/**
+ * Línea de prompt de cada producto, renderizada una sola vez por versión del
+ * catálogo y guardada como UTF-8 contiguo (un arreglo por tabla más offsets
+ * por fila). Armar el prompt es agregar tramos de ese arreglo.
+ */
+public final class CatalogPromptLines {
+
+    private final long version;
+    private final Lines wines;
+    private final Lines cheeses;
+
+    private CatalogPromptLines(long version, Lines wines, Lines cheeses) {
+        this.version = version;
+        this.wines = wines;
+        this.cheeses = cheeses;
+    }
+
+    public static CatalogPromptLines render(CatalogSnapshot catalog) {
+        ProductTable wines = catalog.wines();
+        ProductTable cheeses = catalog.cheeses();
+        return new CatalogPromptLines(
+                catalog.version(),
+                Lines.render(wines, row -> String.format(
+                        "- id=%s | name=%s | type=%s | price=%.2f\n",
+                        wines.id(row),
+                        wines.name(row),
+                        wines.attribute(ProductAttribute.TYPE, row),
+                        wines.price(row)
+                )),
+                Lines.render(cheeses, row -> String.format(
+                        "- id=%s | name=%s | price=%.2f\n",
+                        cheeses.id(row),
+                        cheeses.name(row),
+                        cheeses.price(row)
+                ))
+        );
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public Lines wines() {
+        return wines;
+    }
+
+    public Lines cheeses() {
+        return cheeses;
+    }
+
+    /**
+     * Las líneas de una tabla (cada una termina en salto de línea).
+     */
+    public static final class Lines {
+
+        private final byte[] bytes;
+        /** Inicio de cada fila en {@code bytes}; {@code byteOffsets[n]} es el total. */
+        private final int[] byteOffsets;
+        /** Igual, en caracteres. */
+        private final int[] charOffsets;
+
+        private Lines(byte[] bytes, int[] byteOffsets, int[] charOffsets) {
+            this.bytes = bytes;
+            this.byteOffsets = byteOffsets;
+            this.charOffsets = charOffsets;
+        }
+
+        private static Lines render(ProductTable table, IntFunction<String> renderer) {
+            int n = table.size();
+            int[] byteOffsets = new int[n + 1];
+            int[] charOffsets = new int[n + 1];
+            ByteArrayOutputStream out = new ByteArrayOutputStream(n * 64);
+            for (int row = 0; row < n; row++) {
+                String line = renderer.apply(row);
+                out.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+                byteOffsets[row + 1] = out.size();
+                charOffsets[row + 1] = charOffsets[row] + line.length();
+            }
+            return new Lines(out.toByteArray(), byteOffsets, charOffsets);
+        }
+
+        public void appendTo(Utf8Prompt.Builder prompt, int row) {
+            prompt.append(bytes, byteOffsets[row], byteOffsets[row + 1] - byteOffsets[row],
+                    charOffsets[row + 1] - charOffsets[row]);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.saveursmaison.ia.prompt;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Texto de prompt ya codificado en UTF-8, como una secuencia de tramos de
+ * arreglos de bytes. Los tramos pueden apuntar a fragmentos pre-renderizados
+ * (líneas del catálogo, textos fijos) sin copiarlos: el prompt se arma
+ * concatenando referencias y los bytes se copian una sola vez, al escribir
+ * el cuerpo de la petición.
+ */
+public final class Utf8Prompt {
+
+    /**
+     * Texto fijo codificado una vez, con su largo en caracteres.
+     */
+    public static final class Piece {
+
+        private final byte[] bytes;
+        private final int chars;
+
+        private Piece(byte[] bytes, int chars) {
+            this.bytes = bytes;
+            this.chars = chars;
+        }
+
+        public static Piece of(String text) {
+            return new Piece(text.getBytes(StandardCharsets.UTF_8), text.length());
+        }
+    }
+
+    /**
+     * Recibe cada tramo del prompt en orden.
+     */
+    @FunctionalInterface
+    public interface SegmentSink {
+        void accept(byte[] array, int offset, int length);
+    }
+
+    private final byte[][] arrays;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final int count;
+    private final int chars;
+    private final int bytes;
+
+    private Utf8Prompt(byte[][] arrays, int[] offsets, int[] lengths, int count, int chars, int bytes) {
+        this.arrays = arrays;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.count = count;
+        this.chars = chars;
+        this.bytes = bytes;
+    }
+
+    public static Utf8Prompt of(String text) {
+        return builder(1).append(text).build();
+    }
+
+    public static Builder builder(int expectedSegments) {
+        return new Builder(expectedSegments);
+    }
+
+    /**
+     * Largo en caracteres (UTF-16), como {@link String#length()}.
+     */
+    public int length() {
+        return chars;
+    }
+
+    /**
+     * Largo en bytes UTF-8, sin escapar.
+     */
+    public int byteLength() {
+        return bytes;
+    }
+
+    public void writeTo(SegmentSink sink) {
+        for (int i = 0; i < count; i++) {
+            sink.accept(arrays[i], offsets[i], lengths[i]);
+        }
+    }
+
+    /**
+     * Copia el texto a un {@link String}. Solo para logs, tests y proveedores que
+     * no escriben el cuerpo por su cuenta: el camino normal no lo necesita.
+     */
+    @JsonValue
+    @Override
+    public String toString() {
+        byte[] all = new byte[bytes];
+        int[] pos = {0};
+        writeTo((array, offset, length) -> {
+            System.arraycopy(array, offset, all, pos[0], length);
+            pos[0] += length;
+        });
+        return new String(all, StandardCharsets.UTF_8);
+    }
+
+    public static final class Builder {
+
+        private byte[][] arrays;
+        private int[] offsets;
+        private int[] lengths;
+        private int count;
+        private int chars;
+        private int bytes;
+
+        private Builder(int expectedSegments) {
+            int capacity = Math.max(4, expectedSegments);
+            this.arrays = new byte[capacity][];
+            this.offsets = new int[capacity];
+            this.lengths = new int[capacity];
+        }
+
+        public Builder append(Piece piece) {
+            return append(piece.bytes, 0, piece.bytes.length, piece.chars);
+        }
+
+        public Builder append(String text) {
+            return text == null ? append("null") : append(Piece.of(text));
+        }
+
+        public Builder append(long value) {
+            return append(Long.toString(value));
+        }
+
+        /**
+         * Agrega un tramo de un arreglo compartido (no se copia; no debe cambiar después).
+         */
+        public Builder append(byte[] array, int offset, int length, int charCount) {
+            if (length == 0) {
+                return this;
+            }
+            if (count == arrays.length) {
+                int capacity = count * 2;
+                arrays = Arrays.copyOf(arrays, capacity);
+                offsets = Arrays.copyOf(offsets, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+            arrays[count] = array;
+            offsets[count] = offset;
+            lengths[count] = length;
+            count++;
+            chars += charCount;
+            bytes += length;
+            return this;
+        }
+
+        /**
+         * El prompt comparte los arreglos del builder: no seguir agregando después.
+         */
+        public Utf8Prompt build() {
+            return new Utf8Prompt(arrays, offsets, lengths, count, chars, bytes);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.saveursmaison.ia.ratelimit;
+
+import com.saveursmaison.ia.config.RateLimitProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tope global de peticiones /chat en vuelo con una cola de espera corta.
+ *
+ * Si la cola está llena, o el hueco no llega antes de {@code queue-timeout},
+ * la petición se rechaza enseguida con 429 en vez de esperar a que venza el
+ * timeout del cliente. Así los que entran mantienen buena latencia.
+ */
+@Component
+public class LoadShedder {
+
+    private final Semaphore inFlight;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int maxQueued;
+    private final Duration queueTimeout;
+
+    public LoadShedder(RateLimitProperties properties) {
+        this.inFlight = new Semaphore(Math.max(1, properties.getMaxInFlight()), true);
+        this.maxQueued = Math.max(0, properties.getMaxQueued());
+        this.queueTimeout = properties.getQueueTimeout();
+    }
+
+    /**
+     * Reserva un hueco; hay que cerrar el permiso al terminar la petición.
+     */
+    public Permit acquire() {
+        if (inFlight.tryAcquire()) {
+            return new Permit(inFlight);
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            throw overloaded();
+        }
+        try {
+            if (inFlight.tryAcquire(queueTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                return new Permit(inFlight);
+            }
+            throw overloaded();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw overloaded();
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private TooManyRequestsException overloaded() {
+        return new TooManyRequestsException("Service overloaded", Duration.ofSeconds(1));
+    }
+
+    /**
+     * Hueco ocupado en el servicio; se libera una sola vez aunque lo cierren
+     * varios hilos (la tarea al terminar y el timeout de la petición, por ejemplo).
+     */
+    public static final class Permit implements AutoCloseable {
+
+        private final Semaphore semaphore;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+    }
+}
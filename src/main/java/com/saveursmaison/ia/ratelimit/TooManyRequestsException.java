@@ -0,0 +1,28 @@
+package com.saveursmaison.ia.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * Se lanza cuando una petición se rechaza por límite de usuario o por sobrecarga.
+ * El controlador la traduce a un 429 con cabecera Retry-After.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TooManyRequestsException(String message, Duration retryAfter) {
+        super(message, null, false, false);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Segundos para la cabecera Retry-After (mínimo 1).
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+}
@@ -0,0 +1,77 @@
+package com.saveursmaison.ia.ratelimit;
+
+import com.saveursmaison.ia.config.RateLimitProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token bucket por usuario.
+ *
+ * Los buckets viven en un LRU acotado por {@code ratelimit.max-tracked-users}:
+ * un usuario expulsado vuelve con el bucket lleno, que es lo mismo que le
+ * pasaría tras un rato sin peticiones.
+ */
+@Component
+public class UserRateLimiter {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final Map<String, Bucket> buckets;
+
+    public UserRateLimiter(RateLimitProperties properties) {
+        this.capacity = Math.max(1, properties.getUserBurst());
+        this.tokensPerNano = properties.getUserRequestsPerMinute() / (double) Duration.ofMinutes(1).toNanos();
+        int maxTracked = Math.max(1, properties.getMaxTrackedUsers());
+        this.buckets = new LinkedHashMap<>(Math.min(maxTracked, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+                return size() > maxTracked;
+            }
+        };
+    }
+
+    /**
+     * Consume un token del usuario o lanza {@link TooManyRequestsException}
+     * con el tiempo que falta para el siguiente.
+     */
+    public void acquire(String key) {
+        Bucket bucket;
+        synchronized (buckets) {
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(capacity, System.nanoTime()));
+        }
+        long waitNanos = bucket.tryConsume(System.nanoTime());
+        if (waitNanos > 0) {
+            throw new TooManyRequestsException("Rate limit exceeded for user", Duration.ofNanos(waitNanos));
+        }
+    }
+
+    private final class Bucket {
+
+        private double tokens;
+        private long lastRefill;
+
+        private Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+
+        /**
+         * @return 0 si se consumió un token, o los nanos que faltan para tener uno.
+         */
+        synchronized long tryConsume(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            if (tokensPerNano <= 0) {
+                return Duration.ofMinutes(1).toNanos();
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.saveursmaison.ia.routing;
+
+import com.saveursmaison.ia.client.ChatCompletionProvider;
+import com.saveursmaison.ia.client.ChatCompletionRequest;
+import com.saveursmaison.ia.client.ChatCompletionResponse;
+import com.saveursmaison.ia.config.OpenAIProperties;
+import com.saveursmaison.ia.deadline.Deadline;
+import com.saveursmaison.ia.deadline.DeadlineExceededException;
+import com.saveursmaison.ia.scheduling.RequestClass;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Elige el tier de modelo para cada llamada.
+ *
+ * - Selección (página de producto): el tier sano con menor latencia observada.
+ * - Texto libre: el primer tier sano en el orden configurado.
+ * - Prompts que superan {@code maxPromptChars} de un tier no van a ese tier.
+ * - Un tier con mucha tasa de error o latencia por encima de su presupuesto
+ *   queda degradado: solo recibe una petición de prueba cada {@code probe-interval}.
+ * Si la llamada falla se reintenta una vez en el siguiente candidato, siempre
+ * dentro del plazo de la petición: el primer intento no puede gastarlo entero
+ * si queda un reintento posible. Cada intento es un span
+ * ({@code pairing.model.attempt}) con el tier y el modelo.
+ */
+@Component
+public class ModelRouter {
+
+    private static final int MAX_ATTEMPTS = 2;
+
+    /**
+     * Parte del tiempo restante para un intento cuando todavía queda otro.
+     */
+    private static final double FIRST_ATTEMPT_SHARE = 0.6;
+
+    private final List<TierState> tiers;
+    private final ObservationRegistry observationRegistry;
+
+    ModelRouter(OpenAIProperties properties, List<ChatCompletionProvider> providers) {
+        this(properties, providers, ObservationRegistry.NOOP);
+    }
+
+    @Autowired
+    public ModelRouter(OpenAIProperties properties,
+                       List<ChatCompletionProvider> providers,
+                       ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+        Map<String, ChatCompletionProvider> byName = providers.stream()
+                .collect(Collectors.toMap(ChatCompletionProvider::name, Function.identity(), (a, b) -> a));
+
+        List<OpenAIProperties.Tier> configured = properties.getTiers();
+        if (configured == null || configured.isEmpty()) {
+            configured = List.of(new OpenAIProperties.Tier("default", properties.getModel()));
+        }
+
+        this.tiers = configured.stream()
+                .map(tier -> {
+                    ChatCompletionProvider provider = byName.get(tier.getProvider());
+                    if (provider == null) {
+                        throw new IllegalStateException("Unknown chat provider '" + tier.getProvider()
+                                + "' for tier '" + tier.getName() + "'");
+                    }
+                    return new TierState(tier, provider, properties.getDegradedErrorRate(),
+                            properties.getProbeInterval().toNanos());
+                })
+                .toList();
+    }
+
+    /**
+     * Llama al modelo del tier elegido.
+     *
+     * @param requestForModel construye el cuerpo de la petición para un nombre de modelo
+     * @return la respuesta, o {@code null} si todos los intentos fallaron
+     * @throws DeadlineExceededException si el plazo venció o se canceló (el cliente se fue)
+     */
+    public ChatCompletionResponse complete(RequestClass requestClass,
+                                           int promptChars,
+                                           Function<String, ChatCompletionRequest> requestForModel,
+                                           Deadline deadline) {
+        List<TierState> candidates = candidates(requestClass, promptChars);
+        int attempts = Math.min(MAX_ATTEMPTS, candidates.size());
+
+        for (int i = 0; i < attempts && !deadline.isExpired(); i++) {
+            TierState tier = candidates.get(i);
+            boolean retryLeft = i + 1 < attempts;
+            Duration timeout = deadline.budget(retryLeft ? FIRST_ATTEMPT_SHARE : 1.0, tier.config.getLatencyBudget());
+            Observation attempt = Observation.createNotStarted("pairing.model.attempt", observationRegistry)
+                    .contextualName("model " + tier.config.getName())
+                    .lowCardinalityKeyValue("tier", tier.config.getName())
+                    .lowCardinalityKeyValue("model", tier.config.getModel())
+                    .highCardinalityKeyValue("attempt", String.valueOf(i + 1))
+                    .start();
+            long start = System.nanoTime();
+            try (Observation.Scope ignored = attempt.openScope()) {
+                ChatCompletionResponse response = tier.provider.complete(
+                        requestForModel.apply(tier.config.getModel()), deadline, timeout);
+                tier.recordSuccess(System.nanoTime() - start);
+                return response;
+            } catch (Exception ex) {
+                attempt.error(ex);
+                if (deadline.isCancelled()) {
+                    // El cliente se fue: no es culpa del tier
+                    throw new DeadlineExceededException("Request cancelled during model call");
+                }
+                tier.recordFailure(System.nanoTime() - start);
+                ex.printStackTrace();
+            } finally {
+                attempt.stop();
+            }
+        }
+        if (deadline.isExpired()) {
+            throw new DeadlineExceededException("Request deadline exceeded during model call");
+        }
+        return null;
+    }
+
+    List<TierState> candidates(RequestClass requestClass, int promptChars) {
+        long now = System.nanoTime();
+
+        List<TierState> eligible = tiers.stream()
+                .filter(t -> promptChars <= t.config.getMaxPromptChars())
+                .collect(Collectors.toCollection(ArrayList::new));
+        if (eligible.isEmpty()) {
+            eligible = new ArrayList<>(tiers);
+        }
+
+        if (requestClass == RequestClass.SELECTION) {
+            eligible.sort(Comparator.comparingDouble(TierState::latencyNanos));
+        }
+
+        // Sanos primero (conservando el orden), degradados solo como último recurso
+        List<TierState> ordered = new ArrayList<>(eligible.size());
+        List<TierState> degraded = new ArrayList<>();
+        for (TierState tier : eligible) {
+            if (tier.isAvailable(now)) {
+                ordered.add(tier);
+            } else {
+                degraded.add(tier);
+            }
+        }
+        ordered.addAll(degraded);
+        return ordered;
+    }
+
+    /**
+     * Estado observado de un tier: medias móviles de latencia y tasa de error.
+     */
+    static final class TierState {
+
+        private static final double ALPHA = 0.2;
+
+        private final OpenAIProperties.Tier config;
+        private final ChatCompletionProvider provider;
+        private final double degradedErrorRate;
+        private final long probeIntervalNanos;
+        private final long latencyBudgetNanos;
+
+        private double latencyEwma;
+        private double errorEwma;
+        private long lastProbe;
+
+        TierState(OpenAIProperties.Tier config,
+                  ChatCompletionProvider provider,
+                  double degradedErrorRate,
+                  long probeIntervalNanos) {
+            this.config = config;
+            this.provider = provider;
+            this.degradedErrorRate = degradedErrorRate;
+            this.probeIntervalNanos = probeIntervalNanos;
+            this.latencyBudgetNanos = config.getLatencyBudget().toNanos();
+            this.lastProbe = System.nanoTime();
+        }
+
+        synchronized double latencyNanos() {
+            return latencyEwma;
+        }
+
+        synchronized boolean isDegraded() {
+            return errorEwma > degradedErrorRate || latencyEwma > latencyBudgetNanos;
+        }
+
+        /**
+         * Un tier degradado deja pasar una petición de prueba por intervalo para poder recuperarse.
+         */
+        synchronized boolean isAvailable(long now) {
+            if (!isDegraded()) {
+                return true;
+            }
+            if (now - lastProbe >= probeIntervalNanos) {
+                lastProbe = now;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void recordSuccess(long latencyNanos) {
+            if (latencyEwma == 0 || (latencyEwma > latencyBudgetNanos && latencyNanos <= latencyBudgetNanos)) {
+                // Primera muestra, o una prueba rápida tras estar degradado por lentitud
+                latencyEwma = latencyNanos;
+            } else {
+                latencyEwma = latencyEwma + ALPHA * (latencyNanos - latencyEwma);
+            }
+            errorEwma = errorEwma * (1 - ALPHA);
+        }
+
+        synchronized void recordFailure(long latencyNanos) {
+            latencyEwma = latencyEwma == 0 ? latencyNanos : latencyEwma + ALPHA * (latencyNanos - latencyEwma);
+            errorEwma = errorEwma + ALPHA * (1 - errorEwma);
+        }
+    }
+}
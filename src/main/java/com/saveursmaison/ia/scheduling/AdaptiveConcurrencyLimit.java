@@ -0,0 +1,194 @@
+package com.saveursmaison.ia.scheduling;
+
+import com.saveursmaison.ia.config.SchedulerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tope de llamadas simultáneas a OpenAI que se ajusta solo, a partir de lo que
+ * se observa en cada llamada (estilo gradient/AIMD):
+ *
+ * - Cada ventana de muestras compara la latencia reciente con una línea base
+ *   de largo plazo. Si la reciente no supera {@code latency-tolerance} veces la
+ *   base y el tope está en uso, crece hacia tope + √tope; si la supera
+ *   (OpenAI encola), baja en proporción. {@code smoothing} suaviza cada paso.
+ * - Un 429 o 503 de OpenAI baja el tope en el acto ({@code backoff-ratio}),
+ *   como mucho una vez por latencia reciente, así una ráfaga de 429 de las
+ *   mismas llamadas no lo desploma.
+ * - No crece si ni la mitad del tope estuvo en uso: sin carga no hay información.
+ *
+ * {@link RequestScheduler} lee {@link #current()} al repartir huecos; lo que
+ * excede el tope espera en su cola (acotada). Cuando el tope sube, avisa a
+ * quien se registró con {@link #onGrowth} para que reparta los huecos nuevos
+ * sin esperar a que termine una llamada. Con {@code scheduler.adaptive=false}
+ * el tope queda fijo en {@code scheduler.max-concurrent}.
+ */
+@Component
+public class AdaptiveConcurrencyLimit {
+
+    /**
+     * Resultado de una llamada, para alimentar el tope.
+     */
+    public enum Outcome {
+        /** Respondió (o se cortó por tiempo): la latencia cuenta. */
+        SUCCESS,
+        /** OpenAI rechazó por saturación (429/503). */
+        DROPPED,
+        /** Error ajeno a la carga, o el cliente se fue: no se usa. */
+        IGNORED
+    }
+
+    private static final int MIN_WINDOW = 10;
+    private static final double LONG_RTT_ALPHA = 0.05;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final boolean adaptive;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double backoffRatio;
+    private final double smoothing;
+
+    private double limit;
+    private int inFlight;
+
+    // Ventana en curso
+    private long windowRttSum;
+    private int windowSamples;
+    private int windowMaxInFlight;
+
+    private double shortRttNanos;
+    private double longRttNanos;
+    private long lastDecreaseNanos;
+
+    private final Counter dropped;
+    private final List<Runnable> growthListeners = new CopyOnWriteArrayList<>();
+
+    AdaptiveConcurrencyLimit(SchedulerProperties properties) {
+        this(properties, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public AdaptiveConcurrencyLimit(SchedulerProperties properties, MeterRegistry meterRegistry) {
+        this.adaptive = properties.isAdaptive();
+        this.maxLimit = Math.max(1, adaptive ? properties.getAdaptiveMaxConcurrent() : properties.getMaxConcurrent());
+        this.minLimit = Math.max(1, Math.min(maxLimit, properties.getAdaptiveMinConcurrent()));
+        this.tolerance = Math.max(1.0, properties.getLatencyTolerance());
+        this.backoffRatio = Math.min(0.99, Math.max(0.1, properties.getBackoffRatio()));
+        this.smoothing = Math.min(1.0, Math.max(0.01, properties.getSmoothing()));
+        this.limit = Math.max(minLimit, Math.min(maxLimit, properties.getMaxConcurrent()));
+        // El primer 429 siempre cuenta
+        this.lastDecreaseNanos = System.nanoTime() - TimeUnit.HOURS.toNanos(1);
+
+        Gauge.builder("pairing.model.concurrency.limit", this, AdaptiveConcurrencyLimit::current)
+                .description("Llamadas simultáneas a OpenAI permitidas ahora")
+                .register(meterRegistry);
+        Gauge.builder("pairing.model.concurrency.in.flight", this, AdaptiveConcurrencyLimit::inFlight)
+                .description("Llamadas a OpenAI en curso")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("pairing.model.rate.limited")
+                .description("Llamadas rechazadas por OpenAI con 429/503")
+                .register(meterRegistry);
+    }
+
+    /**
+     * {@code listener} corre cada vez que {@link #current()} sube, en el hilo que
+     * cerró la ventana y fuera del monitor de este objeto (puede tomar sus propios locks).
+     */
+    public void onGrowth(Runnable listener) {
+        growthListeners.add(listener);
+    }
+
+    public synchronized int current() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Marca el inicio de una llamada; devuelve el instante para {@link #onComplete}.
+     */
+    public synchronized long onStart() {
+        inFlight++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        return System.nanoTime();
+    }
+
+    public void onComplete(long startNanos, Outcome outcome) {
+        long now = System.nanoTime();
+        long rtt = now - startNanos;
+        boolean grew = false;
+        synchronized (this) {
+            inFlight--;
+            if (!adaptive) {
+                if (outcome == Outcome.DROPPED) {
+                    dropped.increment();
+                }
+                return;
+            }
+            switch (outcome) {
+                case DROPPED -> {
+                    dropped.increment();
+                    // Una baja por "vuelta": las demás llamadas de la misma ráfaga ya estaban en vuelo
+                    if (now - lastDecreaseNanos >= (long) Math.max(shortRttNanos, rtt)) {
+                        limit = Math.max(minLimit, limit * backoffRatio);
+                        lastDecreaseNanos = now;
+                        resetWindow();
+                    }
+                }
+                case SUCCESS -> {
+                    windowRttSum += rtt;
+                    windowSamples++;
+                    if (windowSamples >= Math.max(MIN_WINDOW, (int) limit)) {
+                        int before = (int) limit;
+                        closeWindow();
+                        grew = (int) limit > before;
+                    }
+                }
+                case IGNORED -> {
+                }
+            }
+        }
+        if (grew) {
+            growthListeners.forEach(Runnable::run);
+        }
+    }
+
+    private void closeWindow() {
+        double rtt = (double) windowRttSum / windowSamples;
+        shortRttNanos = rtt;
+        if (longRttNanos == 0) {
+            longRttNanos = rtt;
+        } else {
+            longRttNanos += LONG_RTT_ALPHA * (rtt - longRttNanos);
+            if (longRttNanos > 2 * rtt) {
+                // La latencia bajó mucho (otro modelo, menos tokens): la base se pone al día más rápido
+                longRttNanos *= 0.95;
+            }
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRttNanos / rtt));
+        boolean appLimited = windowMaxInFlight * 2 < limit;
+        double target = gradient < 1.0 ? limit * gradient
+                : appLimited ? limit
+                : limit + Math.sqrt(limit);
+        limit = Math.max(minLimit, Math.min(maxLimit, limit + smoothing * (target - limit)));
+        resetWindow();
+    }
+
+    private void resetWindow() {
+        windowRttSum = 0;
+        windowSamples = 0;
+        windowMaxInFlight = inFlight;
+    }
+}
@@ -0,0 +1,17 @@
+package com.saveursmaison.ia.scheduling;
+
+/**
+ * Clases de prioridad para las llamadas al modelo, de mayor a menor prioridad.
+ */
+public enum RequestClass {
+
+    /**
+     * Flujo guiado desde la página de producto (CHEESE_ONLY / WINE_ONLY): sensible a la latencia.
+     */
+    SELECTION,
+
+    /**
+     * Chat de texto libre (PAIRING): tolera más espera.
+     */
+    FREE_TEXT
+}
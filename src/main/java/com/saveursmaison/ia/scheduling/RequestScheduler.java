@@ -0,0 +1,246 @@
+package com.saveursmaison.ia.scheduling;
+
+import com.saveursmaison.ia.config.SchedulerProperties;
+import com.saveursmaison.ia.ratelimit.TooManyRequestsException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Planificador delante de la llamada a OpenAI.
+ *
+ * - El total de huecos es el tope de {@link AdaptiveConcurrencyLimit}, que se
+ *   mueve con la latencia y los 429 de OpenAI.
+ * - Cada {@link RequestClass} tiene un tope de concurrencia (su fracción del
+ *   total); el texto libre nunca ocupa todos los huecos.
+ * - Al liberarse un hueco (o al subir el tope) se atiende primero a SELECTION
+ *   y luego a FREE_TEXT.
+ * - Dentro de una clase el reparto entre usuarios es justo (start-time fair
+ *   queueing): un usuario con muchas peticiones en cola no adelanta a otro
+ *   que acaba de llegar.
+ */
+@Component
+public class RequestScheduler {
+
+    /**
+     * Tope de etiquetas por clase. Si solo llegan usuarios nuevos el tiempo virtual no
+     * avanza y nada se desaloja; pasado el tope se olvidan, igual que al vaciarse la cola.
+     */
+    private static final int MAX_TRACKED_USERS = 10_000;
+
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final int maxQueuedPerClass;
+    private final Duration maxWait;
+    private final Map<RequestClass, ClassQueue> queues = new EnumMap<>(RequestClass.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private int running;
+    private long sequence;
+
+    RequestScheduler(SchedulerProperties properties) {
+        this(properties, new AdaptiveConcurrencyLimit(properties));
+    }
+
+    @Autowired
+    public RequestScheduler(SchedulerProperties properties, AdaptiveConcurrencyLimit concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+        this.maxQueuedPerClass = Math.max(0, properties.getMaxQueuedPerClass());
+        this.maxWait = properties.getMaxWait();
+        queues.put(RequestClass.SELECTION, new ClassQueue(properties.getSelectionShare()));
+        queues.put(RequestClass.FREE_TEXT, new ClassQueue(properties.getFreeTextShare()));
+        // Sin esto los huecos nuevos quedarían vacíos hasta la próxima llamada que termine
+        concurrencyLimit.onGrowth(this::limitRaised);
+    }
+
+    private static int limitFor(double share, int maxConcurrent) {
+        return Math.max(1, Math.min(maxConcurrent, (int) Math.round(share * maxConcurrent)));
+    }
+
+    /**
+     * Ejecuta {@code task} cuando le toque el turno según su clase y usuario.
+     *
+     * @throws TooManyRequestsException si la cola de la clase está llena o
+     *                                  el turno no llega antes de {@code scheduler.max-wait}.
+     */
+    public <T> T execute(RequestClass requestClass, String userKey, Supplier<T> task) {
+        return execute(requestClass, userKey, maxWait, task);
+    }
+
+    /**
+     * Igual que {@link #execute(RequestClass, String, Supplier)}, esperando el turno como
+     * mucho {@code maxWait} (o {@code scheduler.max-wait} si es menor).
+     */
+    public <T> T execute(RequestClass requestClass, String userKey, Duration maxWait, Supplier<T> task) {
+        ClassQueue queue = queues.get(requestClass);
+        Ticket ticket = enqueue(queue, userKey == null ? "" : userKey);
+        awaitTurn(queue, ticket, maxWait.compareTo(this.maxWait) < 0 ? maxWait : this.maxWait);
+        try {
+            return task.get();
+        } finally {
+            release(queue);
+        }
+    }
+
+    private Ticket enqueue(ClassQueue queue, String userKey) {
+        lock.lock();
+        try {
+            Ticket ticket = new Ticket(lock.newCondition(), sequence++);
+            if (queue.waiting.isEmpty() && canRun(queue)) {
+                grant(queue, ticket);
+                return ticket;
+            }
+            if (queue.waiting.size() >= maxQueuedPerClass) {
+                throw new TooManyRequestsException("Scheduler queue is full", Duration.ofSeconds(1));
+            }
+            double start = Math.max(queue.virtualTime, queue.lastFinish.getOrDefault(userKey, 0.0));
+            ticket.startTag = start;
+            if (queue.lastFinish.size() >= MAX_TRACKED_USERS) {
+                queue.lastFinish.clear();
+            }
+            queue.lastFinish.put(userKey, start + 1.0);
+            queue.waiting.add(ticket);
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void awaitTurn(ClassQueue queue, Ticket ticket, Duration maxWait) {
+        lock.lock();
+        try {
+            long remaining = maxWait.toNanos();
+            while (!ticket.granted) {
+                if (remaining <= 0) {
+                    queue.waiting.remove(ticket);
+                    throw new TooManyRequestsException("Timed out waiting for a model slot", Duration.ofSeconds(1));
+                }
+                try {
+                    remaining = ticket.turn.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    queue.waiting.remove(ticket);
+                    throw new TooManyRequestsException("Interrupted waiting for a model slot", Duration.ofSeconds(1));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(ClassQueue queue) {
+        lock.lock();
+        try {
+            running--;
+            queue.running--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void limitRaised() {
+        lock.lock();
+        try {
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reparte los huecos libres por orden de prioridad de clase.
+     */
+    private void dispatch() {
+        for (RequestClass requestClass : RequestClass.values()) {
+            ClassQueue queue = queues.get(requestClass);
+            boolean advanced = false;
+            while (!queue.waiting.isEmpty() && canRun(queue)) {
+                Ticket next = queue.waiting.poll();
+                advanced |= next.startTag > queue.virtualTime;
+                queue.virtualTime = next.startTag;
+                grant(queue, next);
+            }
+            if (queue.waiting.isEmpty()) {
+                // Sin cola, las etiquetas antiguas ya no aportan nada
+                queue.lastFinish.clear();
+            } else if (advanced) {
+                // Una etiqueta que el tiempo virtual ya alcanzó vale lo mismo que no tenerla:
+                // con cola permanente, sin esto quedaría una entrada por cada usuario que pasó
+                double virtualTime = queue.virtualTime;
+                queue.lastFinish.values().removeIf(finish -> finish <= virtualTime);
+            }
+        }
+    }
+
+    /**
+     * Usuarios con etiqueta de fin pendiente en la cola de la clase (para tests).
+     */
+    int trackedUsers(RequestClass requestClass) {
+        lock.lock();
+        try {
+            return queues.get(requestClass).lastFinish.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Peticiones esperando turno en la cola de la clase (para tests).
+     */
+    int waiting(RequestClass requestClass) {
+        lock.lock();
+        try {
+            return queues.get(requestClass).waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean canRun(ClassQueue queue) {
+        int maxConcurrent = concurrencyLimit.current();
+        return running < maxConcurrent && queue.running < limitFor(queue.share, maxConcurrent);
+    }
+
+    private void grant(ClassQueue queue, Ticket ticket) {
+        running++;
+        queue.running++;
+        ticket.granted = true;
+        ticket.turn.signal();
+    }
+
+    private static final class ClassQueue {
+
+        private final double share;
+        private final PriorityQueue<Ticket> waiting = new PriorityQueue<>(
+                Comparator.comparingDouble((Ticket t) -> t.startTag).thenComparingLong(t -> t.seq));
+        private final Map<String, Double> lastFinish = new HashMap<>();
+        private double virtualTime;
+        private int running;
+
+        private ClassQueue(double share) {
+            this.share = share;
+        }
+    }
+
+    private static final class Ticket {
+
+        private final Condition turn;
+        private final long seq;
+        private double startTag;
+        private boolean granted;
+
+        private Ticket(Condition turn, long seq) {
+            this.turn = turn;
+            this.seq = seq;
+        }
+    }
+}
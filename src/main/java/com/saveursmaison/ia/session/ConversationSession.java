@@ -0,0 +1,135 @@
+package com.saveursmaison.ia.session;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Memoria acotada de una conversación de chat.
+ *
+ * Guarda los últimos {@code maxTurns} turnos completos; los anteriores se
+ * compactan de forma incremental en un resumen corto (cada turno que sale
+ * de la ventana agrega una línea, y si el resumen pasa del máximo se
+ * descartan las líneas más viejas). También guarda la shortlist de productos
+ * candidatos para que los turnos siguientes no manden todo el catálogo.
+ */
+public final class ConversationSession {
+
+    private static final int MAX_MESSAGE_CHARS = 160;
+    private static final int MAX_ANSWER_CHARS = 300;
+
+    private final String id;
+    private final int maxTurns;
+    private final int maxSummaryChars;
+
+    private final Deque<Turn> recentTurns = new ArrayDeque<>();
+    private final Deque<String> summaryLines = new ArrayDeque<>();
+    private int summaryChars;
+
+    private List<String> shortlistWineIds = List.of();
+    private List<String> shortlistCheeseIds = List.of();
+    private String lastMode;
+    private volatile long lastAccess;
+
+    ConversationSession(String id, int maxTurns, int maxSummaryChars) {
+        this.id = id;
+        this.maxTurns = Math.max(1, maxTurns);
+        this.maxSummaryChars = maxSummaryChars;
+        touch();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Un turno ya respondido: mensaje, respuesta y nombres de lo recomendado.
+     */
+    public record Turn(String message, String answer, List<String> recommendedNames) {
+    }
+
+    /**
+     * Estado de la sesión leído de una vez, para armar el prompt sin bloquear la sesión.
+     */
+    public record Context(String summary,
+                          List<Turn> recentTurns,
+                          List<String> shortlistWineIds,
+                          List<String> shortlistCheeseIds,
+                          String lastMode) {
+
+        /**
+         * Contexto de un primer turno (sin historial ni shortlist).
+         */
+        public static Context empty() {
+            return new Context("", List.of(), List.of(), List.of(), null);
+        }
+
+        public boolean isFollowUp() {
+            return !recentTurns.isEmpty();
+        }
+    }
+
+    public synchronized Context context() {
+        touch();
+        return new Context(
+                String.join("\n", summaryLines),
+                List.copyOf(recentTurns),
+                shortlistWineIds,
+                shortlistCheeseIds,
+                lastMode
+        );
+    }
+
+    /**
+     * Registra un turno y actualiza la shortlist y el modo para el siguiente.
+     */
+    public synchronized void recordTurn(String message,
+                                        String answer,
+                                        List<String> recommendedNames,
+                                        String mode,
+                                        List<String> wineShortlist,
+                                        List<String> cheeseShortlist) {
+        touch();
+        recentTurns.addLast(new Turn(truncate(message, MAX_MESSAGE_CHARS), truncate(answer, MAX_ANSWER_CHARS),
+                List.copyOf(recommendedNames)));
+        while (recentTurns.size() > maxTurns) {
+            compact(recentTurns.removeFirst());
+        }
+        this.lastMode = mode;
+        // Si en este turno no hubo candidatos de un tipo se conserva la shortlist anterior
+        if (!wineShortlist.isEmpty()) {
+            this.shortlistWineIds = List.copyOf(wineShortlist);
+        }
+        if (!cheeseShortlist.isEmpty()) {
+            this.shortlistCheeseIds = List.copyOf(cheeseShortlist);
+        }
+    }
+
+    /**
+     * Compacta un turno viejo a una línea y la agrega al resumen.
+     */
+    private void compact(Turn turn) {
+        String line = "- Asked \"" + truncate(turn.message(), 80) + "\""
+                + (turn.recommendedNames().isEmpty() ? "" : " -> suggested " + String.join(", ", turn.recommendedNames()));
+        summaryLines.addLast(line);
+        summaryChars += line.length() + 1;
+        while (summaryChars > maxSummaryChars && summaryLines.size() > 1) {
+            summaryChars -= summaryLines.removeFirst().length() + 1;
+        }
+    }
+
+    long lastAccess() {
+        return lastAccess;
+    }
+
+    private void touch() {
+        lastAccess = System.nanoTime();
+    }
+
+    private static String truncate(String text, int max) {
+        if (text == null) {
+            return "";
+        }
+        return text.length() <= max ? text : text.substring(0, max - 1) + "…";
+    }
+}
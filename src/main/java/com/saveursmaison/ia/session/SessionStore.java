@@ -0,0 +1,81 @@
+package com.saveursmaison.ia.session;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Sesiones de conversación en memoria, acotadas en cantidad (LRU) y en tiempo (TTL sin uso).
+ */
+@Component
+public class SessionStore {
+
+    private final int maxTurns;
+    private final int maxSummaryChars;
+    private final int shortlistSize;
+    private final long ttlNanos;
+    private final Map<String, ConversationSession> sessions;
+
+    public SessionStore(@Value("${session.max-sessions:10000}") int maxSessions,
+                        @Value("${session.max-turns:3}") int maxTurns,
+                        @Value("${session.summary-max-chars:600}") int maxSummaryChars,
+                        @Value("${session.shortlist-size:12}") int shortlistSize,
+                        @Value("${session.ttl:30m}") Duration ttl) {
+        this.maxTurns = maxTurns;
+        this.shortlistSize = shortlistSize;
+        this.maxSummaryChars = maxSummaryChars;
+        this.ttlNanos = ttl.toNanos();
+        int max = Math.max(1, maxSessions);
+        this.sessions = new LinkedHashMap<>(Math.min(max, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ConversationSession> eldest) {
+                return size() > max;
+            }
+        };
+    }
+
+    /**
+     * Cuántos productos por categoría se guardan como candidatos para los turnos siguientes.
+     */
+    public int shortlistSize() {
+        return shortlistSize;
+    }
+
+    /**
+     * Devuelve la sesión con ese ID o crea una nueva (con ID nuevo si no vino o ya expiró).
+     */
+    public ConversationSession resolve(String sessionId) {
+        long now = System.nanoTime();
+        synchronized (sessions) {
+            evictExpired(now);
+            if (sessionId != null && !sessionId.isBlank()) {
+                ConversationSession existing = sessions.get(sessionId);
+                if (existing != null) {
+                    return existing;
+                }
+            }
+            String id = UUID.randomUUID().toString();
+            ConversationSession created = new ConversationSession(id, maxTurns, maxSummaryChars);
+            sessions.put(id, created);
+            return created;
+        }
+    }
+
+    /**
+     * Como el mapa está en orden de acceso, las expiradas están al principio.
+     */
+    private void evictExpired(long now) {
+        Iterator<ConversationSession> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().lastAccess() <= ttlNanos) {
+                break;
+            }
+            it.remove();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.saveursmaison.ia.session;
+
+import com.saveursmaison.ia.catalog.ProductAttribute;
+import com.saveursmaison.ia.catalog.ProductTable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Arma la shortlist de candidatos para los turnos siguientes de una conversación:
+ * lo recomendado más los productos de la misma categoría con precio más cercano
+ * (así "algo más barato" o "algo mejor" tienen alternativas sin mandar todo el catálogo).
+ */
+public final class Shortlist {
+
+    private Shortlist() {
+    }
+
+    public static List<String> around(ProductTable table,
+                                      List<String> recommendedIds,
+                                      ProductAttribute category,
+                                      int size) {
+        Set<String> result = new LinkedHashSet<>();
+        List<Integer> anchors = new ArrayList<>();
+        for (String id : recommendedIds) {
+            int row = table.indexOf(id);
+            if (row >= 0) {
+                result.add(table.id(row));
+                anchors.add(row);
+            }
+        }
+        if (anchors.isEmpty()) {
+            return List.of();
+        }
+
+        for (int anchor : anchors) {
+            String anchorCategory = table.attribute(category, anchor);
+            double anchorPrice = table.price(anchor);
+            int perAnchor = Math.max(1, (size - result.size()) / anchors.size());
+
+            IntStream.range(0, table.size())
+                    .filter(row -> row != anchor && Objects.equals(table.attribute(category, row), anchorCategory))
+                    .boxed()
+                    .sorted(Comparator.comparingDouble(row -> Math.abs(table.price(row) - anchorPrice)))
+                    .limit(perAnchor)
+                    .forEach(row -> result.add(table.id(row)));
+        }
+        return result.stream().limit(size).toList();
+    }
+}
@@ -0,0 +1,195 @@
+package com.saveursmaison.ia.stats;
+
+import com.saveursmaison.ia.dto.PairingStatsResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Agregados en memoria de las recomendaciones, actualizados con cada respuesta.
+ *
+ * - Anillo de 60 buckets por minuto (última hora) y de 168 por hora (24 h y 7 días;
+ *   incluye la hora en curso). Memoria acotada: los buckets se reutilizan y los
+ *   top-K usan sketches Space-Saving de tamaño fijo por idioma.
+ * - Los idiomas distintos se limitan a {@code stats.max-locales}; el resto va a "other".
+ * - La lectura devuelve una foto armada como mucho cada {@code stats.refresh}, así
+ *   consultar el endpoint no recorre los buckets en cada llamada.
+ */
+@Component
+public class PairingStats {
+
+    private static final int MINUTE_SLOTS = 60;
+    private static final int HOUR_SLOTS = 7 * 24;
+    private static final String ALL_LOCALES = "all";
+    private static final String OTHER_LOCALE = "other";
+
+    private final StatsBucket[] minutes = new StatsBucket[MINUTE_SLOTS];
+    private final StatsBucket[] hours = new StatsBucket[HOUR_SLOTS];
+    private final Set<String> knownLocales = new HashSet<>();
+    private final int topK;
+    private final int maxLocales;
+    private final long refreshNanos;
+
+    private volatile PairingStatsResponse cached;
+    private volatile long cachedAtNanos;
+
+    public PairingStats(@Value("${stats.top-k:10}") int topK,
+                        @Value("${stats.sketch-capacity:32}") int sketchCapacity,
+                        @Value("${stats.max-locales:8}") int maxLocales,
+                        @Value("${stats.refresh:1s}") Duration refresh) {
+        this.topK = topK;
+        this.maxLocales = maxLocales;
+        this.refreshNanos = refresh.toNanos();
+        for (int i = 0; i < MINUTE_SLOTS; i++) {
+            minutes[i] = new StatsBucket(sketchCapacity);
+        }
+        for (int i = 0; i < HOUR_SLOTS; i++) {
+            hours[i] = new StatsBucket(sketchCapacity);
+        }
+    }
+
+    /**
+     * Registra una respuesta ya enviada.
+     */
+    public void record(String mode, String locale, Duration latency, List<String> wineIds, List<String> cheeseIds) {
+        long minute = System.currentTimeMillis() / 60_000;
+        long latencyMillis = latency.toMillis();
+        synchronized (this) {
+            String normalized = normalizeLocale(locale);
+            bucket(minutes, minute).add(mode, normalized, latencyMillis, wineIds, cheeseIds);
+            bucket(hours, minute / 60).add(mode, normalized, latencyMillis, wineIds, cheeseIds);
+        }
+    }
+
+    public PairingStatsResponse snapshot() {
+        PairingStatsResponse current = cached;
+        if (current != null && System.nanoTime() - cachedAtNanos < refreshNanos) {
+            return current;
+        }
+        synchronized (this) {
+            if (cached != null && System.nanoTime() - cachedAtNanos < refreshNanos) {
+                return cached;
+            }
+            long minute = System.currentTimeMillis() / 60_000;
+            long hour = minute / 60;
+            Map<String, PairingStatsResponse.WindowStats> windows = new LinkedHashMap<>();
+            windows.put("lastHour", window(minutes, minute - MINUTE_SLOTS));
+            windows.put("last24Hours", window(hours, hour - 24));
+            windows.put("last7Days", window(hours, hour - HOUR_SLOTS));
+            cached = new PairingStatsResponse(Instant.now().toString(), windows);
+            cachedAtNanos = System.nanoTime();
+            return cached;
+        }
+    }
+
+    private static StatsBucket bucket(StatsBucket[] ring, long slot) {
+        StatsBucket bucket = ring[(int) (slot % ring.length)];
+        if (bucket.slot != slot) {
+            bucket.resetTo(slot);
+        }
+        return bucket;
+    }
+
+    private String normalizeLocale(String locale) {
+        String language = locale == null || locale.length() < 2 ? "en" : locale.substring(0, 2).toLowerCase();
+        if (knownLocales.contains(language)) {
+            return language;
+        }
+        if (knownLocales.size() >= maxLocales) {
+            return OTHER_LOCALE;
+        }
+        knownLocales.add(language);
+        return language;
+    }
+
+    /**
+     * Junta los buckets con slot mayor que {@code afterSlot}.
+     */
+    private PairingStatsResponse.WindowStats window(StatsBucket[] ring, long afterSlot) {
+        long requests = 0;
+        Map<String, Long> modes = new HashMap<>();
+        Map<String, Long> locales = new HashMap<>();
+        long[] latency = new long[StatsBucket.LATENCY_BOUNDS_MS.length];
+        Map<String, Map<String, Long>> wines = new HashMap<>();
+        Map<String, Map<String, Long>> cheeses = new HashMap<>();
+
+        for (StatsBucket bucket : ring) {
+            if (bucket.slot <= afterSlot) {
+                continue;
+            }
+            requests += bucket.requests;
+            bucket.modes.forEach((k, v) -> modes.merge(k, v, Long::sum));
+            bucket.locales.forEach((k, v) -> locales.merge(k, v, Long::sum));
+            for (int i = 0; i < latency.length; i++) {
+                latency[i] += bucket.latency[i];
+            }
+            mergeSketches(bucket.wines, wines);
+            mergeSketches(bucket.cheeses, cheeses);
+        }
+
+        List<PairingStatsResponse.LatencyBucket> histogram = new ArrayList<>(latency.length);
+        for (int i = 0; i < latency.length; i++) {
+            long bound = StatsBucket.LATENCY_BOUNDS_MS[i];
+            histogram.add(new PairingStatsResponse.LatencyBucket(
+                    bound == Long.MAX_VALUE ? "+Inf" : String.valueOf(bound), latency[i]));
+        }
+
+        return new PairingStatsResponse.WindowStats(
+                requests,
+                modes,
+                locales,
+                histogram,
+                percentile(latency, requests, 0.50),
+                percentile(latency, requests, 0.95),
+                topByLocale(wines),
+                topByLocale(cheeses)
+        );
+    }
+
+    private static void mergeSketches(Map<String, SpaceSaving> sketches, Map<String, Map<String, Long>> target) {
+        sketches.forEach((locale, sketch) -> {
+            Map<String, Long> forLocale = target.computeIfAbsent(locale, k -> new HashMap<>());
+            Map<String, Long> all = target.computeIfAbsent(ALL_LOCALES, k -> new HashMap<>());
+            sketch.forEach((id, count) -> {
+                forLocale.merge(id, count, Long::sum);
+                all.merge(id, count, Long::sum);
+            });
+        });
+    }
+
+    private Map<String, List<PairingStatsResponse.ItemCount>> topByLocale(Map<String, Map<String, Long>> counts) {
+        Map<String, List<PairingStatsResponse.ItemCount>> top = new LinkedHashMap<>();
+        counts.forEach((locale, byId) -> top.put(locale, byId.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(topK)
+                .map(e -> new PairingStatsResponse.ItemCount(e.getKey(), e.getValue()))
+                .toList()));
+        return top;
+    }
+
+    private static Long percentile(long[] histogram, long total, double q) {
+        if (total == 0) {
+            return null;
+        }
+        long target = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target) {
+                long bound = StatsBucket.LATENCY_BOUNDS_MS[i];
+                return bound == Long.MAX_VALUE ? null : bound;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.saveursmaison.ia.stats;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Sketch Space-Saving para elementos frecuentes: como mucho {@code capacity} contadores.
+ *
+ * Cuando llega un elemento nuevo y no hay lugar, reemplaza al de menor cuenta y
+ * hereda esa cuenta + 1. Los conteos son cotas superiores; cualquier elemento con
+ * frecuencia mayor que total/capacity está garantizado en el sketch.
+ *
+ * No es thread-safe.
+ */
+final class SpaceSaving {
+
+    private final int capacity;
+    private final Map<String, long[]> counts;
+
+    SpaceSaving(int capacity) {
+        this.capacity = capacity;
+        this.counts = new HashMap<>(capacity * 2);
+    }
+
+    void add(String item) {
+        long[] count = counts.get(item);
+        if (count != null) {
+            count[0]++;
+            return;
+        }
+        if (counts.size() < capacity) {
+            counts.put(item, new long[]{1});
+            return;
+        }
+        // Reemplazar el mínimo: O(capacity), solo cuando entra un elemento nuevo
+        String minItem = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<String, long[]> e : counts.entrySet()) {
+            if (e.getValue()[0] < min) {
+                min = e.getValue()[0];
+                minItem = e.getKey();
+            }
+        }
+        counts.remove(minItem);
+        counts.put(item, new long[]{min + 1});
+    }
+
+    void forEach(ObjLongConsumer<String> consumer) {
+        counts.forEach((item, count) -> consumer.accept(item, count[0]));
+    }
+
+    void clear() {
+        counts.clear();
+    }
+}
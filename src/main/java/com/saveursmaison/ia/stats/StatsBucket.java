@@ -0,0 +1,66 @@
+package com.saveursmaison.ia.stats;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Agregados de un intervalo de tiempo (un minuto o una hora). Se reutiliza
+ * cuando el anillo da la vuelta. No es thread-safe; lo sincroniza {@link PairingStats}.
+ */
+final class StatsBucket {
+
+    /**
+     * Límites superiores (ms) del histograma de latencia; el último es +inf.
+     */
+    static final long[] LATENCY_BOUNDS_MS = {100, 250, 500, 1_000, 2_000, 4_000, 8_000, 16_000, Long.MAX_VALUE};
+
+    private final int sketchCapacity;
+
+    long slot = -1;
+    long requests;
+    final Map<String, Long> modes = new HashMap<>();
+    final Map<String, Long> locales = new HashMap<>();
+    final long[] latency = new long[LATENCY_BOUNDS_MS.length];
+    final Map<String, SpaceSaving> wines = new HashMap<>();
+    final Map<String, SpaceSaving> cheeses = new HashMap<>();
+
+    StatsBucket(int sketchCapacity) {
+        this.sketchCapacity = sketchCapacity;
+    }
+
+    void resetTo(long slot) {
+        this.slot = slot;
+        requests = 0;
+        modes.clear();
+        locales.clear();
+        Arrays.fill(latency, 0);
+        wines.values().forEach(SpaceSaving::clear);
+        cheeses.values().forEach(SpaceSaving::clear);
+    }
+
+    void add(String mode, String locale, long latencyMillis, List<String> wineIds, List<String> cheeseIds) {
+        requests++;
+        modes.merge(mode, 1L, Long::sum);
+        locales.merge(locale, 1L, Long::sum);
+        latency[latencyBucket(latencyMillis)]++;
+        if (!wineIds.isEmpty()) {
+            SpaceSaving sketch = wines.computeIfAbsent(locale, k -> new SpaceSaving(sketchCapacity));
+            wineIds.forEach(sketch::add);
+        }
+        if (!cheeseIds.isEmpty()) {
+            SpaceSaving sketch = cheeses.computeIfAbsent(locale, k -> new SpaceSaving(sketchCapacity));
+            cheeseIds.forEach(sketch::add);
+        }
+    }
+
+    private static int latencyBucket(long millis) {
+        for (int i = 0; i < LATENCY_BOUNDS_MS.length; i++) {
+            if (millis <= LATENCY_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return LATENCY_BOUNDS_MS.length - 1;
+    }
+}
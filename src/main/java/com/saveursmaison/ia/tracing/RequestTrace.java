@@ -0,0 +1,92 @@
+package com.saveursmaison.ia.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Etapas de una petición: cada una abre un span hijo del span HTTP en curso
+ * (observación {@code pairing.stage}) y guarda su duración para la cabecera
+ * {@code Server-Timing}.
+ *
+ * Una instancia por petición; las etapas pueden correr en otro hilo que el
+ * que la creó, pero no en paralelo entre sí.
+ */
+public final class RequestTrace {
+
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private static final String STAGE_OBSERVATION = "pairing.stage";
+
+    private record Timing(String name, long nanos) {
+    }
+
+    private final ObservationRegistry registry;
+    private final long startNanos = System.nanoTime();
+    private final List<Timing> timings = new ArrayList<>();
+
+    public RequestTrace(ObservationRegistry registry) {
+        this.registry = registry;
+    }
+
+    public <T> T stage(String name, Supplier<T> work) {
+        Observation observation = Observation.createNotStarted(STAGE_OBSERVATION, registry)
+                .contextualName("stage " + name)
+                .lowCardinalityKeyValue("stage", name);
+        long start = System.nanoTime();
+        try {
+            return observation.observe(work);
+        } finally {
+            record(name, System.nanoTime() - start);
+        }
+    }
+
+    public void stage(String name, Runnable work) {
+        stage(name, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Agrega una duración medida aparte (sin span propio), p.ej. la espera de turno.
+     */
+    public synchronized void record(String name, long nanos) {
+        timings.add(new Timing(name, nanos));
+    }
+
+    /**
+     * Marca con error el span en curso aunque la etapa no lance excepción
+     * (p.ej. el modelo falló y se responde con el fallback). Así el muestreo
+     * por cola guarda la traza.
+     */
+    public void error(Throwable error) {
+        Observation current = registry.getCurrentObservation();
+        if (current != null) {
+            current.error(error);
+        }
+    }
+
+    /**
+     * Valor de {@code Server-Timing}: una entrada por etapa más el total, en ms.
+     */
+    public synchronized String serverTiming() {
+        StringBuilder sb = new StringBuilder();
+        for (Timing t : timings) {
+            appendEntry(sb, t.name(), t.nanos());
+        }
+        appendEntry(sb, "total", System.nanoTime() - startNanos);
+        return sb.toString();
+    }
+
+    private static void appendEntry(StringBuilder sb, String name, long nanos) {
+        if (!sb.isEmpty()) {
+            sb.append(", ");
+        }
+        sb.append(name).append(";dur=").append(String.format(Locale.ROOT, "%.1f", nanos / 1_000_000.0));
+    }
+}
@@ -0,0 +1,186 @@
+package com.saveursmaison.ia.tracing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Muestreo por cola: junta los spans de cada traza hasta que termina su span
+ * raíz local y recién ahí decide si exportarla.
+ *
+ * Se guarda siempre una traza con algún span en error, con respuesta 5xx o que
+ * tardó al menos {@code slowThreshold}; del resto solo {@code sampleRate}.
+ * Las trazas que nunca cierran su raíz se descartan al pasar de
+ * {@code maxPendingTraces} (las más viejas primero).
+ */
+public final class TailSamplingSpanProcessor implements SpanProcessor {
+
+    /** Tag de las observaciones HTTP de Spring (SUCCESS, CLIENT_ERROR, SERVER_ERROR...). */
+    private static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("outcome");
+
+    private final SpanExporter exporter;
+    private final long slowNanos;
+    private final double sampleRate;
+    private final int maxPendingTraces;
+    private final int maxSpansPerTrace;
+
+    /** Spans terminados por traceId, en orden de llegada de la traza. */
+    private final LinkedHashMap<String, List<SpanData>> pending = new LinkedHashMap<>();
+
+    private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "trace-export");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Counter keptError;
+    private final Counter keptSlow;
+    private final Counter keptSampled;
+    private final Counter dropped;
+    private final Counter evicted;
+
+    public TailSamplingSpanProcessor(SpanExporter exporter,
+                                     Duration slowThreshold,
+                                     double sampleRate,
+                                     int maxPendingTraces,
+                                     int maxSpansPerTrace,
+                                     MeterRegistry meterRegistry) {
+        this.exporter = exporter;
+        this.slowNanos = slowThreshold.toNanos();
+        this.sampleRate = sampleRate;
+        this.maxPendingTraces = maxPendingTraces;
+        this.maxSpansPerTrace = maxSpansPerTrace;
+
+        this.keptError = keptCounter(meterRegistry, "error");
+        this.keptSlow = keptCounter(meterRegistry, "slow");
+        this.keptSampled = keptCounter(meterRegistry, "sampled");
+        this.dropped = Counter.builder("tracing.traces.dropped")
+                .description("Trazas descartadas por el muestreo por cola")
+                .register(meterRegistry);
+        this.evicted = Counter.builder("tracing.traces.evicted")
+                .description("Trazas descartadas porque su span raíz no terminó a tiempo")
+                .register(meterRegistry);
+    }
+
+    private static Counter keptCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("tracing.traces.kept")
+                .description("Trazas exportadas, por motivo")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        SpanData data = span.toSpanData();
+        SpanContext parent = data.getParentSpanContext();
+        boolean localRoot = !parent.isValid() || parent.isRemote();
+
+        List<SpanData> trace;
+        synchronized (pending) {
+            trace = localRoot ? pending.remove(data.getTraceId()) : pending.get(data.getTraceId());
+            if (trace == null) {
+                trace = new ArrayList<>();
+                if (!localRoot) {
+                    pending.put(data.getTraceId(), trace);
+                    evictOverflow();
+                }
+            }
+            if (trace.size() < maxSpansPerTrace) {
+                trace.add(data);
+            }
+        }
+        if (localRoot) {
+            decide(data, trace);
+        }
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    private void decide(SpanData root, List<SpanData> trace) {
+        Counter reason = keepReason(root, trace);
+        if (reason == null) {
+            dropped.increment();
+            return;
+        }
+        reason.increment();
+        try {
+            exportExecutor.execute(() -> exporter.export(trace));
+        } catch (RejectedExecutionException e) {
+            // Apagando: la traza se pierde
+        }
+    }
+
+    private Counter keepReason(SpanData root, List<SpanData> trace) {
+        for (SpanData span : trace) {
+            if (span.getStatus().getStatusCode() == StatusCode.ERROR
+                    || "SERVER_ERROR".equals(span.getAttributes().get(OUTCOME))) {
+                return keptError;
+            }
+        }
+        if (root.getEndEpochNanos() - root.getStartEpochNanos() >= slowNanos) {
+            return keptSlow;
+        }
+        return ThreadLocalRandom.current().nextDouble() < sampleRate ? keptSampled : null;
+    }
+
+    /**
+     * Llamar con el lock de {@code pending} tomado.
+     */
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, List<SpanData>>> it = pending.entrySet().iterator();
+        while (pending.size() > maxPendingTraces && it.hasNext()) {
+            it.next();
+            it.remove();
+            evicted.increment();
+        }
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return exporter.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        exportExecutor.shutdown();
+        try {
+            exportExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return exporter.shutdown();
+    }
+}
@@ -0,0 +1,31 @@
+package com.saveursmaison.ia.warmup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * "warmUp" en /actuator/health: OUT_OF_SERVICE hasta que termina el warm-up.
+ * Forma parte del grupo de readiness (ver application.properties).
+ */
+@Component
+public class WarmUpHealthIndicator implements HealthIndicator {
+
+    private final WarmUpService warmUpService;
+
+    public WarmUpHealthIndicator(WarmUpService warmUpService) {
+        this.warmUpService = warmUpService;
+    }
+
+    @Override
+    public Health health() {
+        if (!warmUpService.isDone()) {
+            return Health.outOfService().withDetail("warmUp", "running").build();
+        }
+        Health.Builder builder = Health.up();
+        if (warmUpService.getFailure() != null) {
+            builder.withDetail("warmUpFailure", warmUpService.getFailure());
+        }
+        return builder.build();
+    }
+}
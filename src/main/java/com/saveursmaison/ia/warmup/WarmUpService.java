@@ -0,0 +1,202 @@
+package com.saveursmaison.ia.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saveursmaison.ia.catalog.CatalogSnapshot;
+import com.saveursmaison.ia.catalog.CatalogStore;
+import com.saveursmaison.ia.client.ChatCompletionRequest;
+import com.saveursmaison.ia.client.ChatCompletionResponse;
+import com.saveursmaison.ia.dto.CheeseForAiDto;
+import com.saveursmaison.ia.dto.PairingChatRequest;
+import com.saveursmaison.ia.dto.PairingChatResponse;
+import com.saveursmaison.ia.dto.PairingHistoryItemResponse;
+import com.saveursmaison.ia.dto.WineForAiDto;
+import com.saveursmaison.ia.prompt.Utf8Prompt;
+import com.saveursmaison.ia.service.PairingAIService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calienta la instancia antes de que reciba tráfico.
+ *
+ * Corre en segundo plano al arrancar (el servidor web ya responde a liveness)
+ * y hasta que termina el grupo de readiness no reporta UP:
+ * 1. Trae el catálogo (y abre las conexiones a catalog-service).
+ * 2. Abre la conexión TLS con la API del modelo sin llamar al modelo (GET /models).
+ * 3. Ejercita el armado de prompts y los codecs JSON con datos sintéticos,
+ *    para que el JIT y la introspección de Jackson ya estén hechos.
+ * Si tarda más de {@code warmup.timeout} se da por terminado igual.
+ */
+@Component
+public class WarmUpService implements ApplicationListener<ApplicationStartedEvent> {
+
+    private static final String SAMPLE_MODEL_OUTPUT = """
+            {"answer":"Warm-up","recommendedWineIds":["w1"],"recommendedCheeseIds":["c1"]}""";
+
+    private final CatalogStore catalogStore;
+    private final PairingAIService pairingAIService;
+    private final WebClient openAIClient;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int iterations;
+    private final Duration timeout;
+
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private volatile String failure;
+
+    /**
+     * Resultado del trabajo de warm-up; se guarda para que el JIT no lo elimine.
+     */
+    private volatile long checksum;
+
+    public WarmUpService(CatalogStore catalogStore,
+                         PairingAIService pairingAIService,
+                         @Qualifier("openAIWebClient") WebClient openAIWebClient,
+                         ObjectMapper objectMapper,
+                         @Value("${warmup.enabled:true}") boolean enabled,
+                         @Value("${warmup.iterations:300}") int iterations,
+                         @Value("${warmup.timeout:30s}") Duration timeout) {
+        this.catalogStore = catalogStore;
+        this.pairingAIService = pairingAIService;
+        this.openAIClient = openAIWebClient;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationStartedEvent event) {
+        if (!enabled) {
+            done.complete(null);
+            return;
+        }
+        CompletableFuture.runAsync(this::warmUp)
+                .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((ok, ex) -> {
+                    if (ex != null) {
+                        failure = ex.toString();
+                        ex.printStackTrace();
+                    }
+                    // Con o sin error, la instancia pasa a estar lista: mejor servir algo que nada
+                    done.complete(null);
+                });
+    }
+
+    public boolean isDone() {
+        return done.isDone();
+    }
+
+    public String getFailure() {
+        return failure;
+    }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+
+        // 1. Catálogo real (si catalog-service no responde se usa uno sintético)
+        CatalogSnapshot catalog = catalogStore.current();
+        if (catalog.isEmpty()) {
+            catalog = syntheticCatalog();
+        }
+
+        // 2. Conexión con la API del modelo, sin gastar tokens
+        openAIClient.get()
+                .uri("/models")
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(Duration.ofSeconds(5))
+                .onErrorResume(ex -> Mono.empty())
+                .block();
+
+        // 3. Prompt builder + codecs JSON
+        List<PairingChatRequest> samples = sampleRequests(catalog);
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += pairingAIService.warmUp(catalog, samples, SAMPLE_MODEL_OUTPUT);
+            sink += exerciseCodecs(samples);
+        }
+
+        checksum = sink;
+        System.out.printf("ia-service warm-up done in %d ms (%d iterations)%n",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), iterations);
+    }
+
+    private long exerciseCodecs(List<PairingChatRequest> samples) {
+        try {
+            long bytes = 0;
+            for (PairingChatRequest request : samples) {
+                byte[] json = objectMapper.writeValueAsBytes(request);
+                bytes += objectMapper.readValue(json, PairingChatRequest.class).getMessage().length();
+            }
+            PairingChatResponse response = new PairingChatResponse("Warm-up", List.of("w1"), List.of("c1"));
+            bytes += objectMapper.writeValueAsBytes(response).length;
+            bytes += objectMapper.writeValueAsBytes(List.of(new PairingHistoryItemResponse(
+                    "warmup", "en", "prompt", "msg", List.of(), List.of(), "answer",
+                    List.of("w1"), List.of("c1"), "2024-01-01T00:00:00Z"))).length;
+            bytes += objectMapper.writeValueAsBytes(new ChatCompletionRequest("model",
+                    List.of(new ChatCompletionRequest.Message("user", Utf8Prompt.of("hi"))), 600, 0.8)).length;
+            ChatCompletionResponse completion = objectMapper.readValue(
+                    "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"ok\"}}]}",
+                    ChatCompletionResponse.class);
+            bytes += completion.choices().size();
+            return bytes;
+        } catch (Exception e) {
+            throw new IllegalStateException("JSON warm-up failed", e);
+        }
+    }
+
+    private static List<PairingChatRequest> sampleRequests(CatalogSnapshot catalog) {
+        String wineId = catalog.wines().isEmpty() ? "w1" : catalog.wines().id(0);
+        String cheeseId = catalog.cheeses().isEmpty() ? "c1" : catalog.cheeses().id(0);
+
+        PairingChatRequest withWine = request("Which cheese goes with this wine?");
+        withWine.setSelectedWineIds(List.of(wineId));
+        PairingChatRequest withCheese = request("Which wine goes with this cheese?");
+        withCheese.setSelectedCheeseIds(List.of(cheeseId));
+        PairingChatRequest freeText = request("I want 2 wines and a cheese for a dinner");
+
+        return List.of(withWine, withCheese, freeText);
+    }
+
+    private static PairingChatRequest request(String message) {
+        PairingChatRequest request = new PairingChatRequest();
+        request.setMessage(message);
+        request.setLocale("en");
+        request.setUserId("warmup");
+        return request;
+    }
+
+    private static CatalogSnapshot syntheticCatalog() {
+        List<WineForAiDto> wines = new ArrayList<>();
+        List<CheeseForAiDto> cheeses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            WineForAiDto w = new WineForAiDto();
+            w.setId("w" + i);
+            w.setName("Wine " + i);
+            w.setType(i % 2 == 0 ? "Red" : "White");
+            w.setPrice(10.0 + i);
+            w.setInStock(true);
+            wines.add(w);
+
+            CheeseForAiDto c = new CheeseForAiDto();
+            c.setId("c" + i);
+            c.setName("Cheese " + i);
+            c.setMilkType("Cow");
+            c.setPrice(5.0 + i);
+            c.setInStock(true);
+            cheeses.add(c);
+        }
+        return CatalogSnapshot.of(wines, cheeses);
+    }
+}
@@ -0,0 +1,139 @@
+package com.saveursmaison.ia.batching;
+
+import com.saveursmaison.ia.deadline.Deadline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MicroBatcherTest {
+
+    private final List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+    private final ExecutorService batchExecutor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void stopExecutor() {
+        batchExecutor.shutdownNow();
+    }
+
+    @Test
+    void concurrentItemsWithTheSameKeyShareOneCallAndMissingAnswersComeBackNull() throws Exception {
+        // Los impares "no se pudieron parsear"
+        MicroBatcher<String, Integer, String> batcher = new MicroBatcher<>(4, Duration.ofSeconds(2), (key, items) -> {
+            batches.add(items);
+            return items.stream().map(i -> i % 2 == 0 ? key + i : null).toList();
+        }, batchExecutor, new SimpleMeterRegistry());
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int item = i;
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return batcher.submit(item < 4 ? "a" : "b", item, Deadline.after(Duration.ofSeconds(5)));
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < 8; i++) {
+                String result = results.get(i).get(5, TimeUnit.SECONDS);
+                if (i % 2 == 0) {
+                    assertEquals((i < 4 ? "a" : "b") + i, result);
+                } else {
+                    assertNull(result);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        // Lotes llenos: salen sin esperar la ventana
+        assertEquals(2, batches.size());
+        assertEquals(4, batches.get(0).size());
+    }
+
+    @Test
+    void failedCallReachesEveryItemInsteadOfACallPerItem() throws Exception {
+        IllegalStateException down = new IllegalStateException("model down");
+        MicroBatcher<String, Integer, String> batcher = new MicroBatcher<>(2, Duration.ofSeconds(2), (key, items) -> {
+            batches.add(items);
+            throw down;
+        }, batchExecutor, new SimpleMeterRegistry());
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                int item = i;
+                results.add(pool.submit(() -> batcher.submit("a", item, Deadline.after(Duration.ofSeconds(5)))));
+            }
+            for (Future<String> result : results) {
+                ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertSame(down, failure.getCause());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    void errorInTheCallStillReleasesEveryItem() {
+        MicroBatcher<String, Integer, String> batcher = new MicroBatcher<>(4, Duration.ofMillis(10), (key, items) -> {
+            throw new AssertionError("not a RuntimeException");
+        }, batchExecutor, new SimpleMeterRegistry());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(2),
+                () -> assertNull(batcher.submit("a", 1, Deadline.after(Duration.ofSeconds(30)))));
+    }
+
+    @Test
+    void cancellingTheLeaderDoesNotInterruptTheCallForTheFollower() throws Exception {
+        CountDownLatch callStarted = new CountDownLatch(1);
+        CountDownLatch releaseCall = new CountDownLatch(1);
+        MicroBatcher<String, Integer, String> batcher = new MicroBatcher<>(2, Duration.ofSeconds(2), (key, items) -> {
+            callStarted.countDown();
+            try {
+                releaseCall.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("the batch call was interrupted");
+            }
+            return items.stream().map(i -> key + i).toList();
+        }, batchExecutor, new SimpleMeterRegistry());
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> leader = pool.submit(() -> batcher.submit("a", 0, Deadline.after(Duration.ofSeconds(5))));
+            // El seguidor entra cuando el líder ya abrió el lote (la ventana es de 2 s)
+            Thread.sleep(100);
+            Future<String> follower = pool.submit(() -> batcher.submit("a", 1, Deadline.after(Duration.ofSeconds(5))));
+            assertTrue(callStarted.await(5, TimeUnit.SECONDS));
+
+            // Lo que hace el controlador cuando vence el plazo del líder
+            leader.cancel(true);
+            releaseCall.countDown();
+
+            assertEquals("a1", follower.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
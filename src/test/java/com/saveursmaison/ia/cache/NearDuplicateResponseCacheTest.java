@@ -0,0 +1,129 @@
+package com.saveursmaison.ia.cache;
+
+import com.saveursmaison.ia.config.ResponseCacheProperties;
+import com.saveursmaison.ia.dto.AiPairingResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class NearDuplicateResponseCacheTest {
+
+    private static final String SCOPE = NearDuplicateResponseCache.scope("PAIRING", "en", 42L, 1, 1);
+
+    @Test
+    void rewordedMessageHitsAndDifferentOneMisses() {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        properties.setVerifySampleRate(0);
+        NearDuplicateResponseCache cache = new NearDuplicateResponseCache(properties, new SimpleMeterRegistry());
+
+        cache.put(SCOPE, "A red wine for brie", result("wine-1", "cheese-1"), Duration.ofMillis(900));
+
+        NearDuplicateResponseCache.Hit hit = cache.find(SCOPE, "red wine to go with brie please");
+        assertNotNull(hit);
+        assertEquals(List.of("wine-1"), hit.result().getRecommendedWineIds());
+
+        assertNull(cache.find(SCOPE, "a white wine for roquefort"));
+        assertNull(cache.find(NearDuplicateResponseCache.scope("PAIRING", "es", 42L, 1, 1), "a red wine for brie"));
+        assertNull(cache.find(NearDuplicateResponseCache.scope("PAIRING", "en", 43L, 1, 1), "a red wine for brie"));
+    }
+
+    @Test
+    void falseHitIsCountedAndEvicted() {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        properties.setVerifySampleRate(1.0);
+        NearDuplicateResponseCache cache = new NearDuplicateResponseCache(properties, new SimpleMeterRegistry());
+        cache.put(SCOPE, "a red wine for brie", result("wine-1", "cheese-1"), Duration.ofMillis(900));
+
+        NearDuplicateResponseCache.Hit hit = cache.find(SCOPE, "red wine for brie");
+        cache.verify(hit, result("wine-7", "cheese-9"));
+
+        assertEquals(1.0, cache.falseHitRate());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void memoryIsBounded() {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        properties.setMaxEntries(100);
+        NearDuplicateResponseCache cache = new NearDuplicateResponseCache(properties, new SimpleMeterRegistry());
+        for (int i = 0; i < 1_000; i++) {
+            cache.put(SCOPE, "wine for dish number " + i, result("wine-" + i, "cheese-" + i), Duration.ofMillis(1));
+        }
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    void replicasShareAnswersThroughL2AndFalseHitsAreInvalidatedForAll() {
+        InMemorySharedCacheStore l2 = new InMemorySharedCacheStore();
+        NearDuplicateResponseCache a = replica(l2);
+        NearDuplicateResponseCache b = replica(l2);
+
+        a.put(SCOPE, "A red wine for brie", result("wine-1", "cheese-1"), Duration.ofMillis(900));
+
+        NearDuplicateResponseCache.Hit hit = b.find(SCOPE, "red wine to go with brie please");
+        assertNotNull(hit);
+        assertEquals(List.of("wine-1"), hit.result().getRecommendedWineIds());
+        assertEquals(1, b.size());
+
+        b.verify(hit, result("wine-7", "cheese-9"));
+        assertNull(replica(l2).find(SCOPE, "a red wine for brie"));
+    }
+
+    @Test
+    void concurrentMissOnAnotherReplicaWaitsForTheFirstAnswer() throws Exception {
+        InMemorySharedCacheStore l2 = new InMemorySharedCacheStore();
+        NearDuplicateResponseCache a = replica(l2);
+        NearDuplicateResponseCache b = replica(l2);
+
+        NearDuplicateResponseCache.Lookup leader = a.lookup(SCOPE, "a red wine for brie", Duration.ofSeconds(5));
+        assertNull(leader.hit());
+
+        CompletableFuture<NearDuplicateResponseCache.Lookup> follower = CompletableFuture.supplyAsync(
+                () -> b.lookup(SCOPE, "a red wine for brie", Duration.ofSeconds(5)));
+        Thread.sleep(200);
+        assertFalse(follower.isDone());
+
+        a.put(SCOPE, "a red wine for brie", result("wine-1", "cheese-1"), Duration.ofMillis(900));
+        leader.release();
+
+        NearDuplicateResponseCache.Hit hit = follower.get(5, TimeUnit.SECONDS).hit();
+        assertNotNull(hit);
+        assertEquals(List.of("cheese-1"), hit.result().getRecommendedCheeseIds());
+    }
+
+    @Test
+    void noL2BehavesAsAnEmptyStore() {
+        SharedCacheStore none = SharedCacheStore.none();
+
+        none.putAll(Map.of("k", new byte[]{1}), Duration.ofMinutes(1));
+        assertEquals(Arrays.asList(null, null), none.getAll(List.of("k", "other")));
+        assertFalse(none.tryLock("k", "token", Duration.ofSeconds(1)));
+        none.unlock("k", "token");
+        none.delete("k");
+    }
+
+    private static NearDuplicateResponseCache replica(SharedCacheStore l2) {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        properties.setVerifySampleRate(0);
+        return new NearDuplicateResponseCache(properties, l2, new SimpleMeterRegistry());
+    }
+
+    private static AiPairingResult result(String wineId, String cheeseId) {
+        AiPairingResult result = new AiPairingResult();
+        result.setAnswer("answer");
+        result.setRecommendedWineIds(List.of(wineId));
+        result.setRecommendedCheeseIds(List.of(cheeseId));
+        return result;
+    }
+}
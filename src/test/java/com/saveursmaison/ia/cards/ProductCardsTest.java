@@ -0,0 +1,56 @@
+package com.saveursmaison.ia.cards;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saveursmaison.ia.catalog.CatalogSnapshot;
+import com.saveursmaison.ia.dto.CheeseForAiDto;
+import com.saveursmaison.ia.dto.PairingChatResponse;
+import com.saveursmaison.ia.dto.WineForAiDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProductCardsTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void cardsCarryOnlyTheRequestedFieldsAndLeaveTheOriginalUntouched() throws Exception {
+        WineForAiDto wine = new WineForAiDto();
+        wine.setId("wine-1");
+        wine.setName("Chinon 2020");
+        wine.setType("Red");
+        wine.setRegion("Loire");
+        wine.setPrice(14.5);
+        wine.setInStock(true);
+        CheeseForAiDto cheese = new CheeseForAiDto();
+        cheese.setId("cheese-1");
+        cheese.setName("Sainte-Maure");
+        cheese.setMilkType("Goat");
+        CatalogSnapshot catalog = CatalogSnapshot.of(List.of(wine), List.of(cheese));
+
+        PairingChatResponse response = new PairingChatResponse("answer", List.of("wine-1", "wine-gone"), List.of("cheese-1"));
+        PairingChatResponse hydrated = ProductCards.hydrate(response,
+                ProductCardField.parse("name, price,milkType"), catalog);
+
+        assertEquals("{\"id\":\"wine-1\",\"name\":\"Chinon 2020\",\"price\":14.5}",
+                mapper.writeValueAsString(hydrated.getWineCards().get(0)));
+        assertEquals("{\"id\":\"wine-gone\"}", mapper.writeValueAsString(hydrated.getWineCards().get(1)));
+        assertEquals("Goat", hydrated.getCheeseCards().get(0).milkType());
+        // Sin precio en el catálogo no se inventa un 0
+        assertNull(hydrated.getCheeseCards().get(0).price());
+
+        // La respuesta guardada (reintentos, sin ?cards) sigue sin fichas
+        assertEquals("{\"answer\":\"answer\",\"recommendedWineIds\":[\"wine-1\",\"wine-gone\"],"
+                        + "\"recommendedCheeseIds\":[\"cheese-1\"],\"sessionId\":null}",
+                mapper.writeValueAsString(response));
+    }
+
+    @Test
+    void unknownFieldIsRejected() {
+        assertThrows(UnknownCardFieldException.class, () -> ProductCardField.parse("name,cost"));
+    }
+}
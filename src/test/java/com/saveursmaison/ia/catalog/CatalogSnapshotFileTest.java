@@ -0,0 +1,68 @@
+package com.saveursmaison.ia.catalog;
+
+import com.saveursmaison.ia.dto.CheeseForAiDto;
+import com.saveursmaison.ia.dto.WineForAiDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CatalogSnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripKeepsContentAndVersion() throws IOException {
+        WineForAiDto wine = new WineForAiDto();
+        wine.setId("w-1");
+        wine.setName("Pinot Noir Réserve 2022");
+        wine.setType("Red");
+        wine.setRegion("Bourgogne");
+        wine.setPrice(24.9);
+        wine.setInStock(true);
+
+        WineForAiDto noPrice = new WineForAiDto();
+        noPrice.setId("w-2");
+        noPrice.setType("White");
+
+        CheeseForAiDto cheese = new CheeseForAiDto();
+        cheese.setId("c-1");
+        cheese.setName("Brie de Meaux AOP");
+        cheese.setMilkType("Cow");
+        cheese.setPrice(8.5);
+        cheese.setInStock(true);
+
+        CatalogSnapshot original = CatalogSnapshot.of(List.of(wine, noPrice), List.of(cheese));
+        CatalogSnapshotFile file = new CatalogSnapshotFile(dir.resolve("catalog.bin"));
+        file.write(original);
+
+        CatalogSnapshot loaded = file.read();
+
+        assertEquals(original.version(), loaded.version());
+        assertEquals(original.fetchedAt().toEpochMilli(), loaded.fetchedAt().toEpochMilli());
+        assertEquals("Pinot Noir Réserve 2022", loaded.wines().name(loaded.wines().indexOf("w-1")));
+        assertEquals("Bourgogne", loaded.wines().attribute(ProductAttribute.REGION, 0));
+        assertFalse(loaded.wines().hasPrice(loaded.wines().indexOf("w-2")));
+        assertTrue(loaded.cheeses().inStock(0));
+        assertEquals("Cow", loaded.cheeses().attribute(ProductAttribute.MILK_TYPE, 0));
+    }
+
+    @Test
+    void missingFileReadsAsNullAndGarbageIsRejected() throws IOException {
+        CatalogSnapshotFile file = new CatalogSnapshotFile(dir.resolve("catalog.bin"));
+        assertNull(file.read());
+
+        Files.write(file.path(), new byte[]{1, 2, 3});
+        assertThrows(IOException.class, file::read);
+    }
+}
@@ -0,0 +1,97 @@
+package com.saveursmaison.ia.catalog;
+
+import com.saveursmaison.ia.dto.CheeseForAiDto;
+import com.saveursmaison.ia.dto.WineForAiDto;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark de memoria: bytes retenidos por producto con la lista de DTOs
+ * (como la deja Jackson, un String nuevo por campo) vs la foto columnar.
+ */
+class CatalogSnapshotFootprintTest {
+
+    private static final int PRODUCTS = 5_000;
+
+    private static final String[] TYPES = {"Red", "White", "Rosé", "Sparkling"};
+    private static final String[] MILKS = {"Cow", "Goat", "Sheep"};
+    private static final String[] STYLES = {"Light", "Medium", "Full-bodied", "Soft", "Hard", "Blue"};
+    private static final String[] COUNTRIES = {"France", "Spain", "Italy", "Chile"};
+    private static final String[] REGIONS = {"Bordeaux", "Bourgogne", "Rioja", "Toscana", "Maipo", "Loire", "Alsace"};
+
+    @Test
+    void columnarSnapshotUsesLessMemoryPerProduct() {
+        List<WineForAiDto> wines = syntheticWines();
+        List<CheeseForAiDto> cheeses = syntheticCheeses();
+
+        long dtoBytes = GraphLayout.parseInstance(wines, cheeses).totalSize();
+        CatalogSnapshot snapshot = CatalogSnapshot.of(wines, cheeses);
+        long columnarBytes = GraphLayout.parseInstance(snapshot).totalSize();
+
+        double perProductBefore = dtoBytes / (double) (2 * PRODUCTS);
+        double perProductAfter = columnarBytes / (double) (2 * PRODUCTS);
+        System.out.printf("Catalog footprint: DTOs %.1f B/product, columnar %.1f B/product%n",
+                perProductBefore, perProductAfter);
+
+        assertEquals(PRODUCTS, snapshot.wines().size());
+        assertEquals(PRODUCTS, snapshot.cheeses().size());
+        assertTrue(columnarBytes < dtoBytes);
+    }
+
+    @Test
+    void snapshotKeepsValuesAndLooksUpById() {
+        List<WineForAiDto> wines = syntheticWines();
+        CatalogSnapshot snapshot = CatalogSnapshot.of(wines, List.of());
+
+        WineForAiDto w = wines.get(1234);
+        int row = snapshot.wines().indexOf(w.getId());
+
+        assertEquals(1234, row);
+        assertEquals(w.getName(), snapshot.wines().name(row));
+        assertEquals(w.getType(), snapshot.wines().attribute(ProductAttribute.TYPE, row));
+        assertEquals(w.getRegion(), snapshot.wines().attribute(ProductAttribute.REGION, row));
+        assertEquals(w.getPrice(), snapshot.wines().price(row));
+        assertEquals(-1, snapshot.wines().indexOf("missing"));
+        assertEquals(CatalogSnapshot.of(wines, List.of()).version(), snapshot.version());
+    }
+
+    private static List<WineForAiDto> syntheticWines() {
+        List<WineForAiDto> wines = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            WineForAiDto w = new WineForAiDto();
+            w.setId("wine-" + i);
+            w.setName("Wine " + i);
+            w.setType(new String(TYPES[i % TYPES.length]));
+            w.setStyle(new String(STYLES[i % STYLES.length]));
+            w.setCountry(new String(COUNTRIES[i % COUNTRIES.length]));
+            w.setRegion(new String(REGIONS[i % REGIONS.length]));
+            w.setPrice(10.0 + i % 90);
+            w.setInStock(true);
+            wines.add(w);
+        }
+        return wines;
+    }
+
+    private static List<CheeseForAiDto> syntheticCheeses() {
+        List<CheeseForAiDto> cheeses = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            CheeseForAiDto c = new CheeseForAiDto();
+            c.setId("cheese-" + i);
+            c.setName("Cheese " + i);
+            c.setMilkType(new String(MILKS[i % MILKS.length]));
+            c.setStyle(new String(STYLES[i % STYLES.length]));
+            c.setCountry(new String(COUNTRIES[i % COUNTRIES.length]));
+            c.setRegion(new String(REGIONS[i % REGIONS.length]));
+            c.setPrice(5.0 + i % 40);
+            c.setInStock(true);
+            cheeses.add(c);
+        }
+        return cheeses;
+    }
+}
@@ -0,0 +1,39 @@
+package com.saveursmaison.ia.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saveursmaison.ia.prompt.Utf8Prompt;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChatCompletionBodyWriterTest {
+
+    @Test
+    void writesTheSameJsonAsJackson() throws Exception {
+        String tricky = "Comté \"réserve\" \\ tab\t nl\n ctrl\u0001 🍷";
+        Utf8Prompt user = Utf8Prompt.builder(4)
+                .append(Utf8Prompt.Piece.of("User message: "))
+                .append(tricky)
+                .append(42)
+                .build();
+        ChatCompletionRequest request = new ChatCompletionRequest("gpt-4o-mini", List.of(
+                new ChatCompletionRequest.Message("system", Utf8Prompt.of("You are a sommelier.")),
+                new ChatCompletionRequest.Message("user", user)), 600, 0.3);
+
+        DataBuffer buffer = DefaultDataBufferFactory.sharedInstance.allocateBuffer(8);
+        ChatCompletionBodyWriter.write(request, buffer);
+        String written = buffer.toString(StandardCharsets.UTF_8);
+
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode parsed = mapper.readTree(written);
+        assertEquals(mapper.readTree(mapper.writeValueAsString(request)), parsed);
+        assertEquals("User message: " + tricky + "42", parsed.get("messages").get(1).get("content").asText());
+        assertEquals(user.length(), ("User message: " + tricky + "42").length());
+    }
+}
@@ -0,0 +1,161 @@
+package com.saveursmaison.ia.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saveursmaison.ia.catalog.CatalogSnapshot;
+import com.saveursmaison.ia.catalog.ProductAttribute;
+import com.saveursmaison.ia.catalog.ProductTable;
+import com.saveursmaison.ia.dto.CheeseForAiDto;
+import com.saveursmaison.ia.dto.WineForAiDto;
+import com.saveursmaison.ia.prompt.CatalogPromptLines;
+import com.saveursmaison.ia.prompt.Utf8Prompt;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Costo de armar el prompt de usuario (50 vinos + 50 quesos) y el cuerpo de
+ * /chat/completions: el camino anterior (String.format por producto, joins y
+ * Jackson) contra las líneas pre-renderizadas escritas en un buffer pooled.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec
+ * </pre>
+ * Con {@code -prof gc} la métrica a mirar es {@code gc.alloc.rate.norm} (bytes por operación).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptBodyBenchmark {
+
+    private static final int PRODUCTS = 2_000;
+    private static final int IN_PROMPT = 50;
+    private static final String SYSTEM_PROMPT = "You are the AI sommelier of the Saveurs Maison app. ".repeat(60);
+    private static final String TASK = "TASK:\nYou MUST respond ONLY with a single JSON object.\n".repeat(12);
+
+    private static final Utf8Prompt SYSTEM_PROMPT_UTF8 = Utf8Prompt.of(SYSTEM_PROMPT);
+    private static final Utf8Prompt.Piece NEWLINE = Utf8Prompt.Piece.of("\n");
+    private static final Utf8Prompt.Piece MODE = Utf8Prompt.Piece.of("MODE: ");
+    private static final Utf8Prompt.Piece MESSAGE = Utf8Prompt.Piece.of("User message: ");
+    private static final Utf8Prompt.Piece WINES_HEADER = Utf8Prompt.Piece.of("\nAVAILABLE WINES (ID, name, type, price):\n");
+    private static final Utf8Prompt.Piece CHEESES_HEADER = Utf8Prompt.Piece.of("AVAILABLE CHEESES (ID, name, price):\n");
+    private static final Utf8Prompt.Piece TASK_UTF8 = Utf8Prompt.Piece.of(TASK);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    private CatalogSnapshot catalog;
+    private CatalogPromptLines lines;
+    private List<Integer> rows;
+    private String message;
+
+    @Setup
+    public void setUp() {
+        List<WineForAiDto> wines = new ArrayList<>();
+        List<CheeseForAiDto> cheeses = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            WineForAiDto w = new WineForAiDto();
+            w.setId("wine-" + i);
+            w.setName("Château Exemple " + i);
+            w.setType(i % 2 == 0 ? "Red" : "Rosé");
+            w.setPrice(10.0 + i % 90);
+            w.setInStock(true);
+            wines.add(w);
+            CheeseForAiDto c = new CheeseForAiDto();
+            c.setId("cheese-" + i);
+            c.setName("Comté \"réserve\" " + i);
+            c.setMilkType("Cow");
+            c.setPrice(5.0 + i % 40);
+            c.setInStock(true);
+            cheeses.add(c);
+        }
+        catalog = CatalogSnapshot.of(wines, cheeses);
+        lines = CatalogPromptLines.render(catalog);
+        rows = new ArrayList<>();
+        for (int i = 0; i < IN_PROMPT; i++) {
+            rows.add(i * (PRODUCTS / IN_PROMPT));
+        }
+        message = "Busco un vino para acompañar un queso de cabra fresco, algo no muy caro";
+    }
+
+    /**
+     * Como era antes: String por línea, joins intermedios, String final y Jackson.
+     */
+    @Benchmark
+    public int legacyFormatAndJackson() throws Exception {
+        ProductTable wines = catalog.wines();
+        ProductTable cheeses = catalog.cheeses();
+        StringBuilder sb = new StringBuilder();
+        sb.append("MODE: ").append("PAIRING").append("\n");
+        sb.append("User message: ").append(message).append("\n\n");
+        sb.append("\nAVAILABLE WINES (ID, name, type, price):\n");
+        sb.append(rows.stream()
+                .map(i -> String.format("- id=%s | name=%s | type=%s | price=%.2f",
+                        wines.id(i), wines.name(i), wines.attribute(ProductAttribute.TYPE, i), wines.price(i)))
+                .collect(Collectors.joining("\n"))).append("\n\n");
+        sb.append("AVAILABLE CHEESES (ID, name, price):\n");
+        sb.append(rows.stream()
+                .map(i -> String.format("- id=%s | name=%s | price=%.2f",
+                        cheeses.id(i), cheeses.name(i), cheeses.price(i)))
+                .collect(Collectors.joining("\n"))).append("\n\n");
+        sb.append(TASK);
+
+        Map<String, Object> body = Map.of(
+                "model", "gpt-4o-mini",
+                "messages", List.of(
+                        Map.of("role", "system", "content", SYSTEM_PROMPT),
+                        Map.of("role", "user", "content", sb.toString())),
+                "max_tokens", 600,
+                "temperature", 0.3);
+        return objectMapper.writeValueAsBytes(body).length;
+    }
+
+    /**
+     * Líneas pre-renderizadas por versión del catálogo, copiadas una vez al buffer pooled.
+     */
+    @Benchmark
+    public int preRenderedIntoPooledBuffer() {
+        Utf8Prompt.Builder sb = Utf8Prompt.builder(2 * IN_PROMPT + 16);
+        sb.append(MODE).append("PAIRING").append(NEWLINE);
+        sb.append(MESSAGE).append(message).append(NEWLINE).append(NEWLINE);
+        sb.append(WINES_HEADER);
+        for (int row : rows) {
+            lines.wines().appendTo(sb, row);
+        }
+        sb.append(NEWLINE).append(CHEESES_HEADER);
+        for (int row : rows) {
+            lines.cheeses().appendTo(sb, row);
+        }
+        sb.append(NEWLINE).append(TASK_UTF8);
+
+        ChatCompletionRequest request = new ChatCompletionRequest("gpt-4o-mini", List.of(
+                new ChatCompletionRequest.Message("system", SYSTEM_PROMPT_UTF8),
+                new ChatCompletionRequest.Message("user", sb.build())), 600, 0.3);
+        DataBuffer buffer = bufferFactory.allocateBuffer(ChatCompletionBodyWriter.estimateSize(request));
+        try {
+            ChatCompletionBodyWriter.write(request, buffer);
+            return buffer.readableByteCount();
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+    }
+}
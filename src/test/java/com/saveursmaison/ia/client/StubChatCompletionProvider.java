@@ -0,0 +1,68 @@
+package com.saveursmaison.ia.client;
+
+import com.saveursmaison.ia.deadline.Deadline;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Proveedor local para tests y benchmarks: responde un JSON fijo tras una
+ * latencia configurable, o falla si se le pide.
+ */
+public class StubChatCompletionProvider implements ChatCompletionProvider {
+
+    public static final String DEFAULT_ANSWER = """
+            {"answer":"Try our Brie de Meaux AOP.","recommendedWineIds":[],"recommendedCheeseIds":["cheese-1"]}""";
+
+    private final String name;
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile Duration latency;
+    private volatile boolean failing;
+    private volatile String lastModel;
+
+    public StubChatCompletionProvider(String name, Duration latency) {
+        this.name = name;
+        this.latency = latency;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public ChatCompletionResponse complete(ChatCompletionRequest request, Deadline deadline, Duration timeout) {
+        calls.incrementAndGet();
+        lastModel = request.model();
+        try {
+            Thread.sleep(Math.min(latency.toMillis(), timeout.toMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (latency.compareTo(timeout) > 0) {
+            throw new IllegalStateException("stub provider '" + name + "' timed out after " + timeout);
+        }
+        if (failing) {
+            throw new IllegalStateException("stub provider '" + name + "' is failing");
+        }
+        return new ChatCompletionResponse(List.of(
+                new ChatCompletionResponse.Choice(new ChatCompletionResponse.Message("assistant", DEFAULT_ANSWER))));
+    }
+
+    public int calls() {
+        return calls.get();
+    }
+
+    public String lastModel() {
+        return lastModel;
+    }
+
+    public void setLatency(Duration latency) {
+        this.latency = latency;
+    }
+
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+}
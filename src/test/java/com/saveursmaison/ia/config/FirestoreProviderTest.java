@@ -0,0 +1,38 @@
+package com.saveursmaison.ia.config;
+
+import com.google.cloud.firestore.Firestore;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FirestoreProviderTest {
+
+    @Test
+    void failedInitializationIsRetriedAfterBackoff() throws Exception {
+        FirestoreProvider provider = new FirestoreProvider("does/not/exist.json");
+
+        CompletableFuture<Firestore> first = provider.initAsync();
+        assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertFalse(provider.isReady());
+        assertNotNull(provider.lastFailure());
+        assertEquals(1, provider.consecutiveFailures());
+
+        // Dentro del backoff no se reintenta en cada llamada
+        assertSame(first, provider.initAsync());
+
+        Thread.sleep(1_100);
+        CompletableFuture<Firestore> second = provider.initAsync();
+        assertNotSame(first, second);
+        assertThrows(ExecutionException.class, () -> second.get(5, TimeUnit.SECONDS));
+        assertEquals(2, provider.consecutiveFailures());
+    }
+}
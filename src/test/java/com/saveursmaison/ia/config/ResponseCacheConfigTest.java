@@ -0,0 +1,41 @@
+package com.saveursmaison.ia.config;
+
+import com.saveursmaison.ia.cache.InMemorySharedCacheStore;
+import com.saveursmaison.ia.cache.RedisSharedCacheStore;
+import com.saveursmaison.ia.cache.SharedCacheStore;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResponseCacheConfigTest {
+
+    private final ResponseCacheConfig config = new ResponseCacheConfig();
+
+    @Test
+    void backendFollowsTheRuntimeValue() throws Exception {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        assertFalse(config.sharedCacheStore(properties).isEnabled());
+
+        properties.setL2("memory");
+        assertInstanceOf(InMemorySharedCacheStore.class, config.sharedCacheStore(properties));
+
+        // La conexión es perezosa: crear el cliente no necesita el servidor
+        properties.setL2("redis");
+        SharedCacheStore redis = config.sharedCacheStore(properties);
+        assertInstanceOf(RedisSharedCacheStore.class, redis);
+        ((RedisSharedCacheStore) redis).destroy();
+    }
+
+    @Test
+    void unknownOrBrokenBackendFailsStartup() {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        properties.setL2("memcached");
+        assertThrows(IllegalStateException.class, () -> config.sharedCacheStore(properties));
+
+        properties.setL2("redis");
+        properties.setRedisUrl("not a url");
+        assertThrows(IllegalArgumentException.class, () -> config.sharedCacheStore(properties));
+    }
+}
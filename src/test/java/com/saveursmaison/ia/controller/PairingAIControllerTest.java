@@ -0,0 +1,186 @@
+package com.saveursmaison.ia.controller;
+
+import com.saveursmaison.ia.cards.ProductCards;
+import com.saveursmaison.ia.config.DeadlineProperties;
+import com.saveursmaison.ia.deadline.Deadline;
+import com.saveursmaison.ia.dto.PairingChatResponse;
+import com.saveursmaison.ia.idempotency.IdempotencyStore;
+import com.saveursmaison.ia.ratelimit.LoadShedder;
+import com.saveursmaison.ia.ratelimit.UserRateLimiter;
+import com.saveursmaison.ia.service.PairingAIService;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = PairingAIController.class, properties = {
+        "deadline.default-timeout=7s",
+        "deadline.max-timeout=2s"
+})
+@Import({DeadlineProperties.class, PairingAIControllerTest.TestBeans.class})
+class PairingAIControllerTest {
+
+    @TestConfiguration
+    static class TestBeans {
+        @Bean(name = "chatExecutor", destroyMethod = "shutdownNow")
+        ExecutorService chatExecutor() {
+            return Executors.newCachedThreadPool();
+        }
+
+        @Bean
+        ObservationRegistry observationRegistry() {
+            return ObservationRegistry.NOOP;
+        }
+    }
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    PairingAIService pairingAIService;
+
+    @MockitoBean
+    UserRateLimiter userRateLimiter;
+
+    @MockitoBean
+    LoadShedder loadShedder;
+
+    @MockitoBean
+    IdempotencyStore idempotencyStore;
+
+    @MockitoBean
+    ProductCards productCards;
+
+    private final AtomicReference<Duration> remaining = new AtomicReference<>();
+
+    @BeforeEach
+    void answerWithTheRemainingTime() {
+        when(productCards.hydrate(any(), any())).thenAnswer(inv -> inv.getArgument(0));
+        when(pairingAIService.chat(any(), any(), any())).thenAnswer(inv -> {
+            remaining.set(inv.<Deadline>getArgument(1).remaining());
+            return new PairingChatResponse("ok", List.of(), List.of());
+        });
+    }
+
+    @AfterEach
+    void clear() {
+        remaining.set(null);
+    }
+
+    @Test
+    void headerSetsTheDeadline() throws Exception {
+        chat(chatRequest().header("X-Request-Timeout-Ms", " 500 "));
+
+        assertBetween(Duration.ofMillis(1), Duration.ofMillis(500));
+    }
+
+    @Test
+    void headerIsCappedAtTheMaximum() throws Exception {
+        chat(chatRequest().header("X-Request-Timeout-Ms", "3600000"));
+
+        assertBetween(Duration.ofMillis(1_500), Duration.ofSeconds(2));
+    }
+
+    @Test
+    void invalidOrMissingHeaderUsesTheDefault() throws Exception {
+        chat(chatRequest().header("X-Request-Timeout-Ms", "soon"));
+        assertBetween(Duration.ofMillis(6_500), Duration.ofSeconds(7));
+
+        chat(chatRequest().header("X-Request-Timeout-Ms", "-5"));
+        assertBetween(Duration.ofMillis(6_500), Duration.ofSeconds(7));
+
+        chat(chatRequest());
+        assertBetween(Duration.ofMillis(6_500), Duration.ofSeconds(7));
+    }
+
+    @Test
+    void expiredDeadlineIsA504() throws Exception {
+        doAnswer(inv -> {
+            Deadline deadline = inv.getArgument(1);
+            while (!deadline.isExpired()) {
+                Thread.sleep(5);
+            }
+            deadline.check();
+            return null;
+        }).when(pairingAIService).chat(any(), any(), any());
+
+        MvcResult started = mockMvc.perform(chatRequest().header("X-Request-Timeout-Ms", "50"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // asyncDispatch solo espera el timeout async (≈50 ms): el 504 puede llegar un poco después
+        started.getAsyncResult(2_000);
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(jsonPath("$.error").value("Request deadline exceeded"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void fallbackAnswerIsNotStoredForRetries() throws Exception {
+        IdempotencyStore.Claim<PairingChatResponse> claim = mock(IdempotencyStore.Claim.class);
+        when(claim.isOwner()).thenReturn(true);
+        when(idempotencyStore.isEnabled()).thenReturn(true);
+        when(idempotencyStore.header()).thenReturn("Idempotency-Key");
+        when(idempotencyStore.<PairingChatResponse>claim(any(), any(), any())).thenReturn(claim);
+        doAnswer(inv -> {
+            PairingChatResponse fallback = new PairingChatResponse("ok", List.of(), List.of());
+            fallback.setFallback(true);
+            return fallback;
+        }).when(pairingAIService).chat(any(), any(), any());
+
+        chat(chatRequest().header("Idempotency-Key", "k1"));
+
+        verify(claim).completeWithoutStoring(any());
+        verify(claim, never()).complete(any());
+    }
+
+    private void chat(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult started = mockMvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.answer").value("ok"));
+    }
+
+    private void assertBetween(Duration min, Duration max) {
+        Duration seen = remaining.get();
+        assertTrue(seen.compareTo(min) >= 0 && seen.compareTo(max) <= 0,
+                "remaining " + seen + " not in [" + min + ", " + max + "]");
+    }
+
+    private static MockHttpServletRequestBuilder chatRequest() {
+        return post("/ai/pairings/chat")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"message\":\"Un rouge léger\",\"userId\":\"u1\"}");
+    }
+}
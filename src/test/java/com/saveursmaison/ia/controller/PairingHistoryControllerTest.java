@@ -0,0 +1,81 @@
+package com.saveursmaison.ia.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.google.cloud.Timestamp;
+import com.saveursmaison.ia.config.CborConfig;
+import com.saveursmaison.ia.logging.PairingLog;
+import com.saveursmaison.ia.logging.PairingLogRepository;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(PairingHistoryController.class)
+@Import({CborConfig.class, PairingHistoryControllerTest.Observations.class})
+class PairingHistoryControllerTest {
+
+    @TestConfiguration
+    static class Observations {
+        @Bean
+        ObservationRegistry observationRegistry() {
+            return ObservationRegistry.NOOP;
+        }
+    }
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    PairingLogRepository pairingLogRepository;
+
+    @BeforeEach
+    void history() {
+        PairingLog log = PairingLog.builder()
+                .userId("u1")
+                .locale("fr")
+                .message("Un rouge léger")
+                .answer("Un Chinon")
+                .recommendedWineIds(List.of("wine-1"))
+                .build();
+        log.setCreatedAt(Timestamp.ofTimeSecondsAndNanos(1_768_500_000L, 0));
+        when(pairingLogRepository.findByUserIdOrderByCreatedAtDesc("u1", 20)).thenReturn(List.of(log));
+    }
+
+    @Test
+    void jsonIsTheDefault() throws Exception {
+        mockMvc.perform(get("/ai/pairings/history").param("userId", "u1"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[0].answer").value("Un Chinon"));
+    }
+
+    @Test
+    void acceptCborGetsCbor() throws Exception {
+        byte[] body = mockMvc.perform(get("/ai/pairings/history").param("userId", "u1")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode items = new CBORMapper().readTree(body);
+        assertEquals("Un Chinon", items.get(0).get("answer").asText());
+        assertEquals("wine-1", items.get(0).get("recommendedWineIds").get(0).asText());
+    }
+}
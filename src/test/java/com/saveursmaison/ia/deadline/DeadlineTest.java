@@ -0,0 +1,60 @@
+package com.saveursmaison.ia.deadline;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineTest {
+
+    @Test
+    void cancelStopsTheCallInFlight() throws Exception {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(30));
+        CountDownLatch subscribed = new CountDownLatch(1);
+        CountDownLatch upstreamCancelled = new CountDownLatch(1);
+        Mono<String> call = Mono.<String>never()
+                .doOnSubscribe(s -> subscribed.countDown())
+                .doOnCancel(upstreamCancelled::countDown);
+
+        CompletableFuture<String> result = deadline.bound(call, Duration.ofSeconds(30)).toFuture();
+        assertTrue(subscribed.await(2, TimeUnit.SECONDS));
+        deadline.cancel("client went away");
+
+        // La conexión se suelta y quien espera recibe el plazo cancelado, sin esperar el timeout
+        assertTrue(upstreamCancelled.await(2, TimeUnit.SECONDS));
+        Exception error = assertThrows(Exception.class, () -> result.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(DeadlineExceededException.class, error.getCause());
+    }
+
+    @Test
+    void callTimesOutAtItsBudget() {
+        Deadline deadline = Deadline.after(Duration.ofSeconds(30));
+
+        long start = System.nanoTime();
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> deadline.bound(Mono.never(), Duration.ofMillis(100)).block(Duration.ofSeconds(5)));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertInstanceOf(TimeoutException.class, Exceptions.unwrap(error));
+        assertTrue(elapsedMillis >= 100 && elapsedMillis < 2_000, "timed out after " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void budgetNeverOutlivesTheDeadline() {
+        Deadline deadline = Deadline.after(Duration.ofMillis(100));
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> deadline.bound(Mono.never(), Duration.ofSeconds(30)).block(Duration.ofSeconds(5)));
+
+        assertInstanceOf(TimeoutException.class, Exceptions.unwrap(error));
+    }
+}
@@ -0,0 +1,95 @@
+package com.saveursmaison.ia.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Historial de 20 ítems (como /ai/pairings/history) en JSON y en CBOR: costo de
+ * serialización por operación y, al arrancar, tamaño de cada payload con y sin gzip.
+ *
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="-prof gc HistoryPayloadBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryPayloadBenchmark {
+
+    private static final int ITEMS = 20;
+
+    private final ObjectMapper json = new ObjectMapper();
+    private final ObjectMapper cbor = new CBORMapper();
+
+    private List<PairingHistoryItemResponse> history;
+
+    @Setup
+    public void setUp() throws IOException {
+        history = syntheticHistory();
+        byte[] jsonBytes = json.writeValueAsBytes(history);
+        byte[] cborBytes = cbor.writeValueAsBytes(history);
+        System.out.printf("%nHistory payload (%d items): JSON %d B (gzip %d B), CBOR %d B (gzip %d B)%n",
+                ITEMS, jsonBytes.length, gzip(jsonBytes).length, cborBytes.length, gzip(cborBytes).length);
+    }
+
+    @Benchmark
+    public byte[] json() throws IOException {
+        return json.writeValueAsBytes(history);
+    }
+
+    @Benchmark
+    public byte[] cbor() throws IOException {
+        return cbor.writeValueAsBytes(history);
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<PairingHistoryItemResponse> syntheticHistory() {
+        List<PairingHistoryItemResponse> items = new ArrayList<>();
+        Instant now = Instant.parse("2026-01-15T19:30:00Z");
+        for (int i = 0; i < ITEMS; i++) {
+            items.add(new PairingHistoryItemResponse(
+                    "user-" + 42,
+                    i % 3 == 0 ? "fr" : "es",
+                    i % 2 == 0 ? "chat" : "selection",
+                    "Busco un vino para acompañar un queso de cabra fresco, algo no muy caro #" + i,
+                    List.of("wine-" + (100 + i)),
+                    List.of("cheese-" + (200 + i), "cheese-" + (201 + i)),
+                    "Para un queso de cabra fresco te recomiendo un Sauvignon Blanc del Loira: su acidez "
+                            + "equilibra la cremosidad y sus notas cítricas realzan el sabor láctico. "
+                            + "Si prefieres tinto, un Pinot Noir ligero y poco tánico también funciona. (" + i + ")",
+                    List.of("wine-" + (300 + i), "wine-" + (301 + i), "wine-" + (302 + i)),
+                    List.of("cheese-" + (400 + i)),
+                    now.minusSeconds(3_600L * i).toString()
+            ));
+        }
+        return items;
+    }
+}
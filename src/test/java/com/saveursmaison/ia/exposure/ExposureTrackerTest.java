@@ -0,0 +1,48 @@
+package com.saveursmaison.ia.exposure;
+
+import com.saveursmaison.ia.catalog.ProductTable;
+import com.saveursmaison.ia.dto.WineForAiDto;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExposureTrackerTest {
+
+    @Test
+    void overexposedProductsAreLeftOutUntilTheirCountDecays() {
+        AtomicLong now = new AtomicLong(0);
+        ExposureTracker tracker = new ExposureTracker(Duration.ofHours(1), now::get);
+        ProductTable wines = wines(5);
+
+        tracker.record(List.of("wine-0", "wine-0", "wine-1"));
+
+        assertEquals(List.of(2, 3, 4), tracker.leastExposedRows(wines, 3));
+        assertEquals(List.of("wine-0"), tracker.overexposedIds(wines, List.of(0, 1, 2, 3, 4), 3));
+        assertEquals(2.0, tracker.exposure("wine-0"), 1e-9);
+
+        now.set(Duration.ofHours(1).toMillis());
+        assertEquals(1.0, tracker.exposure("wine-0"), 1e-9);
+
+        // Muchas vidas medias después se cambia el punto de referencia sin perder proporciones
+        now.set(Duration.ofDays(5).toMillis());
+        tracker.record(List.of("wine-2"));
+        assertEquals(1.0, tracker.exposure("wine-2"), 1e-9);
+        assertEquals(List.of(0, 1, 3), tracker.leastExposedRows(wines, 3));
+    }
+
+    private static ProductTable wines(int n) {
+        List<WineForAiDto> wines = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            WineForAiDto wine = new WineForAiDto();
+            wine.setId("wine-" + i);
+            wine.setName("Wine " + i);
+            wines.add(wine);
+        }
+        return ProductTable.ofWines(wines);
+    }
+}
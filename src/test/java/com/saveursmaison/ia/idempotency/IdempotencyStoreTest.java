@@ -0,0 +1,83 @@
+package com.saveursmaison.ia.idempotency;
+
+import com.saveursmaison.ia.config.IdempotencyProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyStoreTest {
+
+    private final IdempotencyProperties properties = new IdempotencyProperties();
+
+    @Test
+    void retriesAttachToTheRunningCallAndThenGetTheStoredAnswer() {
+        IdempotencyStore store = new IdempotencyStore(properties, new SimpleMeterRegistry());
+
+        IdempotencyStore.Claim<String> first = store.claim("user:1", "k1", List.of("brie"));
+        assertTrue(first.isOwner());
+
+        IdempotencyStore.Claim<String> inFlight = store.claim("user:1", "k1", List.of("brie"));
+        assertFalse(inFlight.isOwner());
+        assertFalse(inFlight.result().isDone());
+
+        first.complete("answer");
+        assertEquals("answer", inFlight.result().join());
+        assertEquals("answer", store.<String>claim("user:1", "k1", List.of("brie")).result().join());
+
+        // Misma clave de otro usuario: es otra petición
+        assertTrue(store.claim("user:2", "k1", List.of("brie")).isOwner());
+        assertNull(store.claim("user:1", null, List.of("brie")));
+    }
+
+    @Test
+    void failureReleasesTheKeyAndReuseWithAnotherBodyIsRejected() {
+        IdempotencyStore store = new IdempotencyStore(properties, new SimpleMeterRegistry());
+
+        IdempotencyStore.Claim<String> first = store.claim("user:1", "k1", List.of("brie"));
+        IdempotencyStore.Claim<String> attached = store.claim("user:1", "k1", List.of("brie"));
+        first.fail(new IllegalStateException("model down"));
+
+        assertTrue(attached.result().isCompletedExceptionally());
+        assertTrue(store.claim("user:1", "k1", List.of("brie")).isOwner());
+
+        IdempotencyKeyException reused = assertThrows(IdempotencyKeyException.class,
+                () -> store.claim("user:1", "k1", List.of("comté")));
+        assertTrue(reused.isReused());
+    }
+
+    @Test
+    void unstoredAnswerReachesAttachedRetriesButTheNextOneRunsAgain() {
+        IdempotencyStore store = new IdempotencyStore(properties, new SimpleMeterRegistry());
+
+        IdempotencyStore.Claim<String> first = store.claim("user:1", "k1", List.of("brie"));
+        IdempotencyStore.Claim<String> attached = store.claim("user:1", "k1", List.of("brie"));
+        first.completeWithoutStoring("sorry");
+
+        assertEquals("sorry", attached.result().join());
+        assertTrue(store.claim("user:1", "k1", List.of("brie")).isOwner());
+    }
+
+    @Test
+    void boundedByCountAndTtl() throws InterruptedException {
+        properties.setMaxEntries(10);
+        properties.setTtl(Duration.ofMillis(50));
+        IdempotencyStore store = new IdempotencyStore(properties, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 100; i++) {
+            store.claim("user:1", "k" + i, List.of(i));
+        }
+        assertEquals(10, store.size());
+
+        Thread.sleep(60);
+        assertTrue(store.claim("user:1", "k99", List.of(99)).isOwner());
+        assertEquals(1, store.size());
+    }
+}
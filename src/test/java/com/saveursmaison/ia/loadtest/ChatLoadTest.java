@@ -0,0 +1,103 @@
+package com.saveursmaison.ia.loadtest;
+
+import com.saveursmaison.ia.scheduling.AdaptiveConcurrencyLimit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de carga extremo a extremo sin servicios externos.
+ *
+ * Levanta ia-service contra un stub de OpenAI, un stub de catalog-service y
+ * el repositorio de logs en memoria, y reporta throughput y percentiles.
+ * No corre con {@code mvn test}; se lanza con:
+ *
+ * <pre>
+ * mvn test -Pload-test \
+ *   -Dloadtest.duration=60s -Dloadtest.concurrency=64 \
+ *   -Dloadtest.openai-latency=lognormal:800ms:0.5
+ * </pre>
+ * Con {@code -Dloadtest.batching=true} las peticiones se agrupan (batching.*).
+ * Las trazas muestreadas quedan en {@code target/loadtest-traces.jsonl}
+ * ({@code -Dloadtest.traces-file} para cambiarlo, vacío para no grabarlas).
+ * Con {@code -Dloadtest.openai-capacity=N} el stub responde 429 por encima de N
+ * llamadas simultáneas; el informe muestra dónde se asentó el tope adaptativo.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ChatLoadTest {
+
+    static final int WINES = Integer.getInteger("loadtest.wines", 300);
+    static final int CHEESES = Integer.getInteger("loadtest.cheeses", 200);
+
+    static final StubOpenAIServer OPENAI = new StubOpenAIServer(
+            LatencyDistribution.parse(System.getProperty("loadtest.openai-latency", "lognormal:300ms:0.5")),
+            Double.parseDouble(System.getProperty("loadtest.openai-error-rate", "0.01")),
+            Integer.getInteger("loadtest.openai-capacity", 0)
+    );
+
+    static final StubCatalogServer CATALOG = new StubCatalogServer(
+            WINES, CHEESES,
+            LatencyDistribution.parse(System.getProperty("loadtest.catalog-latency", "uniform:5ms:30ms"))
+    );
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    AdaptiveConcurrencyLimit concurrencyLimit;
+
+    @DynamicPropertySource
+    static void stubs(DynamicPropertyRegistry registry) {
+        registry.add("openai.base-url", OPENAI::v1BaseUrl);
+        registry.add("openai.api-key", () -> "stub-key");
+        registry.add("catalog.base-url", CATALOG::baseUrl);
+        registry.add("pairing-log.store", () -> "memory");
+        registry.add("ratelimit.user-requests-per-minute", () -> "600");
+        registry.add("ratelimit.user-burst", () -> "20");
+        // Los mensajes libres del mix se repiten; sin esto se mediría la caché y no el camino al modelo
+        registry.add("response-cache.enabled", () -> System.getProperty("loadtest.response-cache", "false"));
+        registry.add("batching.enabled", () -> System.getProperty("loadtest.batching", "false"));
+        registry.add("scheduler.adaptive", () -> System.getProperty("loadtest.adaptive", "true"));
+        registry.add("tracing.file", () -> System.getProperty("loadtest.traces-file", "target/loadtest-traces.jsonl"));
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        OPENAI.close();
+        CATALOG.close();
+    }
+
+    @Test
+    void mixedTraffic() throws InterruptedException {
+        TrafficMix mix = new TrafficMix(
+                Integer.getInteger("loadtest.users", 200), WINES, CHEESES,
+                Double.parseDouble(System.getProperty("loadtest.selection-share", "0.6")),
+                Double.parseDouble(System.getProperty("loadtest.history-share", "0.1"))
+        );
+        LoadDriver driver = new LoadDriver("http://127.0.0.1:" + port);
+
+        // Calentamiento corto para no medir el arranque en frío
+        driver.run(mix, 4, Duration.ofSeconds(2));
+
+        LoadReport report = driver.run(mix,
+                Integer.getInteger("loadtest.concurrency", 32),
+                Duration.parse("PT" + System.getProperty("loadtest.duration", "20s").toUpperCase()));
+
+        System.out.println("=== ia-service load test ===");
+        System.out.print(report.format());
+        System.out.println("stub OpenAI calls: " + OPENAI.calls() + " (429: " + OPENAI.rateLimited() + ")");
+        System.out.println("model concurrency limit: " + concurrencyLimit.current());
+
+        assertTrue(report.count(200) > 0, "no successful requests");
+    }
+}
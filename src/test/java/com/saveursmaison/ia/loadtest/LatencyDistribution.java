@@ -0,0 +1,49 @@
+package com.saveursmaison.ia.loadtest;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Distribución de latencia para los stubs.
+ *
+ * Formatos aceptados (p.ej. en {@code -Dloadtest.openai-latency=...}):
+ * - {@code fixed:800ms}
+ * - {@code uniform:200ms:1500ms}
+ * - {@code lognormal:800ms:0.5} (mediana y sigma; cola larga como un LLM real)
+ */
+public interface LatencyDistribution {
+
+    Duration next();
+
+    static LatencyDistribution parse(String spec) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "fixed" -> {
+                Duration d = duration(parts[1]);
+                return () -> d;
+            }
+            case "uniform" -> {
+                long min = duration(parts[1]).toMillis();
+                long max = duration(parts[2]).toMillis();
+                return () -> Duration.ofMillis(ThreadLocalRandom.current().nextLong(min, max + 1));
+            }
+            case "lognormal" -> {
+                double median = duration(parts[1]).toMillis();
+                double sigma = Double.parseDouble(parts[2]);
+                return () -> Duration.ofMillis(
+                        (long) (median * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian())));
+            }
+            default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+        }
+    }
+
+    private static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofMillis(Long.parseLong(value));
+    }
+}
@@ -0,0 +1,70 @@
+package com.saveursmaison.ia.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Generador de carga de lazo cerrado: N usuarios virtuales que mandan una
+ * petición tras otra durante el tiempo indicado.
+ */
+class LoadDriver {
+
+    private final String baseUrl;
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newCachedThreadPool())
+            .build();
+
+    LoadDriver(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    LoadReport run(Supplier<LoadRequest> traffic, int concurrency, Duration duration) throws InterruptedException {
+        LoadReport report = new LoadReport();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        ExecutorService users = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            users.submit(() -> {
+                while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+                    send(traffic.get(), report);
+                }
+            });
+        }
+        users.shutdown();
+        users.awaitTermination(duration.toMillis() + 60_000, TimeUnit.MILLISECONDS);
+        report.finish(Duration.ofNanos(System.nanoTime() - start));
+        return report;
+    }
+
+    void send(LoadRequest request, LoadReport report) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + request.path()))
+                .timeout(Duration.ofSeconds(30));
+        if ("POST".equals(request.method())) {
+            builder.header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(request.body()));
+        } else {
+            builder.GET();
+        }
+
+        long t0 = System.nanoTime();
+        int status;
+        try {
+            status = client.send(builder.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            status = -1;
+        }
+        report.record(request.scenario(), status, System.nanoTime() - t0);
+    }
+}
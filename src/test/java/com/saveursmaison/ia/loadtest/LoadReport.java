@@ -0,0 +1,87 @@
+package com.saveursmaison.ia.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resultados de una corrida: latencias por escenario y códigos de estado.
+ */
+class LoadReport {
+
+    private final Map<String, LatencyRecorder> byScenario = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+    private final LatencyRecorder all = new LatencyRecorder();
+    private volatile Duration elapsed = Duration.ZERO;
+
+    void record(String scenario, int status, long latencyNanos) {
+        all.add(latencyNanos);
+        byScenario.computeIfAbsent(scenario, k -> new LatencyRecorder()).add(latencyNanos);
+        statuses.computeIfAbsent(status, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    void finish(Duration elapsed) {
+        this.elapsed = elapsed;
+    }
+
+    long requests() {
+        return all.count();
+    }
+
+    long count(int status) {
+        AtomicLong c = statuses.get(status);
+        return c == null ? 0 : c.get();
+    }
+
+    double throughput() {
+        return elapsed.isZero() ? 0 : all.count() / (elapsed.toNanos() / 1e9);
+    }
+
+    String format() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("requests=%d elapsed=%.1fs throughput=%.1f req/s statuses=%s%n",
+                all.count(), elapsed.toMillis() / 1000.0, throughput(), new TreeMap<>(statuses)));
+        sb.append(String.format("%-18s %8s %8s %8s %8s %8s%n", "scenario", "count", "p50ms", "p90ms", "p99ms", "maxms"));
+        sb.append(all.format("ALL"));
+        new TreeMap<>(byScenario).forEach((name, r) -> sb.append(r.format(name)));
+        return sb.toString();
+    }
+
+    /**
+     * Guarda latencias crudas; para corridas de minutos es suficiente y da percentiles exactos.
+     */
+    static final class LatencyRecorder {
+
+        private long[] samples = new long[1024];
+        private int size;
+
+        synchronized void add(long nanos) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+        }
+
+        synchronized long count() {
+            return size;
+        }
+
+        synchronized double percentileMillis(double p) {
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int idx = (int) Math.min(size - 1, Math.ceil(p / 100.0 * size) - 1);
+            return sorted[Math.max(0, idx)] / 1e6;
+        }
+
+        String format(String name) {
+            return String.format("%-18s %8d %8.1f %8.1f %8.1f %8.1f%n", name, count(),
+                    percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(100));
+        }
+    }
+}
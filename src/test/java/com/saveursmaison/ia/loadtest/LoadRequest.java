@@ -0,0 +1,15 @@
+package com.saveursmaison.ia.loadtest;
+
+/**
+ * Una petición del tráfico simulado: escenario (para el informe), método, ruta y cuerpo JSON.
+ */
+record LoadRequest(String scenario, String method, String path, String body) {
+
+    static LoadRequest chat(String scenario, String body) {
+        return new LoadRequest(scenario, "POST", "/ai/pairings/chat", body);
+    }
+
+    static LoadRequest get(String scenario, String path) {
+        return new LoadRequest(scenario, "GET", path, null);
+    }
+}
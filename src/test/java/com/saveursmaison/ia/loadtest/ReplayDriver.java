@@ -0,0 +1,127 @@
+package com.saveursmaison.ia.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga de lazo abierto: manda cada petición de la agenda a su
+ * hora, sin esperar a las anteriores, así una respuesta lenta no frena la
+ * llegada de las siguientes (como en producción).
+ *
+ * Un turno de seguimiento espera la respuesta del turno anterior de su sesión
+ * para usar el sessionId que dio el servicio; si ese turno falló, va sin sesión.
+ */
+class ReplayDriver {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String baseUrl;
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newCachedThreadPool())
+            .build();
+
+    /**
+     * Cuánto se atrasó el envío respecto de la agenda (el driver no da abasto).
+     */
+    private volatile long maxLagNanos;
+
+    ReplayDriver(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    LoadReport run(List<ReplayTraffic.Event> events) throws InterruptedException {
+        LoadReport report = new LoadReport();
+        Map<String, CompletableFuture<String>> sessions = new ConcurrentHashMap<>();
+        List<CompletableFuture<?>> inFlight = new ArrayList<>(events.size());
+
+        long start = System.nanoTime();
+        for (ReplayTraffic.Event event : events) {
+            long wait = start + event.offsetNanos() - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            } else {
+                maxLagNanos = Math.max(maxLagNanos, -wait);
+            }
+
+            CompletableFuture<String> previous = event.followUp()
+                    ? sessions.getOrDefault(event.recordedSession(), CompletableFuture.completedFuture(null))
+                    : CompletableFuture.completedFuture(null);
+            CompletableFuture<String> sent = previous.thenCompose(sessionId -> send(event, sessionId, report));
+            if (event.recordedSession() != null) {
+                // El turno siguiente sigue con la sesión de este, o con la anterior si este no la devolvió
+                sessions.put(event.recordedSession(),
+                        sent.thenCombine(previous, (now, before) -> now != null ? now : before));
+            }
+            inFlight.add(sent);
+        }
+
+        try {
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).get(60, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        report.finish(Duration.ofNanos(System.nanoTime() - start));
+        return report;
+    }
+
+    Duration maxLag() {
+        return Duration.ofNanos(maxLagNanos);
+    }
+
+    /**
+     * Manda un turno y devuelve el sessionId de la respuesta (null si falló).
+     */
+    private CompletableFuture<String> send(ReplayTraffic.Event event, String sessionId, LoadReport report) {
+        Map<String, Object> body = event.body();
+        if (sessionId != null) {
+            body = new LinkedHashMap<>(body);
+            body.put("sessionId", sessionId);
+        }
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(baseUrl + "/ai/pairings/chat"))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(body)))
+                    .build();
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long t0 = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    int status = error != null ? -1 : response.statusCode();
+                    report.record(event.scenario(), status, System.nanoTime() - t0);
+                    return status == 200 ? sessionIdOf(response.body()) : null;
+                });
+    }
+
+    private static String sessionIdOf(String json) {
+        try {
+            JsonNode sessionId = MAPPER.readTree(json).get("sessionId");
+            return sessionId == null || sessionId.isNull() ? null : sessionId.asText();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
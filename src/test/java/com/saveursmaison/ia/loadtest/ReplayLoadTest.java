@@ -0,0 +1,124 @@
+package com.saveursmaison.ia.loadtest;
+
+import com.saveursmaison.ia.dto.PairingStatsResponse;
+import com.saveursmaison.ia.stats.PairingStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replay de tráfico real (exportado con {@code PairingLogExport}) contra el
+ * servicio con stubs de OpenAI y catálogo: percentiles por tipo de petición,
+ * tasa de aciertos de la caché de respuestas y reparto de modos detectados.
+ * Sirve de benchmark de regresión con mensajes, idiomas y selecciones de verdad.
+ *
+ * <pre>
+ * mvn test -Pload-test -Dtest=ReplayLoadTest \
+ *   -Dloadtest.replay-file=data/pairing-replay.jsonl \
+ *   -Dloadtest.replay-speed=60 -Dloadtest.replay-max-gap=5s
+ * </pre>
+ * {@code -Dloadtest.replay-rate=50} ignora los tiempos grabados y manda 50 req/s.
+ * Sin archivo usa la muestra de {@code src/test/resources/loadtest/replay-sample.jsonl}.
+ * Las trazas muestreadas quedan en {@code target/replay-traces.jsonl} ({@code -Dloadtest.traces-file}).
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ReplayLoadTest {
+
+    static final StubOpenAIServer OPENAI = new StubOpenAIServer(
+            LatencyDistribution.parse(System.getProperty("loadtest.openai-latency", "lognormal:300ms:0.5")),
+            Double.parseDouble(System.getProperty("loadtest.openai-error-rate", "0.01"))
+    );
+
+    static final StubCatalogServer CATALOG = new StubCatalogServer(
+            ChatLoadTest.WINES, ChatLoadTest.CHEESES,
+            LatencyDistribution.parse(System.getProperty("loadtest.catalog-latency", "uniform:5ms:30ms"))
+    );
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    PairingStats pairingStats;
+
+    @DynamicPropertySource
+    static void stubs(DynamicPropertyRegistry registry) {
+        registry.add("openai.base-url", OPENAI::v1BaseUrl);
+        registry.add("openai.api-key", () -> "stub-key");
+        registry.add("catalog.base-url", CATALOG::baseUrl);
+        registry.add("pairing-log.store", () -> "memory");
+        // El replay acelerado junta en segundos lo que un usuario mandó en horas
+        registry.add("ratelimit.user-requests-per-minute", () -> "6000");
+        registry.add("ratelimit.user-burst", () -> "100");
+        registry.add("stats.refresh", () -> "0s");
+        registry.add("response-cache.enabled", () -> System.getProperty("loadtest.response-cache", "true"));
+        registry.add("batching.enabled", () -> System.getProperty("loadtest.batching", "false"));
+        registry.add("tracing.file", () -> System.getProperty("loadtest.traces-file", "target/replay-traces.jsonl"));
+    }
+
+    @AfterAll
+    static void stopStubs() {
+        OPENAI.close();
+        CATALOG.close();
+    }
+
+    @Test
+    void recordedTraffic() throws InterruptedException {
+        ReplayTraffic traffic = new ReplayTraffic(
+                ReplayTraffic.load(System.getProperty("loadtest.replay-file", "")),
+                ChatLoadTest.WINES, ChatLoadTest.CHEESES);
+        var events = traffic.schedule(
+                Double.parseDouble(System.getProperty("loadtest.replay-speed", "1")),
+                Duration.parse("PT" + System.getProperty("loadtest.replay-max-gap", "5s").toUpperCase()),
+                Double.parseDouble(System.getProperty("loadtest.replay-rate", "0")));
+
+        double hitsBefore = cacheRequests("hit");
+        double missesBefore = cacheRequests("miss");
+        Map<String, Long> modesBefore = modes();
+        long callsBefore = OPENAI.calls();
+
+        ReplayDriver driver = new ReplayDriver("http://127.0.0.1:" + port);
+        LoadReport report = driver.run(events);
+
+        double hits = cacheRequests("hit") - hitsBefore;
+        double lookups = hits + cacheRequests("miss") - missesBefore;
+        Map<String, Long> modes = new TreeMap<>(modes());
+        modesBefore.forEach((mode, count) -> modes.merge(mode, -count, Long::sum));
+
+        System.out.println("=== ia-service replay ===");
+        System.out.printf("recorded=%d span=%s max send lag=%dms%n",
+                traffic.size(), traffic.recordedSpan(), driver.maxLag().toMillis());
+        System.out.print(report.format());
+        System.out.printf("response cache: %.0f/%.0f hits (%.1f%%)%n", hits, lookups, lookups == 0 ? 0 : 100 * hits / lookups);
+        System.out.println("modes: " + modes);
+        System.out.println("stub OpenAI calls: " + (OPENAI.calls() - callsBefore));
+
+        assertTrue(report.count(200) > 0, "no successful requests");
+    }
+
+    private double cacheRequests(String result) {
+        Counter counter = meterRegistry.find("pairing.cache.requests").tag("result", result).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private Map<String, Long> modes() {
+        PairingStatsResponse.WindowStats window = pairingStats.snapshot().windows().get("last24Hours");
+        return window == null ? Map.of() : window.modes();
+    }
+}
@@ -0,0 +1,142 @@
+package com.saveursmaison.ia.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.saveursmaison.ia.logging.PairingReplayRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tráfico grabado (archivo de {@code PairingLogExport}) convertido en una
+ * agenda de peticiones.
+ *
+ * - Los IDs de producto reales se mapean a los del stub de catálogo
+ *   ({@code wine-N} / {@code cheese-N}) en orden de aparición: se conserva qué
+ *   productos se repiten y cuánto.
+ * - Los tiempos se reproducen divididos por {@code speed}, con los silencios
+ *   largos (la noche) recortados a {@code maxGap}; o a ritmo fijo si {@code rate > 0}.
+ * - El primer turno de cada sesión grabada va sin sessionId y los siguientes
+ *   usan la sesión que devolvió el servicio (ver {@link ReplayDriver}).
+ */
+class ReplayTraffic {
+
+    /**
+     * Una petición de la agenda.
+     *
+     * @param offsetNanos     cuándo mandarla, desde el inicio del replay
+     * @param recordedSession sesión grabada (null = sin conversación)
+     * @param followUp        hay un turno anterior de la misma sesión
+     */
+    record Event(long offsetNanos, String recordedSession, boolean followUp, String scenario, Map<String, Object> body) {
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final List<PairingReplayRecord> records;
+    private final int wines;
+    private final int cheeses;
+
+    ReplayTraffic(List<PairingReplayRecord> records, int wines, int cheeses) {
+        this.records = records.stream()
+                .filter(r -> r.message() != null && !r.message().isBlank())
+                .sorted(Comparator.comparingLong(PairingReplayRecord::createdAtMillis))
+                .toList();
+        this.wines = wines;
+        this.cheeses = cheeses;
+    }
+
+    /**
+     * Lee el archivo indicado o, si es vacío, la muestra de {@code loadtest/replay-sample.jsonl}.
+     */
+    static List<PairingReplayRecord> load(String file) {
+        try (InputStream in = file == null || file.isEmpty()
+                ? ReplayTraffic.class.getResourceAsStream("/loadtest/replay-sample.jsonl")
+                : Files.newInputStream(Path.of(file));
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            List<PairingReplayRecord> records = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    records.add(MAPPER.readValue(line, PairingReplayRecord.class));
+                }
+            }
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int size() {
+        return records.size();
+    }
+
+    Duration recordedSpan() {
+        return records.isEmpty() ? Duration.ZERO : Duration.ofMillis(
+                records.get(records.size() - 1).createdAtMillis() - records.get(0).createdAtMillis());
+    }
+
+    List<Event> schedule(double speed, Duration maxGap, double rate) {
+        Map<String, String> wineIds = new HashMap<>();
+        Map<String, String> cheeseIds = new HashMap<>();
+        Set<String> seenSessions = new HashSet<>();
+        List<Event> events = new ArrayList<>(records.size());
+
+        long offset = 0;
+        long maxGapMillis = maxGap.toMillis();
+        for (int i = 0; i < records.size(); i++) {
+            PairingReplayRecord r = records.get(i);
+            if (rate > 0) {
+                offset = (long) (i / rate * 1e9);
+            } else if (i > 0) {
+                long gap = Math.min(maxGapMillis, Math.max(0, r.createdAtMillis() - records.get(i - 1).createdAtMillis()));
+                offset += (long) (gap * 1e6 / speed);
+            }
+
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("message", r.message());
+            body.put("locale", r.locale() == null ? "en" : r.locale());
+            body.put("userId", r.userId() == null ? "replay-anonymous" : r.userId());
+            List<String> selectedWines = remap(r.selectedWineIds(), wineIds, "wine-", wines);
+            List<String> selectedCheeses = remap(r.selectedCheeseIds(), cheeseIds, "cheese-", cheeses);
+            if (!selectedWines.isEmpty()) {
+                body.put("selectedWineIds", selectedWines);
+            }
+            if (!selectedCheeses.isEmpty()) {
+                body.put("selectedCheeseIds", selectedCheeses);
+            }
+
+            String session = r.sessionId() == null || r.sessionId().isEmpty() ? null : r.sessionId();
+            boolean followUp = session != null && !seenSessions.add(session);
+            String scenario = followUp ? "follow-up"
+                    : selectedWines.isEmpty() && selectedCheeses.isEmpty() ? "free-text" : "selection";
+            events.add(new Event(offset, session, followUp, scenario, body));
+        }
+        return events;
+    }
+
+    private static List<String> remap(List<String> ids, Map<String, String> mapping, String prefix, int catalogSize) {
+        if (ids == null || ids.isEmpty()) {
+            return List.of();
+        }
+        List<String> mapped = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            mapped.add(mapping.computeIfAbsent(id, k -> prefix + (mapping.size() % catalogSize)));
+        }
+        return mapped;
+    }
+}
@@ -0,0 +1,62 @@
+package com.saveursmaison.ia.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stub de catalog-service: sirve {@code /catalog/ai/wines} y {@code /catalog/ai/cheeses}
+ * con productos sintéticos (IDs {@code wine-N} / {@code cheese-N}).
+ */
+class StubCatalogServer extends StubServer {
+
+    private static final String[] WINE_TYPES = {"Red", "White", "Rosé", "Sparkling"};
+    private static final String[] MILKS = {"Cow", "Goat", "Sheep"};
+    private static final String[] REGIONS = {"Bordeaux", "Bourgogne", "Loire", "Rioja", "Toscana"};
+
+    StubCatalogServer(int wines, int cheeses, LatencyDistribution latency) {
+        ObjectMapper mapper = new ObjectMapper();
+        String winesJson = json(mapper, products("wine", wines, "type", WINE_TYPES));
+        String cheesesJson = json(mapper, products("cheese", cheeses, "milkType", MILKS));
+
+        handle("/catalog/ai/wines", exchange -> {
+            sleep(latency.next());
+            respondJson(exchange, 200, winesJson);
+        });
+        handle("/catalog/ai/cheeses", exchange -> {
+            sleep(latency.next());
+            respondJson(exchange, 200, cheesesJson);
+        });
+        start();
+    }
+
+    static List<Map<String, Object>> products(String prefix, int count, String kindField, String[] kinds) {
+        List<Map<String, Object>> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("id", prefix + "-" + i);
+            p.put("name", Character.toUpperCase(prefix.charAt(0)) + prefix.substring(1) + " " + i);
+            p.put(kindField, kinds[i % kinds.length]);
+            p.put("style", "Classic");
+            p.put("country", "France");
+            p.put("region", REGIONS[i % REGIONS.length]);
+            p.put("price", 8.0 + (i * 7) % 60);
+            p.put("inStock", true);
+            products.add(p);
+        }
+        return products;
+    }
+
+    private static String json(ObjectMapper mapper, Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.saveursmaison.ia.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stub de {@code POST /v1/chat/completions}.
+ *
+ * Espera según la distribución de latencia, falla con 500 en una fracción
+ * configurable de llamadas y responde el JSON que espera PairingAIService,
+ * recomendando el primer vino y el primer queso que aparecen en el prompt.
+ * A una llamada agrupada ("NUMBER OF REQUESTS: N") le responde un arreglo
+ * con una respuesta por índice. Con {@code capacity > 0}, las llamadas por
+ * encima de esa concurrencia reciben 429 al instante, como el rate limit de OpenAI.
+ */
+class StubOpenAIServer extends StubServer {
+
+    private static final Pattern WINE_ID = Pattern.compile("id=(wine-\\d+)");
+    private static final Pattern CHEESE_ID = Pattern.compile("id=(cheese-\\d+)");
+    private static final Pattern BATCH_SIZE = Pattern.compile("NUMBER OF REQUESTS: (\\d+)");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    StubOpenAIServer(LatencyDistribution latency, double errorRate) {
+        this(latency, errorRate, 0);
+    }
+
+    StubOpenAIServer(LatencyDistribution latency, double errorRate, int capacity) {
+        handle("/v1/chat/completions", exchange -> {
+            calls.incrementAndGet();
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            if (inFlight.incrementAndGet() > capacity && capacity > 0) {
+                inFlight.decrementAndGet();
+                rateLimited.incrementAndGet();
+                respondJson(exchange, 429, "{\"error\":{\"message\":\"stub rate limit\"}}");
+                return;
+            }
+            try {
+                sleep(latency.next());
+                if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                    respondJson(exchange, 500, "{\"error\":{\"message\":\"stub failure\"}}");
+                    return;
+                }
+                respondJson(exchange, 200, completion(body));
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        start();
+    }
+
+    String v1BaseUrl() {
+        return baseUrl() + "/v1";
+    }
+
+    long calls() {
+        return calls.get();
+    }
+
+    long rateLimited() {
+        return rateLimited.get();
+    }
+
+    private String completion(String requestBody) throws IOException {
+        Map<String, Object> answer = Map.of(
+                "answer", "A stub pairing recommendation.",
+                "recommendedWineIds", firstMatch(WINE_ID, requestBody),
+                "recommendedCheeseIds", firstMatch(CHEESE_ID, requestBody)
+        );
+        Matcher batch = BATCH_SIZE.matcher(requestBody);
+        String content;
+        if (batch.find()) {
+            List<Map<String, Object>> answers = new ArrayList<>();
+            for (int i = 0; i < Integer.parseInt(batch.group(1)); i++) {
+                Map<String, Object> indexed = new HashMap<>(answer);
+                indexed.put("index", i);
+                answers.add(indexed);
+            }
+            content = mapper.writeValueAsString(answers);
+        } else {
+            content = mapper.writeValueAsString(answer);
+        }
+        return mapper.writeValueAsString(Map.of(
+                "choices", List.of(Map.of("message", Map.of("role", "assistant", "content", content)))
+        ));
+    }
+
+    private static List<String> firstMatch(Pattern pattern, String text) {
+        Matcher m = pattern.matcher(text);
+        return m.find() ? List.of(m.group(1)) : List.of();
+    }
+}
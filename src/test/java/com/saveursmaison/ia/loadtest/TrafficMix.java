@@ -0,0 +1,56 @@
+package com.saveursmaison.ia.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Mezcla de tráfico parecida a producción: mayoría de flujos desde la página
+ * de producto, una parte de chat libre y lecturas de historial.
+ */
+class TrafficMix implements Supplier<LoadRequest> {
+
+    private static final String[] FREE_TEXT = {
+            "I need a red wine and a cheese for a dinner with friends",
+            "Something to pair with a cheese board tonight, wine and cheese please",
+            "Quiero un vino y un queso para un picnic",
+            "What wine and cheese would go with roast chicken?"
+    };
+
+    private final int users;
+    private final int wines;
+    private final int cheeses;
+    private final double selectionShare;
+    private final double historyShare;
+
+    TrafficMix(int users, int wines, int cheeses, double selectionShare, double historyShare) {
+        this.users = users;
+        this.wines = wines;
+        this.cheeses = cheeses;
+        this.selectionShare = selectionShare;
+        this.historyShare = historyShare;
+    }
+
+    @Override
+    public LoadRequest get() {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        String userId = "load-user-" + rnd.nextInt(users);
+        double roll = rnd.nextDouble();
+
+        if (roll < historyShare) {
+            return LoadRequest.get("history", "/ai/pairings/history?userId=" + userId);
+        }
+        if (roll < historyShare + selectionShare) {
+            if (rnd.nextBoolean()) {
+                return LoadRequest.chat("selection-wine", """
+                        {"message":"Which cheese goes with this wine?","locale":"en","userId":"%s","selectedWineIds":["wine-%d"]}"""
+                        .formatted(userId, rnd.nextInt(wines)));
+            }
+            return LoadRequest.chat("selection-cheese", """
+                    {"message":"Which wine goes with this cheese?","locale":"en","userId":"%s","selectedCheeseIds":["cheese-%d"]}"""
+                    .formatted(userId, rnd.nextInt(cheeses)));
+        }
+        return LoadRequest.chat("free-text", """
+                {"message":"%s","locale":"en","userId":"%s"}"""
+                .formatted(FREE_TEXT[rnd.nextInt(FREE_TEXT.length)], userId));
+    }
+}
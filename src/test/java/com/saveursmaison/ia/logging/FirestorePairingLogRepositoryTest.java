@@ -0,0 +1,143 @@
+package com.saveursmaison.ia.logging;
+
+import com.google.api.core.ApiFutures;
+import com.google.cloud.firestore.CollectionReference;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.WriteBatch;
+import com.saveursmaison.ia.config.FirestoreProvider;
+import com.saveursmaison.ia.config.PairingLogLayoutProperties;
+import com.saveursmaison.ia.config.PairingLogWalProperties;
+import io.grpc.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FirestorePairingLogRepositoryTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<String> stored = new CopyOnWriteArrayList<>();
+    private volatile boolean firestoreDown;
+    private FirestorePairingLogRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        Firestore firestore = mock(Firestore.class);
+        CollectionReference collection = mock(CollectionReference.class);
+        when(firestore.collection(FirestorePairingLogRepository.COLLECTION_NAME)).thenReturn(collection);
+        when(collection.document(anyString())).thenReturn(mock(DocumentReference.class));
+        when(firestore.batch()).thenAnswer(inv -> fakeBatch());
+
+        FirestoreProvider provider = mock(FirestoreProvider.class);
+        when(provider.isReady()).thenReturn(true);
+        when(provider.get(anyLong())).thenReturn(firestore);
+
+        PairingLogWalProperties wal = new PairingLogWalProperties();
+        wal.setDir(dir.resolve("wal").toString());
+        wal.setDeadLetterFile(dir.resolve("dead-letter.bin").toString());
+        wal.setReplayInterval(Duration.ofHours(1));
+        wal.setReplayBatchSize(10);
+        repository = new FirestorePairingLogRepository(provider, wal, new PairingLogLayoutProperties(),
+                new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+    }
+
+    @Test
+    void rejectedRecordIsSetAsideAndTheRestKeepsFlowing() throws Exception {
+        repository.save(log("first"));
+        repository.save(log("reject-me"));
+        repository.save(log("third"));
+
+        repository.replay();
+
+        assertEquals(List.of("first", "third"), stored);
+        byte[] deadLetters = Files.readAllBytes(dir.resolve("dead-letter.bin"));
+        ByteBuffer buf = ByteBuffer.wrap(deadLetters);
+        byte[] record = new byte[buf.getInt()];
+        buf.get(record);
+        assertFalse(buf.hasRemaining());
+        assertEquals("reject-me", PairingLogCodec.decode(record).log().getMessage());
+
+        // Lo que llega después ya no queda detrás del registro rechazado
+        repository.save(log("later"));
+        repository.replay();
+        assertEquals(List.of("first", "third", "later"), stored);
+    }
+
+    @Test
+    void transientFailureKeepsTheBatchForTheNextAttempt() {
+        repository.save(log("first"));
+        firestoreDown = true;
+        repository.replay();
+        assertEquals(List.of(), stored);
+        assertFalse(Files.exists(dir.resolve("dead-letter.bin")));
+
+        firestoreDown = false;
+        repository.replay();
+        assertEquals(List.of("first"), stored);
+    }
+
+    @Test
+    void longTextsAreCappedBeforeTheyReachFirestore() {
+        PairingLog log = log("x".repeat(PairingLog.MAX_TEXT_CHARS + 500));
+        log.setAnswer("a" + "🍷".repeat(PairingLog.MAX_TEXT_CHARS));
+
+        PairingLog capped = log.capped();
+
+        assertEquals(PairingLog.MAX_TEXT_CHARS, capped.getMessage().length());
+        // El recorte no deja medio emoji
+        assertEquals(PairingLog.MAX_TEXT_CHARS - 1, capped.getAnswer().length());
+        assertFalse(Character.isHighSurrogate(capped.getAnswer().charAt(capped.getAnswer().length() - 1)));
+    }
+
+    private WriteBatch fakeBatch() {
+        List<PairingLog> pending = new ArrayList<>();
+        WriteBatch batch = mock(WriteBatch.class);
+        when(batch.set(any(DocumentReference.class), any(Object.class))).thenAnswer(inv -> {
+            pending.add(inv.getArgument(1));
+            return batch;
+        });
+        when(batch.commit()).thenAnswer(inv -> {
+            if (firestoreDown) {
+                return ApiFutures.immediateFailedFuture(
+                        FirestoreException.forServerRejection(Status.UNAVAILABLE, "Firestore is down"));
+            }
+            if (pending.stream().anyMatch(l -> "reject-me".equals(l.getMessage()))) {
+                return ApiFutures.immediateFailedFuture(
+                        FirestoreException.forInvalidArgument("Document exceeds the maximum size"));
+            }
+            pending.forEach(l -> stored.add(l.getMessage()));
+            return ApiFutures.immediateFuture(List.of());
+        });
+        return batch;
+    }
+
+    private static PairingLog log(String message) {
+        return PairingLog.builder().userId("u1").message(message).answer("ok").build();
+    }
+}
@@ -0,0 +1,64 @@
+package com.saveursmaison.ia.logging;
+
+import com.google.cloud.Timestamp;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PairingReplayRecordTest {
+
+    private static final byte[] KEY = "export-2026-10".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void recordKeepsWhatTheClientSentAndHidesTheIds() {
+        PairingLog log = PairingLog.builder()
+                .userId("user-42")
+                .sessionId("session-7")
+                .locale("fr")
+                .source("selection")
+                .message("Un rouge léger")
+                .selectedWineIds(List.of("wine-1"))
+                .selectedCheeseIds(List.of("cheese-2"))
+                .answer("Un Chinon")
+                .build();
+        log.setCreatedAt(Timestamp.ofTimeSecondsAndNanos(1_768_500_000L, 250_000_000));
+
+        PairingReplayRecord record = PairingReplayRecord.of(log, KEY);
+
+        assertEquals(1_768_500_000_250L, record.createdAtMillis());
+        assertEquals("fr", record.locale());
+        assertEquals("selection", record.source());
+        assertEquals("Un rouge léger", record.message());
+        assertEquals(List.of("wine-1"), record.selectedWineIds());
+        assertEquals(List.of("cheese-2"), record.selectedCheeseIds());
+        assertEquals(PairingReplayRecord.pseudonym("user-42", KEY), record.userId());
+        assertEquals(PairingReplayRecord.pseudonym("session-7", KEY), record.sessionId());
+
+        PairingReplayRecord raw = PairingReplayRecord.of(log, null);
+        assertEquals("user-42", raw.userId());
+        assertEquals("session-7", raw.sessionId());
+    }
+
+    @Test
+    void pseudonymIsStablePerKeyAndNotAPlainHash() throws Exception {
+        String pseudonym = PairingReplayRecord.pseudonym("user-42", KEY);
+
+        assertEquals(16, pseudonym.length());
+        assertEquals(pseudonym, PairingReplayRecord.pseudonym("user-42", KEY));
+        assertNotEquals(pseudonym, PairingReplayRecord.pseudonym("user-43", KEY));
+        // Otra exportación (otra clave) no se puede cruzar con esta
+        assertNotEquals(pseudonym, PairingReplayRecord.pseudonym("user-42", "other".getBytes(StandardCharsets.UTF_8)));
+        // Hashear un ID candidato no lo revela
+        byte[] plain = MessageDigest.getInstance("SHA-256").digest("user-42".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(HexFormat.of().formatHex(plain, 0, 8), pseudonym);
+
+        assertNull(PairingReplayRecord.pseudonym(null, KEY));
+    }
+}
@@ -0,0 +1,64 @@
+package com.saveursmaison.ia.logging;
+
+import com.google.cloud.Timestamp;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerUserHistoryLayoutTest {
+
+    @Test
+    void mergeKeepsTheNewestWithoutDuplicatingReplayedLogs() {
+        PairingHistorySummary summary = PerUserHistoryLayout.merge("u1", null,
+                List.of(entry("a", 10), entry("b", 20), entry("c", 30)), 3);
+        assertEquals(List.of("c", "b", "a"), summary.getItemIds());
+
+        // "c" llega otra vez (reenvío del WAL) junto con dos nuevos
+        summary = PerUserHistoryLayout.merge("u1", summary,
+                List.of(entry("c", 30), entry("d", 40), entry("e", 5)), 3);
+
+        assertEquals(List.of("d", "c", "b"), summary.getItemIds());
+        assertEquals(List.of("msg-d", "msg-c", "msg-b"),
+                summary.getItems().stream().map(PairingLog::getMessage).toList());
+    }
+
+    @Test
+    void perUserEnabledBeforeBackfillStillReadsTheFlatHistory() {
+        // Historial viejo en la colección plana; per-user se enciende y llega un log nuevo
+        List<PairingLogCodec.Entry> flat = List.of(entry("b", 20), entry("a", 10));
+        PairingHistorySummary live = PerUserHistoryLayout.merge("u1", null, List.of(entry("c", 30)), 3);
+        assertFalse(live.isMigrated());
+
+        assertEquals(List.of("msg-c", "msg-b", "msg-a"), messages(
+                PerUserHistoryLayout.newest(List.of(entry("c", 30)), flat, 5)));
+
+        // El backfill copia los viejos (mismos IDs) antes de marcar: nada se repite
+        PairingHistorySummary backfilled = PerUserHistoryLayout.merge("u1", live, flat, 3);
+        assertEquals(List.of("msg-c", "msg-b", "msg-a"), messages(
+                PerUserHistoryLayout.newest(List.of(entry("c", 30), entry("b", 20), entry("a", 10)), flat, 5)));
+        assertFalse(backfilled.isMigrated());
+
+        // Marcado al final del backfill, los logs siguientes conservan la marca
+        backfilled.setMigrated(true);
+        assertTrue(PerUserHistoryLayout.merge("u1", backfilled, List.of(entry("d", 40)), 3).isMigrated());
+    }
+
+    @Test
+    void userIdsAreSafeDocumentIds() {
+        assertEquals("a%2Fb%25c", PerUserHistoryLayout.documentId("a/b%c"));
+    }
+
+    private static List<String> messages(List<PairingLog> logs) {
+        return logs.stream().map(PairingLog::getMessage).toList();
+    }
+
+    private static PairingLogCodec.Entry entry(String id, long seconds) {
+        PairingLog log = PairingLog.builder().userId("u1").message("msg-" + id).build();
+        log.setCreatedAt(Timestamp.ofTimeSecondsAndNanos(seconds, 0));
+        return new PairingLogCodec.Entry(id, log);
+    }
+}
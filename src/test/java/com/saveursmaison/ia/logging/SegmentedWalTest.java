@@ -0,0 +1,69 @@
+package com.saveursmaison.ia.logging;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentedWalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysAcrossSegmentsAndRestarts() throws Exception {
+        SegmentedWal wal = SegmentedWal.open(dir, 4096, 1 << 20);
+        for (int i = 0; i < 100; i++) {
+            wal.append(PairingLogCodec.encode("id-" + i, log(i)));
+        }
+
+        SegmentedWal.Batch first = wal.read(wal.checkpoint(), 30);
+        assertEquals(30, first.records().size());
+        wal.commit(first.next());
+        wal.close();
+
+        // Reabrir como tras un reinicio: sigue desde el checkpoint y agrega al final
+        SegmentedWal reopened = SegmentedWal.open(dir, 4096, 1 << 20);
+        reopened.append(PairingLogCodec.encode("id-100", log(100)));
+        SegmentedWal.Batch rest = reopened.read(reopened.checkpoint(), 1_000);
+
+        assertEquals(71, rest.records().size());
+        PairingLogCodec.Entry firstPending = PairingLogCodec.decode(rest.records().get(0));
+        assertEquals("id-30", firstPending.id());
+        assertEquals("message 30", firstPending.log().getMessage());
+        assertEquals(List.of("wine-30"), firstPending.log().getRecommendedWineIds());
+        assertEquals("id-100", PairingLogCodec.decode(rest.records().get(70)).id());
+
+        reopened.commit(rest.next());
+        assertEquals(0, reopened.backlogBytes());
+    }
+
+    @Test
+    void retentionIsBoundedBySize() throws Exception {
+        SegmentedWal wal = SegmentedWal.open(dir, 4096, 3 * 4096);
+        for (int i = 0; i < 500; i++) {
+            wal.append(PairingLogCodec.encode("id-" + i, log(i)));
+        }
+
+        assertTrue(wal.droppedSegments() > 0);
+        assertTrue(wal.backlogBytes() <= 3 * 4096);
+        List<byte[]> kept = wal.read(wal.checkpoint(), 1_000).records();
+        assertEquals("id-499", PairingLogCodec.decode(kept.get(kept.size() - 1)).id());
+    }
+
+    private static PairingLog log(int i) {
+        return PairingLog.builder()
+                .userId("user-" + (i % 7))
+                .locale("en")
+                .source("prompt")
+                .message("message " + i)
+                .answer("answer " + i)
+                .recommendedWineIds(List.of("wine-" + i))
+                .recommendedCheeseIds(List.of())
+                .build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.saveursmaison.ia.ratelimit;
+
+import com.saveursmaison.ia.config.RateLimitProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadShedderTest {
+
+    @Test
+    void queuedRequestGetsTheSlotWhenItIsReleased() throws Exception {
+        LoadShedder shedder = new LoadShedder(properties(1, 1, Duration.ofSeconds(2)));
+        LoadShedder.Permit first = shedder.acquire();
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<LoadShedder.Permit> queued = pool.submit(shedder::acquire);
+            Thread.sleep(50);
+            first.close();
+            queued.get(1, TimeUnit.SECONDS).close();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void fullQueueIsRejectedRightAwayAndWaitingOnlyUntilTheQueueTimeout() throws Exception {
+        LoadShedder shedder = new LoadShedder(properties(1, 1, Duration.ofMillis(200)));
+        LoadShedder.Permit held = shedder.acquire();
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            long start = System.nanoTime();
+            Future<LoadShedder.Permit> queued = pool.submit(shedder::acquire);
+            Thread.sleep(50);
+
+            // La cola (de uno) ya está ocupada: 429 sin esperar
+            TooManyRequestsException rejected = assertThrows(TooManyRequestsException.class, shedder::acquire);
+            assertEquals(1, rejected.getRetryAfterSeconds());
+
+            ExecutionException timedOut = assertThrows(ExecutionException.class, () -> queued.get(2, TimeUnit.SECONDS));
+            assertInstanceOf(TooManyRequestsException.class, timedOut.getCause());
+            long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(waitedMillis >= 200 && waitedMillis < 1_500, "waited " + waitedMillis + " ms");
+        } finally {
+            held.close();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void closingAPermitTwiceOrFromSeveralThreadsReleasesOneSlot() throws Exception {
+        LoadShedder shedder = new LoadShedder(properties(1, 0, Duration.ZERO));
+        LoadShedder.Permit permit = shedder.acquire();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> closes = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                closes.add(pool.submit(() -> {
+                    start.await();
+                    permit.close();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> close : closes) {
+                close.get(1, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        permit.close();
+
+        // Un solo hueco de vuelta: el segundo acquire no entra
+        LoadShedder.Permit next = shedder.acquire();
+        assertThrows(TooManyRequestsException.class, shedder::acquire);
+        next.close();
+    }
+
+    private static RateLimitProperties properties(int maxInFlight, int maxQueued, Duration queueTimeout) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxInFlight(maxInFlight);
+        properties.setMaxQueued(maxQueued);
+        properties.setQueueTimeout(queueTimeout);
+        return properties;
+    }
+}
@@ -0,0 +1,69 @@
+package com.saveursmaison.ia.ratelimit;
+
+import com.saveursmaison.ia.config.RateLimitProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserRateLimiterTest {
+
+    @Test
+    void burstIsAllowedThenRetryAfterPointsToTheNextToken() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setUserBurst(3);
+        properties.setUserRequestsPerMinute(6);
+        UserRateLimiter limiter = new UserRateLimiter(properties);
+
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("user:1");
+        }
+        TooManyRequestsException limited = assertThrows(TooManyRequestsException.class, () -> limiter.acquire("user:1"));
+
+        // 6 por minuto: un token cada 10 s
+        Duration retryAfter = limited.getRetryAfter();
+        assertTrue(retryAfter.compareTo(Duration.ofSeconds(9)) > 0 && retryAfter.compareTo(Duration.ofSeconds(10)) <= 0,
+                "retry after " + retryAfter);
+        assertEquals(10, limited.getRetryAfterSeconds());
+        // Otro usuario tiene su propio bucket
+        assertDoesNotThrow(() -> limiter.acquire("user:2"));
+    }
+
+    @Test
+    void tokensRefillOverTime() throws InterruptedException {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setUserBurst(1);
+        properties.setUserRequestsPerMinute(1_200);
+        UserRateLimiter limiter = new UserRateLimiter(properties);
+
+        limiter.acquire("user:1");
+        TooManyRequestsException limited = assertThrows(TooManyRequestsException.class, () -> limiter.acquire("user:1"));
+        assertEquals(1, limited.getRetryAfterSeconds());
+
+        // 1200 por minuto: un token cada 50 ms
+        Thread.sleep(120);
+        assertDoesNotThrow(() -> limiter.acquire("user:1"));
+    }
+
+    @Test
+    void trackedUsersAreBoundedAndAnEvictedUserComesBackWithAFullBucket() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setUserBurst(1);
+        properties.setUserRequestsPerMinute(1);
+        properties.setMaxTrackedUsers(2);
+        UserRateLimiter limiter = new UserRateLimiter(properties);
+
+        limiter.acquire("user:a");
+        limiter.acquire("user:b");
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire("user:a"));
+
+        // "a" se acaba de usar: con "c" se expulsa "b", el menos reciente
+        limiter.acquire("user:c");
+        assertThrows(TooManyRequestsException.class, () -> limiter.acquire("user:a"));
+        assertDoesNotThrow(() -> limiter.acquire("user:b"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.saveursmaison.ia.routing;
+
+import com.saveursmaison.ia.client.ChatCompletionRequest;
+import com.saveursmaison.ia.client.StubChatCompletionProvider;
+import com.saveursmaison.ia.config.OpenAIProperties;
+import com.saveursmaison.ia.deadline.Deadline;
+import com.saveursmaison.ia.scheduling.RequestClass;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ModelRouterTest {
+
+    private final StubChatCompletionProvider fast = new StubChatCompletionProvider("fast-stub", Duration.ofMillis(1));
+    private final StubChatCompletionProvider quality = new StubChatCompletionProvider("quality-stub", Duration.ofMillis(20));
+
+    private ModelRouter router() {
+        OpenAIProperties properties = new OpenAIProperties();
+        properties.setProbeInterval(Duration.ofHours(1));
+        properties.setTiers(List.of(tier("quality", "big-model", "quality-stub"), tier("fast", "small-model", "fast-stub")));
+        return new ModelRouter(properties, List.of(fast, quality));
+    }
+
+    @Test
+    void selectionGoesToFastestTierOnceLatencyIsKnown() {
+        ModelRouter router = router();
+        // Una muestra de cada tier
+        router.complete(RequestClass.FREE_TEXT, 10, this::request, Deadline.after(Duration.ofSeconds(30)));
+        quality.setFailing(true);
+        router.complete(RequestClass.FREE_TEXT, 10, this::request, Deadline.after(Duration.ofSeconds(30)));
+        quality.setFailing(false);
+
+        router.complete(RequestClass.SELECTION, 10, this::request, Deadline.after(Duration.ofSeconds(30)));
+        assertEquals("small-model", fast.lastModel());
+        assertEquals(2, fast.calls());
+    }
+
+    @Test
+    void degradedTierIsRoutedAround() {
+        ModelRouter router = router();
+        quality.setFailing(true);
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(router.complete(RequestClass.FREE_TEXT, 10, this::request, Deadline.after(Duration.ofSeconds(30))));
+        }
+        int qualityCalls = quality.calls();
+
+        assertNotNull(router.complete(RequestClass.FREE_TEXT, 10, this::request, Deadline.after(Duration.ofSeconds(30))));
+        assertEquals(qualityCalls, quality.calls());
+    }
+
+    private ChatCompletionRequest request(String model) {
+        return new ChatCompletionRequest(model, List.of(), 600, 0.8);
+    }
+
+    private static OpenAIProperties.Tier tier(String name, String model, String provider) {
+        OpenAIProperties.Tier tier = new OpenAIProperties.Tier(name, model);
+        tier.setProvider(provider);
+        return tier;
+    }
+}
@@ -0,0 +1,66 @@
+package com.saveursmaison.ia.scheduling;
+
+import com.saveursmaison.ia.config.SchedulerProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(400);
+
+    @Test
+    void growsWhileLatencyHoldsAndBacksOffOnQueueingOr429() {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.setMaxConcurrent(8);
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(properties);
+
+        // Tope lleno y latencia estable: sube
+        for (int i = 0; i < 20; i++) {
+            wave(limit, limit.current(), RTT, AdaptiveConcurrencyLimit.Outcome.SUCCESS);
+        }
+        int grown = limit.current();
+        assertTrue(grown > 8, "limit should grow, was " + grown);
+
+        // OpenAI empieza a encolar (latencia x3): baja
+        for (int i = 0; i < 5; i++) {
+            wave(limit, limit.current(), 3 * RTT, AdaptiveConcurrencyLimit.Outcome.SUCCESS);
+        }
+        int queued = limit.current();
+        assertTrue(queued < grown, "limit should shrink on latency, was " + queued);
+
+        // Una ráfaga de 429 de llamadas simultáneas cuenta como una sola baja
+        wave(limit, 10, RTT, AdaptiveConcurrencyLimit.Outcome.DROPPED);
+        assertEquals((int) (queued * 0.9), limit.current(), 1);
+        assertEquals(0, limit.inFlight());
+    }
+
+    @Test
+    void idleTrafficDoesNotInflateTheLimit() {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.setMaxConcurrent(16);
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(properties);
+
+        for (int i = 0; i < 50; i++) {
+            wave(limit, 2, RTT, AdaptiveConcurrencyLimit.Outcome.SUCCESS);
+        }
+        assertEquals(16, limit.current());
+    }
+
+    /**
+     * {@code calls} llamadas simultáneas que terminan con la latencia indicada.
+     */
+    private static void wave(AdaptiveConcurrencyLimit limit, int calls, long rttNanos,
+                             AdaptiveConcurrencyLimit.Outcome outcome) {
+        for (int i = 0; i < calls; i++) {
+            limit.onStart();
+        }
+        long start = System.nanoTime() - rttNanos;
+        for (int i = 0; i < calls; i++) {
+            limit.onComplete(start, outcome);
+        }
+    }
+}
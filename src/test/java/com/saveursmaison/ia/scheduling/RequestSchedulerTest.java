@@ -0,0 +1,168 @@
+package com.saveursmaison.ia.scheduling;
+
+import com.saveursmaison.ia.config.SchedulerProperties;
+import com.saveursmaison.ia.ratelimit.TooManyRequestsException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestSchedulerTest {
+
+    @Test
+    void freeTextFloodDoesNotStarveSelection() throws Exception {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.setMaxConcurrent(4);
+        properties.setFreeTextShare(0.5);
+        properties.setMaxWait(Duration.ofMillis(200));
+        RequestScheduler scheduler = new RequestScheduler(properties);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        for (int i = 0; i < 2; i++) {
+            pool.submit(() -> scheduler.execute(RequestClass.FREE_TEXT, "chatty", () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+        }
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        // El texto libre ya usa su cuota: otro más espera y acaba en 429...
+        assertThrows(TooManyRequestsException.class,
+                () -> scheduler.execute(RequestClass.FREE_TEXT, "other", () -> "x"));
+        // ...pero la página de producto sigue entrando
+        assertEquals("ok", scheduler.execute(RequestClass.SELECTION, "shopper", () -> "ok"));
+
+        release.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals("ok", scheduler.execute(RequestClass.FREE_TEXT, "other", () -> "ok"));
+    }
+
+    @Test
+    void raisedLimitAdmitsWaitersWithoutWaitingForARelease() throws Exception {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.setMaxConcurrent(1);
+        properties.setAdaptiveMinConcurrent(1);
+        properties.setAdaptiveMaxConcurrent(4);
+        properties.setSmoothing(1.0);
+        properties.setMaxWait(Duration.ofSeconds(5));
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(properties);
+        RequestScheduler scheduler = new RequestScheduler(properties, limit);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch admitted = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            pool.submit(() -> scheduler.execute(RequestClass.SELECTION, "first", () -> {
+                holding.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            assertTrue(holding.await(1, TimeUnit.SECONDS));
+            pool.submit(() -> scheduler.execute(RequestClass.SELECTION, "second", () -> {
+                admitted.countDown();
+                return null;
+            }));
+            assertFalse(admitted.await(100, TimeUnit.MILLISECONDS));
+
+            // Una ventana de llamadas con latencia estable: el tope pasa de 1 a 2
+            for (int i = 0; i < 10; i++) {
+                long start = limit.onStart();
+                limit.onComplete(start - TimeUnit.MILLISECONDS.toNanos(5), AdaptiveConcurrencyLimit.Outcome.SUCCESS);
+            }
+            assertEquals(2, limit.current());
+
+            // La primera sigue ocupando su hueco: la segunda entra por el aviso del tope
+            assertTrue(admitted.await(1, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void finishTagsBehindVirtualTimeAreEvictedWhileTheQueueStaysBusy() throws Exception {
+        SchedulerProperties properties = new SchedulerProperties();
+        properties.setMaxConcurrent(1);
+        properties.setAdaptiveMinConcurrent(1);
+        properties.setAdaptiveMaxConcurrent(1);
+        properties.setMaxWait(Duration.ofSeconds(5));
+        RequestScheduler scheduler = new RequestScheduler(properties);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch holding = new CountDownLatch(1);
+        AtomicInteger trackedAtSecondTurn = new AtomicInteger(-1);
+        ExecutorService pool = Executors.newCachedThreadPool();
+        try {
+            pool.submit(() -> scheduler.execute(RequestClass.SELECTION, "holder", () -> {
+                holding.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            assertTrue(holding.await(1, TimeUnit.SECONDS));
+
+            // "heavy" encola tres veces (etiquetas 0, 1 y 2); diez usuarios de paso, una vez cada uno (etiqueta 0)
+            for (int i = 0; i < 3; i++) {
+                boolean second = i == 1;
+                enqueue(pool, scheduler, "heavy", () -> {
+                    if (second) {
+                        trackedAtSecondTurn.set(scheduler.trackedUsers(RequestClass.SELECTION));
+                    }
+                });
+            }
+            for (int i = 0; i < 10; i++) {
+                enqueue(pool, scheduler, "user-" + i, () -> { });
+            }
+            assertEquals(11, scheduler.trackedUsers(RequestClass.SELECTION));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        // En el segundo turno de "heavy" el tiempo virtual ya es 1 y sigue habiendo cola:
+        // las etiquetas de los usuarios de paso ya no sirven y solo queda la suya
+        assertEquals(1, trackedAtSecondTurn.get());
+        assertEquals(0, scheduler.trackedUsers(RequestClass.SELECTION));
+    }
+
+    private static void enqueue(ExecutorService pool, RequestScheduler scheduler, String user, Runnable task)
+            throws InterruptedException {
+        int before = scheduler.waiting(RequestClass.SELECTION);
+        pool.submit(() -> scheduler.execute(RequestClass.SELECTION, user, () -> {
+            task.run();
+            return null;
+        }));
+        long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (scheduler.waiting(RequestClass.SELECTION) == before && System.nanoTime() - until < 0) {
+            Thread.sleep(1);
+        }
+        assertEquals(before + 1, scheduler.waiting(RequestClass.SELECTION));
+    }
+}
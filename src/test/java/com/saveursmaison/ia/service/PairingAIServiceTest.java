@@ -0,0 +1,132 @@
+package com.saveursmaison.ia.service;
+
+import com.saveursmaison.ia.cache.NearDuplicateResponseCache;
+import com.saveursmaison.ia.cache.SharedCacheStore;
+import com.saveursmaison.ia.catalog.CatalogSnapshot;
+import com.saveursmaison.ia.catalog.CatalogStore;
+import com.saveursmaison.ia.client.ChatCompletionResponse;
+import com.saveursmaison.ia.config.BatchingProperties;
+import com.saveursmaison.ia.config.DeadlineProperties;
+import com.saveursmaison.ia.config.ResponseCacheProperties;
+import com.saveursmaison.ia.config.SchedulerProperties;
+import com.saveursmaison.ia.deadline.Deadline;
+import com.saveursmaison.ia.dto.PairingChatRequest;
+import com.saveursmaison.ia.dto.PairingChatResponse;
+import com.saveursmaison.ia.exposure.ExposureTracker;
+import com.saveursmaison.ia.logging.PairingLogRepository;
+import com.saveursmaison.ia.routing.ModelRouter;
+import com.saveursmaison.ia.scheduling.AdaptiveConcurrencyLimit;
+import com.saveursmaison.ia.scheduling.RequestScheduler;
+import com.saveursmaison.ia.session.SessionStore;
+import com.saveursmaison.ia.stats.PairingStats;
+import com.saveursmaison.ia.tracing.RequestTrace;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PairingAIServiceTest {
+
+    private final ModelRouter modelRouter = mock(ModelRouter.class);
+    private final ExecutorService batchExecutor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void stopExecutor() {
+        batchExecutor.shutdownNow();
+    }
+
+    @Test
+    void wineOnlyFreeTextIsAnsweredFromCacheTheSecondTime() {
+        when(modelRouter.complete(any(), anyInt(), any(), any())).thenReturn(new ChatCompletionResponse(List.of(
+                new ChatCompletionResponse.Choice(new ChatCompletionResponse.Message("assistant",
+                        "{\"answer\": \"A Pinot Noir\", \"recommendedWineIds\": [\"wine-1\"], \"recommendedCheeseIds\": []}")))));
+        PairingAIService service = service(new BatchingProperties());
+
+        PairingChatResponse first = service.chat(request("a red wine for brie"), Deadline.after(Duration.ofSeconds(5)),
+                new RequestTrace(ObservationRegistry.NOOP));
+        PairingChatResponse second = service.chat(request("a red wine for brie"), Deadline.after(Duration.ofSeconds(5)),
+                new RequestTrace(ObservationRegistry.NOOP));
+
+        assertEquals("A Pinot Noir", first.getAnswer());
+        assertEquals("A Pinot Noir", second.getAnswer());
+        assertFalse(second.isFallback());
+        verify(modelRouter, times(1)).complete(any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void failedBatchCallServesTheFallbackWithoutACallPerRequest() throws Exception {
+        // Ningún tier respondió
+        when(modelRouter.complete(any(), anyInt(), any(), any())).thenReturn(null);
+        BatchingProperties batching = new BatchingProperties();
+        batching.setEnabled(true);
+        batching.setMaxBatchSize(2);
+        batching.setWindow(Duration.ofSeconds(2));
+        PairingAIService service = service(batching);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<PairingChatResponse> first = pool.submit(() -> service.chat(request("a red wine for brie"),
+                    Deadline.after(Duration.ofSeconds(5)), new RequestTrace(ObservationRegistry.NOOP)));
+            Future<PairingChatResponse> second = pool.submit(() -> service.chat(request("a white wine for comté"),
+                    Deadline.after(Duration.ofSeconds(5)), new RequestTrace(ObservationRegistry.NOOP)));
+
+            assertEquals("Sorry, I could not generate a recommendation at this time.",
+                    first.get(5, TimeUnit.SECONDS).getAnswer());
+            assertTrue(first.get().isFallback());
+            assertEquals("Sorry, I could not generate a recommendation at this time.",
+                    second.get(5, TimeUnit.SECONDS).getAnswer());
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(modelRouter, times(1)).complete(any(), anyInt(), any(), any());
+    }
+
+    private PairingAIService service(BatchingProperties batching) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CatalogStore catalogStore = mock(CatalogStore.class);
+        when(catalogStore.current(any())).thenReturn(CatalogSnapshot.empty());
+        SchedulerProperties schedulerProperties = new SchedulerProperties();
+        ResponseCacheProperties cacheProperties = new ResponseCacheProperties();
+        cacheProperties.setVerifySampleRate(0);
+
+        return new PairingAIService(
+                modelRouter,
+                catalogStore,
+                mock(PairingLogRepository.class),
+                new RequestScheduler(schedulerProperties, new AdaptiveConcurrencyLimit(schedulerProperties, meterRegistry)),
+                new SessionStore(100, 3, 600, 12, Duration.ofMinutes(30)),
+                new NearDuplicateResponseCache(cacheProperties, SharedCacheStore.none(), meterRegistry),
+                new PairingStats(10, 32, 8, Duration.ofSeconds(1)),
+                new ExposureTracker(Duration.ofHours(1), meterRegistry),
+                new DeadlineProperties(),
+                batching,
+                batchExecutor,
+                meterRegistry
+        );
+    }
+
+    private static PairingChatRequest request(String message) {
+        PairingChatRequest request = new PairingChatRequest();
+        request.setUserId("user-1");
+        request.setLocale("en");
+        request.setMessage(message);
+        return request;
+    }
+}
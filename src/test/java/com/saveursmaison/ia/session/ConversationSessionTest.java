@@ -0,0 +1,42 @@
+package com.saveursmaison.ia.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConversationSessionTest {
+
+    @Test
+    void oldTurnsAreCompactedIntoBoundedSummary() {
+        ConversationSession session = new ConversationSession("s1", 2, 200);
+        for (int i = 0; i < 20; i++) {
+            session.recordTurn("question " + i, "answer " + i, List.of("Wine " + i),
+                    "WINE_ONLY", List.of("w" + i), List.of());
+        }
+
+        ConversationSession.Context context = session.context();
+        assertEquals(2, context.recentTurns().size());
+        assertEquals("question 19", context.recentTurns().get(1).message());
+        assertTrue(context.summary().length() <= 200);
+        assertTrue(context.summary().contains("question 17"));
+        assertFalse(context.summary().contains("question 0\""));
+        assertEquals(List.of("w19"), context.shortlistWineIds());
+        assertEquals("WINE_ONLY", context.lastMode());
+    }
+
+    @Test
+    void storeReusesKnownSessionsAndReplacesUnknownOnes() {
+        SessionStore store = new SessionStore(10, 3, 600, 12, Duration.ofMinutes(30));
+        ConversationSession first = store.resolve(null);
+
+        assertSame(first, store.resolve(first.getId()));
+        assertNotEquals(first.getId(), store.resolve("expired-or-forged").getId());
+    }
+}
@@ -0,0 +1,32 @@
+package com.saveursmaison.ia.stats;
+
+import com.saveursmaison.ia.dto.PairingStatsResponse;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PairingStatsTest {
+
+    @Test
+    void heavyHittersSurviveLongTailPerLocale() {
+        PairingStats stats = new PairingStats(3, 16, 4, Duration.ZERO);
+        for (int i = 0; i < 2_000; i++) {
+            // wine-hot aparece en 1 de cada 4; el resto son productos distintos
+            String wine = i % 4 == 0 ? "wine-hot" : "wine-" + i;
+            String locale = i % 2 == 0 ? "es-CL" : "en";
+            stats.record("WINE_ONLY", locale, Duration.ofMillis(i % 10 == 0 ? 3_000 : 300), List.of(wine), List.of());
+        }
+
+        PairingStatsResponse.WindowStats hour = stats.snapshot().windows().get("lastHour");
+        assertEquals(2_000, hour.requests());
+        assertEquals(1_000L, hour.locales().get("es"));
+        assertEquals("wine-hot", hour.topWines().get("all").get(0).id());
+        assertEquals("wine-hot", hour.topWines().get("es").get(0).id());
+        assertEquals(500L, hour.p50Millis());
+        assertEquals(4_000L, hour.p95Millis());
+        assertEquals(2_000, stats.snapshot().windows().get("last7Days").requests());
+    }
+}
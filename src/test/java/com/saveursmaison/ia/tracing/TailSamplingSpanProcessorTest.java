@@ -0,0 +1,93 @@
+package com.saveursmaison.ia.tracing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TailSamplingSpanProcessorTest {
+
+    private final List<SpanData> exported = new CopyOnWriteArrayList<>();
+
+    @Test
+    void keepsSlowAndFailedTracesWithAllTheirSpansAndDropsTheRest() {
+        SdkTracerProvider provider = provider(0.0);
+        Tracer tracer = provider.get("test");
+
+        trace(tracer, "fast", 10, false);
+        trace(tracer, "slow", 3_000, false);
+        trace(tracer, "failed", 10, true);
+        provider.shutdown().join(5, TimeUnit.SECONDS);
+
+        List<String> names = exported.stream().map(SpanData::getName).toList();
+        assertEquals(4, names.size());
+        assertTrue(names.containsAll(List.of("slow", "slow child", "failed", "failed child")));
+    }
+
+    @Test
+    void sampleRateKeepsNormalTraces() {
+        SdkTracerProvider provider = provider(1.0);
+
+        trace(provider.get("test"), "fast", 10, false);
+        provider.shutdown().join(5, TimeUnit.SECONDS);
+
+        assertEquals(2, exported.size());
+    }
+
+    private SdkTracerProvider provider(double sampleRate) {
+        TailSamplingSpanProcessor processor = new TailSamplingSpanProcessor(
+                new CollectingExporter(), Duration.ofSeconds(2), sampleRate, 100, 10, new SimpleMeterRegistry());
+        return SdkTracerProvider.builder().addSpanProcessor(processor).build();
+    }
+
+    /**
+     * Raíz con un hijo; el hijo termina primero, como en una petición real.
+     */
+    private static void trace(Tracer tracer, String name, long durationMillis, boolean childFails) {
+        long start = System.currentTimeMillis();
+        Span root = tracer.spanBuilder(name).setStartTimestamp(start, TimeUnit.MILLISECONDS).startSpan();
+        Span child = tracer.spanBuilder(name + " child")
+                .setParent(Context.root().with(root))
+                .setStartTimestamp(start, TimeUnit.MILLISECONDS)
+                .startSpan();
+        if (childFails) {
+            child.setStatus(StatusCode.ERROR);
+        }
+        child.end(start + 1, TimeUnit.MILLISECONDS);
+        root.end(start + durationMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private final class CollectingExporter implements SpanExporter {
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            exported.addAll(spans);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}